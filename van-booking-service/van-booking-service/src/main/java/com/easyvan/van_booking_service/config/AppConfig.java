@@ -1,14 +1,66 @@
 package com.easyvan.van_booking_service.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
 public class AppConfig {
 
+    /**
+     * HTTP client สำหรับเรียกระบบภายนอก (Slip2Go): connection pool แบบ keep-alive พร้อม timeout ทุกขั้น
+     * (รอ connection จาก pool, connect, รอ response) upstream ที่ค้างจึงไม่กิน thread ไปเรื่อยๆ
+     * สถานะ pool ถูกวัดเป็น metric {@code httpcomponents.httpclient.pool.*} (name = slip2go)
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public CloseableHttpClient outboundHttpClient(MeterRegistry meterRegistry,
+            @Value("${slip2go.http.max-connections:20}") int maxConnections,
+            @Value("${slip2go.http.connect-timeout-ms:2000}") long connectTimeoutMillis,
+            @Value("${slip2go.http.read-timeout-ms:10000}") long readTimeoutMillis,
+            @Value("${slip2go.http.pool-timeout-ms:1000}") long poolTimeoutMillis,
+            @Value("${slip2go.http.keep-alive-seconds:30}") long keepAliveSeconds) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMillis))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(5))
+                        .build())
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "slip2go").bindTo(meterRegistry);
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolTimeoutMillis))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMillis))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> TimeValue.ofSeconds(keepAliveSeconds))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(keepAliveSeconds))
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    // สร้างผ่าน RestTemplateBuilder เพื่อให้มี metric http.client.requests (latency ต่อ uri/status)
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder builder, CloseableHttpClient outboundHttpClient) {
+        return builder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(outboundHttpClient))
+                .build();
     }
 }
@@ -0,0 +1,17 @@
+package com.easyvan.van_booking_service.config;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FlywayConfig {
+
+    // ฐานข้อมูลที่สร้างไว้ก่อนมี migration (จาก schema.sql) จะถูก baseline ที่ V1 แล้วรันเฉพาะ V2 เป็นต้นไป
+    @Bean
+    public FlywayConfigurationCustomizer flywayBaselineCustomizer() {
+        return configuration -> configuration
+                .baselineOnMigrate(true)
+                .baselineVersion("1");
+    }
+}
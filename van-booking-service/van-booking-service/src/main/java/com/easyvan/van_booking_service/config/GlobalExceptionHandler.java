@@ -1,5 +1,8 @@
 package com.easyvan.van_booking_service.config;
 
+import com.easyvan.van_booking_service.exception.PasswordHashingOverloadedException;
+import com.easyvan.van_booking_service.exception.SeatUnavailableException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -10,6 +13,27 @@ import java.util.Map;
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    @ExceptionHandler(SeatUnavailableException.class)
+    public ResponseEntity<Map<String, String>> handleSeatUnavailable(SeatUnavailableException e) {
+        Map<String, String> response = new HashMap<>();
+        response.put("error", e.getMessage());
+        return ResponseEntity.status(409).body(response);
+    }
+
+    @ExceptionHandler(PasswordHashingOverloadedException.class)
+    public ResponseEntity<Map<String, String>> handlePasswordHashingOverloaded(PasswordHashingOverloadedException e) {
+        Map<String, String> response = new HashMap<>();
+        response.put("error", e.getMessage());
+        return ResponseEntity.status(503).header("Retry-After", "1").body(response);
+    }
+
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Map<String, String>> handleDataIntegrityViolation(DataIntegrityViolationException e) {
+        Map<String, String> response = new HashMap<>();
+        response.put("error", "ข้อมูลซ้ำหรือขัดแย้งกับข้อมูลที่มีอยู่แล้ว");
+        return ResponseEntity.status(409).body(response);
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<Map<String, String>> handleRuntimeException(RuntimeException e) {
         Map<String, String> response = new HashMap<>();
@@ -0,0 +1,31 @@
+package com.easyvan.van_booking_service.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+/**
+ * รวม INSERT/UPDATE เป็น JDBC batch ({@code hibernate.jdbc.batch_size}) และเรียงคำสั่งตาม entity
+ * เพื่อให้คำสั่งของตารางเดียวกันอยู่ใน batch เดียวกัน ใช้ได้เพราะ id มาจาก sequence (ดู V9__pooled_id_sequences.sql)
+ * โดย Hibernate จองครั้งละ {@code allocationSize} ค่าแบบ pooled-lo ซึ่งต้องเท่ากับ INCREMENT BY ของ sequence
+ */
+@Configuration
+public class HibernateBatchingConfig implements HibernatePropertiesCustomizer {
+
+    private final int batchSize;
+
+    public HibernateBatchingConfig(@Value("${hibernate.jdbc.batch-size:50}") int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, batchSize);
+        hibernateProperties.putIfAbsent(AvailableSettings.ORDER_INSERTS, true);
+        hibernateProperties.putIfAbsent(AvailableSettings.ORDER_UPDATES, true);
+        hibernateProperties.putIfAbsent(AvailableSettings.PREFERRED_POOLED_OPTIMIZER, "pooled-lo");
+    }
+}
@@ -0,0 +1,32 @@
+package com.easyvan.van_booking_service.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+/**
+ * เปิด Hibernate second-level cache (JCache + Caffeine) สำหรับข้อมูลอ้างอิงที่แทบไม่เปลี่ยน
+ * (Station, Route, Vehicle) และ query cache ของ query ที่ระบุ hint ไว้
+ *
+ * เปิด statistics ด้วย เพื่อให้ hibernate-micrometer ส่ง metric hit/miss
+ * ({@code hibernate.second.level.cache.requests}, {@code hibernate.query.cache.requests}) ไปที่ actuator
+ */
+@Configuration
+public class HibernateCacheConfig implements HibernatePropertiesCustomizer {
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.putIfAbsent(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+        hibernateProperties.putIfAbsent(AvailableSettings.USE_QUERY_CACHE, true);
+        hibernateProperties.putIfAbsent(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+        hibernateProperties.putIfAbsent("hibernate.javax.cache.provider",
+                "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider");
+        // region ที่ไม่ได้กำหนดไว้ใน application.conf จะใช้ค่า caffeine.jcache.default
+        hibernateProperties.putIfAbsent("hibernate.javax.cache.missing_cache_strategy", "create");
+        hibernateProperties.putIfAbsent(AvailableSettings.GENERATE_STATISTICS, true);
+        // statistics เปิดไว้เพื่อ metric เท่านั้น ไม่ต้อง log สรุปของทุก session ตอนปิด
+        hibernateProperties.putIfAbsent(AvailableSettings.LOG_SESSION_METRICS, false);
+    }
+}
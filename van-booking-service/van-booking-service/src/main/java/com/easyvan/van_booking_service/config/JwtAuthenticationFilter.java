@@ -1,33 +1,58 @@
 package com.easyvan.van_booking_service.config;
 
 import com.easyvan.van_booking_service.service.CustomUserDetailsService;
+import com.easyvan.van_booking_service.service.JwtService;
+import com.easyvan.van_booking_service.service.TokenRevocationService;
+import com.easyvan.van_booking_service.service.UserStatusCache;
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * ยืนยันตัวตนจาก JWT โดยสร้าง principal จาก claim ใน token (sub = อีเมล, role) ไม่ต้อง query ฐานข้อมูล
+ * สถานะผู้ใช้ตรวจผ่าน {@link UserStatusCache} ซึ่ง query อย่างมากครั้งเดียวต่อผู้ใช้ต่อช่วง TTL
+ * token เก่าที่ไม่มี role claim จะโหลดผู้ใช้จากฐานข้อมูลเหมือนเดิม
+ * token ที่ถูกเพิกถอนแล้ว (logout, รีเซ็ตรหัสผ่าน) ถูกปฏิเสธผ่าน {@link TokenRevocationService}
+ * เวลาที่ใช้ถูกวัดเป็น metric {@code jwt.authentication} แยกตาม path (claims / database)
+ */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final String jwtSecret;
+    private final JwtService jwtService;
     private final CustomUserDetailsService userDetailsService;
+    private final UserStatusCache userStatusCache;
+    private final TokenRevocationService tokenRevocationService;
+    private final Timer claimsTimer;
+    private final Timer databaseTimer;
 
-    public JwtAuthenticationFilter(@Value("${jwt.secret}") String jwtSecret,
-            CustomUserDetailsService userDetailsService) {
-        this.jwtSecret = jwtSecret;
+    public JwtAuthenticationFilter(JwtService jwtService,
+            CustomUserDetailsService userDetailsService,
+            UserStatusCache userStatusCache,
+            TokenRevocationService tokenRevocationService,
+            MeterRegistry meterRegistry) {
+        this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.userStatusCache = userStatusCache;
+        this.tokenRevocationService = tokenRevocationService;
+        this.claimsTimer = Timer.builder("jwt.authentication").tag("path", "claims").register(meterRegistry);
+        this.databaseTimer = Timer.builder("jwt.authentication").tag("path", "database").register(meterRegistry);
     }
 
     @Override
@@ -43,24 +68,38 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         final String jwt = authHeader.substring(7);
+        long start = System.nanoTime();
         try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(Keys.hmacShaKeyFor(jwtSecret.getBytes()))
-                    .build()
-                    .parseClaimsJws(jwt)
-                    .getBody();
-
+            Claims claims = jwtService.parse(jwt);
             String username = claims.getSubject();
 
+            // ตรวจจากหน่วยความจำล้วน (Bloom filter + เวลาตัดของผู้ใช้) ไม่มี I/O
+            if (tokenRevocationService.isRevoked(claims)) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+                String role = claims.get(JwtService.ROLE_CLAIM, String.class);
+                UserDetails userDetails;
+                Timer timer;
+                if (role != null) {
+                    userDetails = fromClaims(username, role);
+                    timer = claimsTimer;
+                } else {
+                    userDetails = this.userDetailsService.loadUserByUsername(username);
+                    timer = databaseTimer;
+                }
 
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
-                        null,
-                        userDetails.getAuthorities());
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+                if (userDetails != null) {
+                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                            userDetails,
+                            null,
+                            userDetails.getAuthorities());
+                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                }
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             }
         } catch (Exception e) {
             // Token invalid or expired
@@ -69,4 +108,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    // คืน null หากผู้ใช้ถูกลบไปแล้ว role ที่ใช้คือ role ปัจจุบัน (กรณีแอดมินเปลี่ยน role หลังออก token)
+    private UserDetails fromClaims(String username, String role) {
+        if (userStatusCache.isEnabled()) {
+            Optional<String> currentRole = userStatusCache.currentRole(username);
+            if (currentRole.isEmpty()) {
+                return null;
+            }
+            role = currentRole.get();
+        }
+        return new User(username, "", Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role)));
+    }
 }
@@ -1,5 +1,6 @@
 package com.easyvan.van_booking_service.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -35,7 +36,12 @@ public class SecurityConfig {
                         .requestMatchers("/api/stations/**").permitAll() // ดูสถานีได้โดยไม่ต้อง Login
                         .requestMatchers("/api/routes/**").permitAll() // ดูเส้นทางได้โดยไม่ต้อง Login
                         .requestMatchers("/api/schedules/**").permitAll()
+                        // EventSource ของเบราว์เซอร์ส่ง Authorization header ไม่ได้ และผังที่นั่งไม่มีข้อมูลส่วนตัว
+                        // จำนวน stream ต่อ IP ถูกจำกัดใน SeatMapEventBroker แทน
+                        .requestMatchers("/api/bookings/seat-map/stream").permitAll()
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN") // metrics สำหรับแอดมินเท่านั้น
                         .anyRequest().authenticated())
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -57,8 +63,9 @@ public class SecurityConfig {
         return source;
     }
 
+    // ปรับ cost ได้ตาม latency ที่วัดจริง hash เดิมที่ cost ต่างจากนี้จะถูก hash ใหม่ตอนเข้าสู่ระบบ
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${password.bcrypt.strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 }
\ No newline at end of file
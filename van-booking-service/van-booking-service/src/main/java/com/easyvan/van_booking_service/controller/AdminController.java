@@ -1,13 +1,28 @@
 package com.easyvan.van_booking_service.controller;
 
+import com.easyvan.van_booking_service.dto.AdminScheduleDTO;
+import com.easyvan.van_booking_service.dto.CursorPage;
+import com.easyvan.van_booking_service.dto.DriverDTO;
+import com.easyvan.van_booking_service.dto.DriverImportJob;
 import com.easyvan.van_booking_service.entity.User;
 import com.easyvan.van_booking_service.service.AdminService;
+import com.easyvan.van_booking_service.service.DriverImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.util.List;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -15,24 +30,50 @@ import java.util.List;
 public class AdminController {
 
     private final AdminService adminService;
+    private final DriverImportService driverImportService;
 
     @PostMapping("/drivers")
-    public ResponseEntity<User> createDriver(@RequestBody User driverData) {
+    public ResponseEntity<DriverDTO> createDriver(@RequestBody User driverData) {
         return ResponseEntity.ok(adminService.createDriver(driverData));
     }
 
+    // รับไฟล์แล้วคืน 202 พร้อม job id ทันที ความคืบหน้าและแถวที่ผิดพลาดดูได้จาก /drivers/import/jobs/{jobId}
     @PostMapping("/drivers/import")
-    public ResponseEntity<List<User>> importDrivers(@RequestParam("file") MultipartFile file) {
-        return ResponseEntity.ok(adminService.importDriversFromCsv(file));
-    }
-
+    public ResponseEntity<?> importDrivers(@RequestParam("file") MultipartFile file) {
+        try {
+            DriverImportJob job = driverImportService.submit(file);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/admin/drivers/import/jobs/" + job.getJobId()))
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/drivers/import/jobs/{jobId}")
+    public ResponseEntity<?> getDriverImportJob(@PathVariable String jobId) {
+        DriverImportJob job = driverImportService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("message", "ไม่พบงานนำเข้าข้อมูล"));
+        }
+        return ResponseEntity.ok(job);
+    }
+
+    // รายการของแอดมินแบ่งหน้าด้วย cursor: ส่ง nextCursor ของหน้าก่อนมาใน ?cursor= (limit สูงสุด 200)
+    // ?q= ค้นหาคนขับจากชื่อ ชื่อผู้ใช้ หรืออีเมล
     @GetMapping("/drivers")
-    public ResponseEntity<List<User>> getAllDrivers() {
-        return ResponseEntity.ok(adminService.getAllDrivers());
+    public ResponseEntity<CursorPage<DriverDTO>> getDrivers(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(adminService.getDrivers(q, cursor, limit));
     }
 
     @PutMapping("/drivers/{id}")
-    public ResponseEntity<User> updateDriver(@PathVariable Long id, @RequestBody User driverData) {
+    public ResponseEntity<DriverDTO> updateDriver(@PathVariable Long id, @RequestBody User driverData) {
         return ResponseEntity.ok(adminService.updateDriver(id, driverData));
     }
 
@@ -50,8 +91,11 @@ public class AdminController {
     }
 
     @GetMapping("/stations")
-    public ResponseEntity<List<com.easyvan.van_booking_service.entity.Station>> getAllStations() {
-        return ResponseEntity.ok(adminService.getAllStations());
+    public ResponseEntity<CursorPage<com.easyvan.van_booking_service.entity.Station>> getStations(
+            @RequestParam(required = false) String province,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(adminService.getStations(province, cursor, limit));
     }
 
     @PutMapping("/stations/{id}")
@@ -74,8 +118,11 @@ public class AdminController {
     }
 
     @GetMapping("/routes")
-    public ResponseEntity<List<com.easyvan.van_booking_service.entity.Route>> getAllRoutes() {
-        return ResponseEntity.ok(adminService.getAllRoutes());
+    public ResponseEntity<CursorPage<com.easyvan.van_booking_service.entity.Route>> getRoutes(
+            @RequestParam(required = false) Boolean active,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(adminService.getRoutes(active, cursor, limit));
     }
 
     @PutMapping("/routes/{id}")
@@ -92,14 +139,21 @@ public class AdminController {
 
     // --- Schedule (Assignment) Management ---
     @PostMapping("/schedules")
-    public ResponseEntity<com.easyvan.van_booking_service.entity.Schedule> createSchedule(
+    public ResponseEntity<AdminScheduleDTO> createSchedule(
             @RequestBody com.easyvan.van_booking_service.entity.Schedule schedule) {
         return ResponseEntity.ok(adminService.createSchedule(schedule));
     }
 
+    // รอบรถที่ออกเดินทางในช่วง [from, to) เรียงตามเวลาออกเดินทาง
     @GetMapping("/schedules")
-    public ResponseEntity<List<com.easyvan.van_booking_service.entity.Schedule>> getAllSchedules() {
-        return ResponseEntity.ok(adminService.getAllSchedules());
+    public ResponseEntity<CursorPage<AdminScheduleDTO>> getSchedules(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long routeId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(adminService.getSchedules(from, to, routeId, status, cursor, limit));
     }
 
     @DeleteMapping("/schedules/{id}")
@@ -109,7 +163,36 @@ public class AdminController {
     }
 
     @GetMapping("/vehicles")
-    public ResponseEntity<List<com.easyvan.van_booking_service.entity.Vehicle>> getAllVehicles() {
-        return ResponseEntity.ok(adminService.getAllVehicles());
+    public ResponseEntity<CursorPage<com.easyvan.van_booking_service.entity.Vehicle>> getVehicles(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(adminService.getVehicles(cursor, limit));
+    }
+
+    // --- Payment Slip Audit ---
+    @GetMapping("/bookings/{id}/slip")
+    public void getBookingSlip(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Path file;
+        try {
+            file = adminService.getSlipFile(id);
+        } catch (RuntimeException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+            return;
+        }
+        SlipResponses.write(file, request, response);
+    }
+
+    @GetMapping("/bookings/{id}/slip/thumbnail")
+    public void getBookingSlipThumbnail(@PathVariable Long id, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Path file;
+        try {
+            file = adminService.getSlipThumbnail(id);
+        } catch (RuntimeException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+            return;
+        }
+        SlipResponses.write(file, request, response);
     }
 }
@@ -1,18 +1,16 @@
 package com.easyvan.van_booking_service.controller;
 
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import com.easyvan.van_booking_service.dto.UserDTO;
+import com.easyvan.van_booking_service.exception.PasswordHashingOverloadedException;
 import com.easyvan.van_booking_service.repository.UserRepository;
+import com.easyvan.van_booking_service.service.JwtService;
+import com.easyvan.van_booking_service.service.PasswordHashingService;
+import com.easyvan.van_booking_service.service.TokenRevocationService;
 import com.easyvan.van_booking_service.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -20,19 +18,22 @@ import org.springframework.web.bind.annotation.*;
 public class AuthController {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final UserService userService;
-    private final String jwtSecret;
+    private final JwtService jwtService;
+    private final TokenRevocationService tokenRevocationService;
 
     @Autowired
     public AuthController(UserRepository userRepository,
-            PasswordEncoder passwordEncoder,
+            PasswordHashingService passwordHashingService,
             UserService userService,
-            @Value("${jwt.secret}") String jwtSecret) {
+            JwtService jwtService,
+            TokenRevocationService tokenRevocationService) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
         this.userService = userService;
-        this.jwtSecret = jwtSecret;
+        this.jwtService = jwtService;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @PostMapping("/register")
@@ -41,6 +42,8 @@ public class AuthController {
             // ส่ง DTO ไปให้ Service จัดการทั้งหมด (ทั้งเช็คซ้ำ, Hash Password และบันทึก)
             userService.registerUser(dto);
             return ResponseEntity.ok("ลงทะเบียนสำเร็จ");
+        } catch (PasswordHashingOverloadedException e) {
+            return ResponseEntity.status(503).body(e.getMessage());
         } catch (RuntimeException e) {
             // รับข้อความ Error จาก Service เช่น "ชื่อผู้ใช้นี้ถูกใช้งานแล้ว"
             return ResponseEntity.badRequest().body(e.getMessage());
@@ -53,15 +56,11 @@ public class AuthController {
 
         return userRepository.findByEmailIgnoreCase(loginInput)
                 .or(() -> userRepository.findByUsername(loginInput))
-                .filter(u -> passwordEncoder.matches(dto.getPassword(), u.getPassword()))
+                .filter(u -> passwordHashingService.matches(dto.getPassword(), u.getPassword()))
                 .map(u -> {
-                    String token = Jwts.builder()
-                            .setSubject(u.getEmail())
-                            .claim("role", u.getRole())
-                            .setIssuedAt(new Date())
-                            .setExpiration(new Date(System.currentTimeMillis() + 86400000))
-                            .signWith(Keys.hmacShaKeyFor(jwtSecret.getBytes()), SignatureAlgorithm.HS256)
-                            .compact();
+                    passwordHashingService.rehashIfNeeded(u.getId(), dto.getPassword(), u.getPassword());
+
+                    String token = jwtService.issue(u);
 
                     Map<String, Object> response = new HashMap<>();
                     response.put("token", token);
@@ -81,11 +80,25 @@ public class AuthController {
                 .orElse(ResponseEntity.status(401).body(Map.of("message", "อีเมลหรือรหัสผ่านไม่ถูกต้อง")));
     }
 
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            try {
+                tokenRevocationService.revoke(jwtService.parse(authHeader.substring(7)));
+            } catch (Exception e) {
+                // token หมดอายุหรือไม่ถูกต้องอยู่แล้ว ไม่ต้องเพิกถอน
+            }
+        }
+        return ResponseEntity.ok("ออกจากระบบสำเร็จ");
+    }
+
     @PutMapping("/{userId}")
     public ResponseEntity<?> updateUser(@PathVariable Long userId, @RequestBody UserDTO dto) {
         try {
             userService.updateUser(userId, dto);
             return ResponseEntity.ok("อัปเดตข้อมูลสำเร็จ");
+        } catch (PasswordHashingOverloadedException e) {
+            return ResponseEntity.status(503).body(e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -106,6 +119,8 @@ public class AuthController {
         try {
             userService.resetPassword(request.get("token"), request.get("newPassword"));
             return ResponseEntity.ok("รีเซ็ตรหัสผ่านสำเร็จ");
+        } catch (PasswordHashingOverloadedException e) {
+            return ResponseEntity.status(503).body(e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
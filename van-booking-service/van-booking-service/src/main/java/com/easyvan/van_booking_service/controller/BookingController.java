@@ -1,16 +1,24 @@
 package com.easyvan.van_booking_service.controller;
 
 import com.easyvan.van_booking_service.dto.BookingRequest;
-import com.easyvan.van_booking_service.entity.Booking;
+import com.easyvan.van_booking_service.dto.BookingSummaryDTO;
+import com.easyvan.van_booking_service.dto.GroupBookingRequest;
+import com.easyvan.van_booking_service.dto.SeatMapDTO;
+import com.easyvan.van_booking_service.exception.SeatUnavailableException;
 import com.easyvan.van_booking_service.repository.BookingRepository;
 import com.easyvan.van_booking_service.service.BookingService;
-import com.easyvan.van_booking_service.repository.SchedulesRepository;
+import com.easyvan.van_booking_service.service.SeatMapEventBroker;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/bookings")
@@ -19,14 +27,14 @@ public class BookingController {
 
     private final BookingService bookingService;
     private final BookingRepository bookingRepository;
-    private final SchedulesRepository schedulesRepository;
+    private final SeatMapEventBroker seatMapEventBroker;
 
     @Autowired
     public BookingController(BookingService bookingService, BookingRepository bookingRepository,
-            SchedulesRepository schedulesRepository) {
+            SeatMapEventBroker seatMapEventBroker) {
         this.bookingService = bookingService;
         this.bookingRepository = bookingRepository;
-        this.schedulesRepository = schedulesRepository;
+        this.seatMapEventBroker = seatMapEventBroker;
     }
 
     @PostMapping("/reserve")
@@ -37,26 +45,54 @@ public class BookingController {
                 return ResponseEntity.ok(result);
             }
             return ResponseEntity.status(409).body(result);
+        } catch (SeatUnavailableException e) {
+            return ResponseEntity.status(409).body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("เกิดข้อผิดพลาด: " + e.getMessage());
         }
     }
 
+    @PostMapping("/reserve-group")
+    public ResponseEntity<?> reserveGroup(@RequestBody GroupBookingRequest request) {
+        try {
+            List<Long> bookingIds = bookingService.reserveGroup(request);
+            return ResponseEntity.ok(Map.of("message", "จองสำเร็จ", "bookingIds", bookingIds));
+        } catch (SeatUnavailableException e) {
+            return ResponseEntity.status(409).body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "เกิดข้อผิดพลาด: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/user/{userId}")
-    public List<Booking> getBookingsByUser(@PathVariable Long userId) {
-        return bookingRepository.findByUserId(userId);
+    public List<BookingSummaryDTO> getBookingsByUser(@PathVariable Long userId) {
+        return bookingRepository.findSummariesByUserId(userId);
     }
 
     @GetMapping("/booked-seats")
     public List<Integer> getBookedSeats(
             @RequestParam Long routeId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) java.time.LocalDateTime departureTime) {
-        return schedulesRepository.findByRouteIdAndDepartureTime(routeId, departureTime)
-                .map(schedule -> bookingRepository.findByScheduleId(schedule.getId()).stream()
-                        .filter(b -> !"CANCELLED".equals(b.getStatus()) && !"REJECTED".equals(b.getStatus()))
-                        .map(Booking::getSeatNumber)
-                        .collect(java.util.stream.Collectors.toList()))
-                .orElse(java.util.Collections.emptyList());
+        return bookingService.getBookedSeats(routeId, departureTime);
+    }
+
+    @GetMapping("/seat-map")
+    public SeatMapDTO getSeatMap(
+            @RequestParam Long routeId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) java.time.LocalDateTime departureTime) {
+        return bookingService.getSeatMap(routeId, departureTime);
+    }
+
+    // ผังที่นั่งแบบ realtime: event "snapshot" หนึ่งครั้ง แล้วตามด้วย event "seat" ทุกครั้งที่ที่นั่งเปลี่ยนสถานะ
+    @GetMapping(value = "/seat-map/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSeatMap(
+            @RequestParam Long routeId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) java.time.LocalDateTime departureTime) {
+        SseEmitter emitter = seatMapEventBroker.subscribe(routeId, departureTime);
+        if (emitter == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "มีผู้ชมผังที่นั่งมากเกินไป กรุณาลองใหม่");
+        }
+        return emitter;
     }
 
     @PutMapping("/{bookingId}/cancel")
@@ -69,6 +105,16 @@ public class BookingController {
         }
     }
 
+    @PutMapping("/{bookingId}/extend-hold")
+    public ResponseEntity<String> extendHold(@PathVariable Long bookingId) {
+        try {
+            bookingService.extendHold(bookingId);
+            return ResponseEntity.ok("ต่อเวลาการถือครองที่นั่งสำเร็จ");
+        } catch (Exception e) {
+            return ResponseEntity.status(409).body("เกิดข้อผิดพลาด: " + e.getMessage());
+        }
+    }
+
     @PutMapping("/{bookingId}/reschedule")
     public ResponseEntity<String> rescheduleBooking(
             @PathVariable Long bookingId,
@@ -76,6 +122,8 @@ public class BookingController {
         try {
             bookingService.rescheduleBooking(bookingId, newDepartureTime);
             return ResponseEntity.ok("เลื่อนการเดินทางสำเร็จ");
+        } catch (SeatUnavailableException e) {
+            return ResponseEntity.status(409).body("เกิดข้อผิดพลาด: " + e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("เกิดข้อผิดพลาด: " + e.getMessage());
         }
@@ -0,0 +1,50 @@
+package com.easyvan.van_booking_service.controller;
+
+import com.easyvan.van_booking_service.service.CatalogSnapshotService.Snapshot;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+// ส่ง snapshot ของ catalog พร้อม ETag: ตอบ 304 เมื่อ client มีเวอร์ชันเดียวกันอยู่แล้ว และส่ง gzip เมื่อรองรับ
+final class CatalogResponses {
+
+    private CatalogResponses() {
+    }
+
+    static ResponseEntity<byte[]> of(Snapshot snapshot, String ifNoneMatch, String acceptEncoding) {
+        // no-cache = เก็บไว้ได้แต่ต้องถามก่อนใช้ทุกครั้ง (ตอบด้วย 304 ซึ่งแทบไม่มีค่าใช้จ่าย)
+        CacheControl cacheControl = CacheControl.noCache();
+        if (matches(ifNoneMatch, snapshot.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(snapshot.etag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(snapshot.etag())
+                .cacheControl(cacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.gzipped());
+        }
+        return response.body(snapshot.json());
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
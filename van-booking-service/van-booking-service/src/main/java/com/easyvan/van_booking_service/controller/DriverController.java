@@ -1,7 +1,7 @@
 package com.easyvan.van_booking_service.controller;
 
 import com.easyvan.van_booking_service.dto.BookingRequest;
-import com.easyvan.van_booking_service.entity.Booking;
+import com.easyvan.van_booking_service.dto.ScheduleBookingDTO;
 import com.easyvan.van_booking_service.repository.BookingRepository;
 import com.easyvan.van_booking_service.service.BookingService;
 import com.easyvan.van_booking_service.repository.SchedulesRepository;
@@ -36,7 +36,7 @@ public class DriverController {
     }
 
     @GetMapping("/schedules/{scheduleId}/bookings")
-    public ResponseEntity<List<Booking>> getScheduleBookings(@PathVariable Long scheduleId) {
+    public ResponseEntity<List<ScheduleBookingDTO>> getScheduleBookings(@PathVariable Long scheduleId) {
         return ResponseEntity.ok(driverService.getBookingsBySchedule(scheduleId));
     }
 }
\ No newline at end of file
@@ -1,26 +1,28 @@
 package com.easyvan.van_booking_service.controller;
 
-import com.easyvan.van_booking_service.entity.Route;
-import com.easyvan.van_booking_service.repository.RouteRepository;
+import com.easyvan.van_booking_service.service.CatalogSnapshotService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/routes")
 @CrossOrigin(origins = "http://localhost:3000")
 public class RouteController {
 
-    private final RouteRepository routeRepository;
+    private final CatalogSnapshotService catalogSnapshotService;
 
     @Autowired
-    public RouteController(RouteRepository routeRepository) {
-        this.routeRepository = routeRepository;
+    public RouteController(CatalogSnapshotService catalogSnapshotService) {
+        this.catalogSnapshotService = catalogSnapshotService;
     }
 
+    // เส้นทางที่เปิดให้บริการ ส่งจาก snapshot ที่ serialize ไว้แล้ว (ETag / 304)
     @GetMapping
-    public List<Route> getAllRoutes() {
-        return routeRepository.findByIsActiveTrue();
+    public ResponseEntity<byte[]> getAllRoutes(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return CatalogResponses.of(catalogSnapshotService.getRoutes(), ifNoneMatch, acceptEncoding);
     }
 }
@@ -1,5 +1,6 @@
 package com.easyvan.van_booking_service.controller;
 
+import com.easyvan.van_booking_service.dto.DepartureAvailabilityDTO;
 import com.easyvan.van_booking_service.entity.Schedule;
 import com.easyvan.van_booking_service.service.ScheduleService;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -31,4 +32,13 @@ public class SchedulesController {
 
         return scheduleService.generateDynamicSchedules(routeId, date);
     }
+
+    // ทุกรอบของวันพร้อมจำนวนที่นั่งคงเหลือในคำขอเดียว
+    @GetMapping("/availability")
+    public List<DepartureAvailabilityDTO> getDayAvailability(
+            @RequestParam(name = "routeId") Long routeId,
+            @RequestParam(name = "date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+
+        return scheduleService.getDayAvailability(routeId, date);
+    }
 }
@@ -0,0 +1,148 @@
+package com.easyvan.van_booking_service.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.regex.Pattern;
+
+// ส่งไฟล์สลิปแบบ zero-copy (Tomcat sendfile หรือ FileChannel.transferTo) รองรับ Range, ETag และ cache
+final class SlipResponses {
+
+    private static final Pattern CONTENT_KEY = Pattern.compile("[0-9a-f]{64}");
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private SlipResponses() {
+    }
+
+    static void write(Path file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = Files.size(file);
+        // ไฟล์ที่ชื่อเป็น SHA-256 ไม่มีวันเปลี่ยนเนื้อหา จึงเก็บ cache ได้ยาว ไฟล์แบบเดิมต้องถามใหม่ทุกครั้ง
+        String name = file.getFileName().toString();
+        String contentKey = CONTENT_KEY.matcher(name).matches() ? name : null;
+        String etag = contentKey != null
+                ? "\"" + contentKey + "\""
+                : "W/\"" + length + "-" + Files.getLastModifiedTime(file).toMillis() + "\"";
+        // เฉพาะแอดมิน ห้าม cache ร่วม (proxy) เก็บ
+        CacheControl cacheControl = contentKey != null
+                ? CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().immutable()
+                : CacheControl.noCache().cachePrivate();
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] parsed = parseRange(range, length);
+            if (parsed == null) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+            if (parsed.length == 2) {
+                start = parsed[0];
+                end = parsed[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        response.setContentType(contentType(file));
+        response.setContentLengthLong(end - start + 1);
+        if (end < start || "HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat ส่งไฟล์เองด้วย sendfile หลัง servlet คืนค่า ไม่ผ่าน user space
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = start;
+            while (position <= end) {
+                position += channel.transferTo(position, end + 1 - position, out);
+            }
+        }
+        response.flushBuffer();
+    }
+
+    /**
+     * แปลง Range header แบบช่วงเดียว คืน {start, end} หากใช้ได้, array ว่างหากควรส่งทั้งไฟล์
+     * (หลายช่วงหรือรูปแบบไม่รู้จัก) หรือ null หากช่วงอยู่นอกไฟล์
+     */
+    private static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.contains(",")) {
+            return new long[0];
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // bytes=-N คือ N byte สุดท้าย
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            }
+            if (start >= length || start > end) {
+                return null;
+            }
+            return new long[] { start, end };
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    // ไฟล์ตาม hash ไม่มีนามสกุล จึงดูจาก magic bytes
+    private static String contentType(Path file) throws IOException {
+        String type = Files.probeContentType(file);
+        if (type == null) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+                type = URLConnection.guessContentTypeFromStream(in);
+            }
+        }
+        return type != null ? type : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+}
@@ -2,7 +2,10 @@ package com.easyvan.van_booking_service.controller;
 
 import com.easyvan.van_booking_service.entity.Station;
 import com.easyvan.van_booking_service.repository.StationRepository;
+import com.easyvan.van_booking_service.service.CatalogSnapshotService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -13,15 +16,20 @@ import java.util.List;
 public class StationController {
 
     private final StationRepository stationRepository;
+    private final CatalogSnapshotService catalogSnapshotService;
 
     @Autowired
-    public StationController(StationRepository stationRepository) {
+    public StationController(StationRepository stationRepository, CatalogSnapshotService catalogSnapshotService) {
         this.stationRepository = stationRepository;
+        this.catalogSnapshotService = catalogSnapshotService;
     }
 
+    // สถานีทั้งหมด ส่งจาก snapshot ที่ serialize ไว้แล้ว (ETag / 304)
     @GetMapping
-    public List<Station> getAllStations() {
-        return stationRepository.findAll();
+    public ResponseEntity<byte[]> getAllStations(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return CatalogResponses.of(catalogSnapshotService.getStations(), ifNoneMatch, acceptEncoding);
     }
 
     @GetMapping("/province/{province}")
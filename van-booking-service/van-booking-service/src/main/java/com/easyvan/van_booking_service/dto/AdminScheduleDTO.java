@@ -0,0 +1,24 @@
+package com.easyvan.van_booking_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// แถวรอบรถของหน้าจัดการรอบรถ (admin) มีเฉพาะชื่อ/ทะเบียนที่ต้องแสดง ไม่มีข้อมูลบัญชีของคนขับ
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdminScheduleDTO {
+    private Long id;
+    private LocalDateTime departureTime;
+    private String status;
+    private Long routeId;
+    private String originStationName;
+    private String destinationStationName;
+    private Long driverId; // null หากยังไม่ได้มอบหมายคนขับ
+    private String driverName;
+    private Long vehicleId; // null หากยังไม่ได้ผูกรถ
+    private String vehiclePlate;
+}
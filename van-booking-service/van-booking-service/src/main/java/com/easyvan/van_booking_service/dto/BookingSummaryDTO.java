@@ -0,0 +1,24 @@
+package com.easyvan.van_booking_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// การจองหนึ่งรายการในหน้าประวัติการจองของผู้โดยสาร (เฉพาะข้อมูลที่หน้าจอแสดง ไม่มี entity ซ้อน)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingSummaryDTO {
+    private Long id;
+    private String status;
+    private Integer seatNumber;
+    private Double totalPrice;
+    private String pickupPoint;
+    private String dropoffPoint;
+    private Long scheduleId;
+    private LocalDateTime departureTime;
+    private String originStationName;
+    private String destinationStationName;
+}
@@ -0,0 +1,16 @@
+package com.easyvan.van_booking_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// หน้าหนึ่งของรายการแบบ keyset: ส่ง nextCursor กลับมาใน ?cursor= เพื่อขอหน้าถัดไป (null คือหน้าสุดท้าย)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor;
+}
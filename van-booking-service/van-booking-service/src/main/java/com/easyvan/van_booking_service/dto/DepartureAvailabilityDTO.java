@@ -0,0 +1,20 @@
+package com.easyvan.van_booking_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DepartureAvailabilityDTO {
+    private Long id; // ลำดับรอบในวันนั้น (เหมือน id ของ /api/schedules)
+    private Long scheduleId; // id ของรอบรถจริง หรือ null หากยังไม่มีผู้จอง
+    private LocalDateTime departureTime;
+    private String status;
+    private int capacity;
+    private int bookedSeats;
+    private int seatsRemaining;
+}
@@ -0,0 +1,20 @@
+package com.easyvan.van_booking_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// ข้อมูลคนขับรถที่หน้าจัดการของแอดมินใช้ (ไม่มีรหัสผ่านหรือ token รีเซ็ตรหัสผ่าน)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DriverDTO {
+    private Long id;
+    private String username;
+    private String fullName;
+    private String phoneNumber;
+    private String email;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,46 @@
+package com.easyvan.van_booking_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// สถานะและความคืบหน้าของงานนำเข้าคนขับรถจาก CSV (ดูผ่าน GET /api/admin/drivers/import/jobs/{jobId})
+@Data
+@NoArgsConstructor
+public class DriverImportJob {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCEEDED = "SUCCEEDED";
+    public static final String FAILED = "FAILED";
+
+    private String jobId;
+    private String fileName;
+    private String status;
+    private String message;
+    private long processedRows; // จำนวนแถวข้อมูลที่อ่านแล้ว (ไม่รวมหัวตาราง)
+    private long importedRows;
+    private long skippedRows;
+    private List<RowError> errors = new ArrayList<>();
+    private boolean errorsTruncated; // มีแถวที่ผิดพลาดมากกว่าที่เก็บไว้ใน errors
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    public boolean isFinished() {
+        return SUCCEEDED.equals(status) || FAILED.equals(status);
+    }
+
+    // แถวที่ไม่ได้นำเข้า: row คือลำดับแถวในไฟล์ (หัวตารางคือแถวที่ 1)
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long row;
+        private String username;
+        private String message;
+    }
+}
@@ -0,0 +1,16 @@
+package com.easyvan.van_booking_service.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.List;
+
+/**
+ * จองหลายที่นั่งในรอบเดียวกันพร้อมกัน ข้อมูลจุดรับ-ส่งและราคา (ต่อที่นั่ง) ใช้ร่วมกันทุกที่นั่ง
+ * ฟิลด์ seatNumber ของ {@link BookingRequest} จะไม่ถูกใช้
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class GroupBookingRequest extends BookingRequest {
+    private List<Integer> seatNumbers;
+}
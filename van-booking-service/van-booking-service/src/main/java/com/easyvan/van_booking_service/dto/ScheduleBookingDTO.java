@@ -0,0 +1,18 @@
+package com.easyvan.van_booking_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// ผู้โดยสารหนึ่งคนในรายชื่อของรอบรถสำหรับคนขับ
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleBookingDTO {
+    private Long id;
+    private Integer seatNumber;
+    private String status;
+    private String passengerName; // null หากจองโดยไม่ผูกบัญชีผู้ใช้
+    private String contactPhone;
+    private String pickupPoint;
+}
@@ -0,0 +1,19 @@
+package com.easyvan.van_booking_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// จำนวนที่นั่งที่ถูกจองของรอบรถจริงหนึ่งรอบ (ผลจาก aggregate query)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleOccupancyDTO {
+    private Long scheduleId;
+    private LocalDateTime departureTime;
+    private String status;
+    private Integer vehicleCapacity; // null หากยังไม่ได้ผูกรถ
+    private Long bookedSeats;
+}
@@ -0,0 +1,15 @@
+package com.easyvan.van_booking_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * สิทธิ์การถือครองที่นั่ง: owner คือผู้ถือ lock (request UUID ของการจอง)
+ * และ fencingToken เป็นเลขที่เพิ่มขึ้นเสมอ ใช้ตัดสินว่าผู้ถือรายใดใหม่กว่ากัน
+ */
+@Data
+@AllArgsConstructor
+public class SeatLease {
+    private String owner;
+    private Long fencingToken;
+}
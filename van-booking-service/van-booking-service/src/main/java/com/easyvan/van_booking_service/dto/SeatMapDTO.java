@@ -0,0 +1,19 @@
+package com.easyvan.van_booking_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatMapDTO {
+    private Long routeId;
+    private LocalDateTime departureTime;
+    private int capacity;
+    private List<Integer> heldSeats; // ที่นั่งที่กำลังรอชำระเงิน
+    private List<Integer> confirmedSeats; // ที่นั่งที่ชำระเงินแล้ว
+}
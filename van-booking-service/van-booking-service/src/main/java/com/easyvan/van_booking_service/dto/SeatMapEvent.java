@@ -0,0 +1,25 @@
+package com.easyvan.van_booking_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * การเปลี่ยนสถานะของที่นั่งหนึ่งที่นั่ง ส่งให้ผู้ที่เปิดดูผังที่นั่งผ่าน SSE
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatMapEvent {
+
+    public static final String HELD = "HELD";
+    public static final String CONFIRMED = "CONFIRMED";
+    public static final String FREE = "FREE";
+
+    private Long routeId;
+    private LocalDateTime departureTime;
+    private Integer seatNumber;
+    private String state; // HELD, CONFIRMED หรือ FREE
+}
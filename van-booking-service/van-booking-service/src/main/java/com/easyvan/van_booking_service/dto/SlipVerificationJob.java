@@ -0,0 +1,32 @@
+package com.easyvan.van_booking_service.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// สถานะของงานตรวจสอบสลิปหนึ่งงาน (ดูผ่าน GET /api/payments/verify-slip/jobs/{jobId})
+@Data
+@NoArgsConstructor
+public class SlipVerificationJob {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String VERIFYING = "VERIFYING";
+    public static final String RETRYING = "RETRYING"; // ระบบตรวจสอบสลิปไม่ตอบ รอลองใหม่
+    public static final String SUCCEEDED = "SUCCEEDED";
+    public static final String FAILED = "FAILED";
+
+    private String jobId;
+    private Long bookingId;
+    private String contentHash; // SHA-256 ของไฟล์สลิป
+    private String status;
+    private String message;
+    private int attempts;
+    private Slip2GoResponseDTO.Data transactionInfo;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    public boolean isFinished() {
+        return SUCCEEDED.equals(status) || FAILED.equals(status);
+    }
+}
@@ -1,16 +1,23 @@
 package com.easyvan.van_booking_service.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings", uniqueConstraints = @UniqueConstraint(name = "uq_bookings_transaction_id", columnNames = "transaction_id"))
 @Data
 public class Booking {
+
+    // สถานะที่ถือว่ายังครอบครองที่นั่งอยู่
+    public static final List<String> ACTIVE_STATUSES = List.of("PENDING", "CONFIRMED", "PICKED_UP");
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bookings_seq")
+    @SequenceGenerator(name = "bookings_seq", sequenceName = "bookings_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -50,8 +57,21 @@ public class Booking {
     private String remark;
 
     private String slipImageUrl;
+    // transRef จากสลิป สลิปหนึ่งใบยืนยันได้เพียงรายการเดียว (uq_bookings_transaction_id)
     private String transactionId;
 
+    // เจ้าของ lock ที่นั่งและ fencing token ล่าสุดที่ได้รับจากผังที่นั่ง
+    @JsonIgnore
+    @Column(name = "lock_owner", length = 64)
+    private String lockOwner;
+
+    @Column(name = "fencing_token")
+    private Long fencingToken;
+
+    // เวลาที่การถือครองที่นั่ง (PENDING) หมดอายุ หลังจากนี้ HoldExpirySweeper จะเปลี่ยนสถานะเป็น EXPIRED
+    @Column(name = "hold_expires_at")
+    private LocalDateTime holdExpiresAt;
+
     private LocalDateTime createdAt = LocalDateTime.now();
 
     public Route getRoute() {
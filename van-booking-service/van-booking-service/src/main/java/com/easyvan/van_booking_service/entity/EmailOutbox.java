@@ -0,0 +1,49 @@
+package com.easyvan.van_booking_service.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// อีเมลหนึ่งฉบับที่รอส่ง (transactional outbox) ส่งโดย EmailOutboxDispatcher
+@Entity
+@Table(name = "email_outbox")
+@Data
+public class EmailOutbox {
+
+    public static final String PENDING = "PENDING";
+    public static final String SENT = "SENT";
+    public static final String DEAD = "DEAD"; // ส่งไม่สำเร็จจนครบจำนวนครั้งแล้ว
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_outbox_seq")
+    @SequenceGenerator(name = "email_outbox_seq", sequenceName = "email_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String body;
+
+    @Column(nullable = false, length = 16)
+    private String status = PENDING;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+}
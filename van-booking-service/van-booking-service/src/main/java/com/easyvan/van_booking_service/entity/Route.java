@@ -2,13 +2,18 @@ package com.easyvan.van_booking_service.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "routes")
 @Data
 public class Route {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "routes_seq")
+    @SequenceGenerator(name = "routes_seq", sequenceName = "routes_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
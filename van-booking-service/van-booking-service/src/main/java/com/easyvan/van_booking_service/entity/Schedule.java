@@ -5,12 +5,14 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "schedules")
+@Table(name = "schedules", uniqueConstraints = @UniqueConstraint(name = "uq_schedules_route_departure", columnNames = {
+        "route_id", "departure_time" }))
 @Data
 public class Schedule {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "schedules_seq")
+    @SequenceGenerator(name = "schedules_seq", sequenceName = "schedules_seq", allocationSize = 50)
     private Long id;
 
     // เชื่อมโยงกับตารางเส้นทาง (Routes)
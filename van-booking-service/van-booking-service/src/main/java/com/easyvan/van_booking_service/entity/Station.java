@@ -2,14 +2,19 @@ package com.easyvan.van_booking_service.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "stations")
 @Data
 public class Station {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stations_seq")
+    @SequenceGenerator(name = "stations_seq", sequenceName = "stations_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -2,13 +2,19 @@ package com.easyvan.van_booking_service.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+// ชื่อ region ต้องไม่มีจุด Caffeine JCache จึงหาค่าใน application.conf เจอ
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "vehicles")
 @Table(name = "vehicles")
 @Data
 public class Vehicle {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "vehicles_seq")
+    @SequenceGenerator(name = "vehicles_seq", sequenceName = "vehicles_seq", allocationSize = 50)
     private Long id;
     private String plateNumber;
     private String model;
@@ -0,0 +1,11 @@
+package com.easyvan.van_booking_service.exception;
+
+/**
+ * คิวของการ hash รหัสผ่านเต็ม (เช่น ช่วงที่มีผู้เข้าสู่ระบบพร้อมกันจำนวนมาก) ตอบกลับเป็น 503 ให้ client ลองใหม่
+ */
+public class PasswordHashingOverloadedException extends RuntimeException {
+
+    public PasswordHashingOverloadedException(String message) {
+        super(message);
+    }
+}
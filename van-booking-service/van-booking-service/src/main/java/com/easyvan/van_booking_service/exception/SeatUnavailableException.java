@@ -0,0 +1,11 @@
+package com.easyvan.van_booking_service.exception;
+
+/**
+ * ที่นั่งถูกจองไปแล้ว (ตรวจพบจาก seat lock หรือ unique index ของฐานข้อมูล) ตอบกลับเป็น 409
+ */
+public class SeatUnavailableException extends RuntimeException {
+
+    public SeatUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.easyvan.van_booking_service.exception;
+
+/**
+ * เรียกระบบตรวจสอบสลิปไม่สำเร็จด้วยเหตุชั่วคราว (timeout, เชื่อมต่อไม่ได้, 5xx) ลองใหม่ได้
+ */
+public class SlipVerifierUnavailableException extends RuntimeException {
+
+    public SlipVerifierUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,22 +1,78 @@
 package com.easyvan.van_booking_service.repository;
 
+import com.easyvan.van_booking_service.dto.BookingSummaryDTO;
+import com.easyvan.van_booking_service.dto.ScheduleBookingDTO;
 import com.easyvan.van_booking_service.entity.Booking;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
     // ฟีเจอร์ดูประวัติการจอง: ค้นหาการจองทั้งหมดของข้าพเจ้า (User)
-    List<Booking> findByUserId(Long userId);
+    // อ่านเฉพาะคอลัมน์ที่หน้าจอใช้ใน query เดียว (ใช้ ix_bookings_user_id) ไม่โหลด entity ผู้ใช้/รถ/คนขับ
+    @Query("SELECT new com.easyvan.van_booking_service.dto.BookingSummaryDTO("
+            + "b.id, b.status, b.seatNumber, b.totalPrice, b.pickupPoint, b.dropoffPoint, "
+            + "s.id, s.departureTime, o.stationName, d.stationName) "
+            + "FROM Booking b JOIN b.schedule s JOIN s.route r "
+            + "LEFT JOIN r.originStation o LEFT JOIN r.destinationStation d "
+            + "WHERE b.user.id = :userId ORDER BY s.departureTime DESC, b.id DESC")
+    List<BookingSummaryDTO> findSummariesByUserId(@Param("userId") Long userId);
 
     // ตรวจสอบว่าที่นั่งในรอบรถนั้นๆ ถูกจองไปแล้วจริงๆ ใน DB หรือไม่
-    // (เพื่อความชัวร์จาก Redis)
+    // (ใช้ unique index ux_bookings_active_seat จึงไม่ต้อง scan ทั้งรอบ)
     boolean existsByScheduleIdAndSeatNumberAndStatus(Long scheduleId, Integer seatNumber, String status);
 
+    boolean existsByScheduleIdAndSeatNumberAndStatusIn(Long scheduleId, Integer seatNumber, List<String> statuses);
+
+    boolean existsByScheduleIdAndSeatNumberInAndStatusIn(Long scheduleId, List<Integer> seatNumbers,
+            List<String> statuses);
+
+    // ล็อกระดับ transaction ใน Postgres ด้วย key แบบ bigint (ปล่อยอัตโนมัติเมื่อ commit/rollback)
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryAdvisoryXactLock(@Param("key") long key);
+
+    // ต่อเวลาถือครองเฉพาะเมื่อยังเป็น PENDING อยู่ (กันการเขียนทับสถานะ EXPIRED ที่ HoldExpirySweeper เพิ่งตั้ง)
+    // และ fencing token ยังเป็นค่าที่ผู้เรียกอ่านไป (token ที่ไม่มีนับเป็น 0)
+    @Modifying
+    @Transactional
+    @Query("UPDATE Booking b SET b.holdExpiresAt = :expiresAt "
+            + "WHERE b.id = :id AND b.status = 'PENDING' AND COALESCE(b.fencingToken, 0) = :fence")
+    int extendPendingHold(@Param("id") Long id, @Param("expiresAt") LocalDateTime expiresAt,
+            @Param("fence") long fence);
+
+    // ยืนยันการชำระเงินเฉพาะเมื่อ fencing token ยังเป็นค่าที่ผู้เรียกใช้ยืนยันที่นั่ง
+    // (เช่น ไม่ถูกเลื่อนรอบซึ่งออก token ใหม่ไประหว่างนั้น)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Booking b SET b.status = 'CONFIRMED', b.slipImageUrl = :slipImageUrl, "
+            + "b.transactionId = :transactionId, b.holdExpiresAt = NULL "
+            + "WHERE b.id = :id AND COALESCE(b.fencingToken, 0) = :fence")
+    int confirmWithFence(@Param("id") Long id, @Param("slipImageUrl") String slipImageUrl,
+            @Param("transactionId") String transactionId, @Param("fence") long fence);
+
+    // ไฟล์สลิป (key ตาม hash) ที่ยังถูกอ้างถึงโดยการจองใดอยู่ ตรวจทีละชุด (index ix_bookings_slip_image_url)
+    @Query("SELECT DISTINCT b.slipImageUrl FROM Booking b WHERE b.slipImageUrl IN :slipImageUrls")
+    List<String> findReferencedSlipImages(@Param("slipImageUrls") Collection<String> slipImageUrls);
+
+    // transRef นี้ถูกใช้ยืนยันการจองอื่นไปแล้วหรือไม่ (ใช้ unique constraint uq_bookings_transaction_id)
+    boolean existsByTransactionIdAndIdNot(String transactionId, Long id);
+
     List<Booking> findByScheduleId(Long scheduleId);
 
+    // รายชื่อผู้โดยสารของรอบรถสำหรับคนขับ เรียงตามที่นั่ง (ใช้ ix_bookings_schedule_id)
+    @Query("SELECT new com.easyvan.van_booking_service.dto.ScheduleBookingDTO("
+            + "b.id, b.seatNumber, b.status, u.fullName, b.contactPhone, b.pickupPoint) "
+            + "FROM Booking b LEFT JOIN b.user u "
+            + "WHERE b.schedule.id = :scheduleId ORDER BY b.seatNumber")
+    List<ScheduleBookingDTO> findManifestByScheduleId(@Param("scheduleId") Long scheduleId);
+
     long countByScheduleId(Long scheduleId);
 
     // ค้นหาการจองทั้งหมดที่อยู่ในรอบรถที่ขับโดย driverId นี้
@@ -0,0 +1,9 @@
+package com.easyvan.van_booking_service.repository;
+
+import com.easyvan.van_booking_service.entity.EmailOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+}
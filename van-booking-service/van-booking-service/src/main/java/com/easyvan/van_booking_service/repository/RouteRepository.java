@@ -1,9 +1,26 @@
 package com.easyvan.van_booking_service.repository;
 
 import com.easyvan.van_booking_service.entity.Route;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import java.util.List;
 
 public interface RouteRepository extends JpaRepository<Route, Long> {
+    // ผลลัพธ์ถูกเก็บใน query cache และถูก invalidate อัตโนมัติเมื่อตารางมีการแก้ไขผ่าน Hibernate
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Route> findByIsActiveTrue();
+
+    // รายการสำหรับแอดมินแบบ keyset ตาม id สถานีต้นทาง/ปลายทางโหลดมาพร้อมกัน
+    @Query("SELECT r FROM Route r LEFT JOIN FETCH r.originStation LEFT JOIN FETCH r.destinationStation "
+            + "WHERE r.id > :afterId ORDER BY r.id")
+    List<Route> findPage(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT r FROM Route r LEFT JOIN FETCH r.originStation LEFT JOIN FETCH r.destinationStation "
+            + "WHERE r.isActive = :active AND r.id > :afterId ORDER BY r.id")
+    List<Route> findPageByActive(@Param("active") Boolean active, @Param("afterId") long afterId, Pageable pageable);
 }
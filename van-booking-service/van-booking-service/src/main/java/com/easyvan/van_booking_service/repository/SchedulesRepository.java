@@ -1,7 +1,13 @@
 package com.easyvan.van_booking_service.repository;
 
+import com.easyvan.van_booking_service.dto.AdminScheduleDTO;
+import com.easyvan.van_booking_service.dto.ScheduleOccupancyDTO;
 import com.easyvan.van_booking_service.entity.Schedule;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
 public interface SchedulesRepository extends JpaRepository<Schedule, Long> {
@@ -12,5 +18,65 @@ public interface SchedulesRepository extends JpaRepository<Schedule, Long> {
 
     java.util.Optional<Schedule> findByRouteIdAndDepartureTime(Long routeId, java.time.LocalDateTime departureTime);
 
+    // สร้างรอบรถถ้ายังไม่มี คืน id ของแถวที่สร้าง หรือ null หากมีผู้อื่นสร้างไว้แล้ว
+    // (อาศัย unique key uq_schedules_route_departure จึงไม่เกิดแถวซ้ำแม้สร้างพร้อมกัน)
+    @Transactional
+    @Query(value = "INSERT INTO schedules (route_id, departure_time, status, created_at) "
+            + "VALUES (:routeId, :departureTime, 'AVAILABLE', now()) "
+            + "ON CONFLICT (route_id, departure_time) DO NOTHING RETURNING id", nativeQuery = true)
+    Long insertIfAbsent(@Param("routeId") Long routeId,
+            @Param("departureTime") java.time.LocalDateTime departureTime);
+
+    // จำนวนที่นั่งที่ยัง active ของทุกรอบในช่วงเวลา ด้วย query เดียว (ใช้ ix_bookings_schedule_id)
+    @Query("SELECT new com.easyvan.van_booking_service.dto.ScheduleOccupancyDTO("
+            + "s.id, s.departureTime, s.status, v.capacity, COUNT(b.id)) "
+            + "FROM Schedule s LEFT JOIN s.vehicle v "
+            + "LEFT JOIN Booking b ON b.schedule = s AND b.status IN :statuses "
+            + "WHERE s.route.id = :routeId AND s.departureTime >= :from AND s.departureTime < :to "
+            + "GROUP BY s.id, s.departureTime, s.status, v.capacity")
+    List<ScheduleOccupancyDTO> findOccupancy(@Param("routeId") Long routeId,
+            @Param("from") java.time.LocalDateTime from,
+            @Param("to") java.time.LocalDateTime to,
+            @Param("statuses") List<String> statuses);
+
     List<Schedule> findByDriverId(Long driverId);
-}
\ No newline at end of file
+
+    String ADMIN_SCHEDULE_SELECT = "SELECT new com.easyvan.van_booking_service.dto.AdminScheduleDTO("
+            + "s.id, s.departureTime, s.status, r.id, o.stationName, d.stationName, "
+            + "u.id, u.fullName, v.id, v.plateNumber) "
+            + "FROM Schedule s JOIN s.route r LEFT JOIN r.originStation o LEFT JOIN r.destinationStation d "
+            + "LEFT JOIN s.driver u LEFT JOIN s.vehicle v ";
+
+    @Query(ADMIN_SCHEDULE_SELECT + "WHERE s.id = :id")
+    java.util.Optional<AdminScheduleDTO> findAdminView(@Param("id") Long id);
+
+    /**
+     * รอบรถในช่วงเวลา [from, to) เรียงตามเวลาออกเดินทางแล้ว id แบบ keyset: หน้าถัดไปเริ่มหลัง
+     * (afterTime, afterId) ของแถวสุดท้าย เงื่อนไข {@code departureTime >= :afterTime} ซ้ำกับ OR ด้านหลัง
+     * แต่ทำให้ฐานข้อมูลเริ่มอ่าน ix_schedules_departure_id จากตำแหน่งของ cursor ได้ทันที
+     * ชื่อสถานี คนขับ และทะเบียนรถ project มาใน query เดียวกัน
+     */
+    @Query(ADMIN_SCHEDULE_SELECT
+            + "WHERE s.departureTime >= :afterTime AND s.departureTime < :to "
+            + "AND (s.departureTime > :afterTime OR s.id > :afterId) "
+            + "AND (:status IS NULL OR s.status = :status) "
+            + "ORDER BY s.departureTime, s.id")
+    List<AdminScheduleDTO> findPage(@Param("to") java.time.LocalDateTime to,
+            @Param("afterTime") java.time.LocalDateTime afterTime,
+            @Param("afterId") long afterId,
+            @Param("status") String status,
+            Pageable pageable);
+
+    // เหมือน findPage แต่เฉพาะเส้นทางเดียว อ่านจาก uq_schedules_route_departure (route_id, departure_time)
+    @Query(ADMIN_SCHEDULE_SELECT
+            + "WHERE r.id = :routeId AND s.departureTime >= :afterTime AND s.departureTime < :to "
+            + "AND (s.departureTime > :afterTime OR s.id > :afterId) "
+            + "AND (:status IS NULL OR s.status = :status) "
+            + "ORDER BY s.departureTime, s.id")
+    List<AdminScheduleDTO> findPageByRoute(@Param("routeId") Long routeId,
+            @Param("to") java.time.LocalDateTime to,
+            @Param("afterTime") java.time.LocalDateTime afterTime,
+            @Param("afterId") long afterId,
+            @Param("status") String status,
+            Pageable pageable);
+}
@@ -1,9 +1,25 @@
 package com.easyvan.van_booking_service.repository;
 
 import com.easyvan.van_booking_service.entity.Station;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import java.util.List;
 
 public interface StationRepository extends JpaRepository<Station, Long> {
+    // ผลลัพธ์ถูกเก็บใน query cache และถูก invalidate อัตโนมัติเมื่อตารางมีการแก้ไขผ่าน Hibernate
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Station> findByProvince(String province);
+
+    // รายการสำหรับแอดมินแบบ keyset ตาม id
+    @Query("SELECT s FROM Station s WHERE s.id > :afterId ORDER BY s.id")
+    List<Station> findPage(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT s FROM Station s WHERE s.province = :province AND s.id > :afterId ORDER BY s.id")
+    List<Station> findPageByProvince(@Param("province") String province, @Param("afterId") long afterId,
+            Pageable pageable);
 }
@@ -1,8 +1,16 @@
 package com.easyvan.van_booking_service.repository;
 
+import com.easyvan.van_booking_service.dto.DriverDTO;
 import com.easyvan.van_booking_service.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -18,4 +26,33 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmailIgnoreCase(String email);
 
     Optional<User> findByResetPasswordToken(String token);
+
+    // รายการคนขับรถแบบ keyset (ใช้ ix_users_role_id) อ่านเฉพาะคอลัมน์ที่แสดง ไม่ดึงรหัสผ่านออกมา
+    @Query("SELECT new com.easyvan.van_booking_service.dto.DriverDTO("
+            + "u.id, u.username, u.fullName, u.phoneNumber, u.email, u.createdAt) "
+            + "FROM User u WHERE u.role = 'DRIVER' AND u.id > :afterId ORDER BY u.id")
+    List<DriverDTO> findDriverPage(@Param("afterId") long afterId, Pageable pageable);
+
+    // เหมือน findDriverPage แต่เฉพาะคนขับที่ชื่อ ชื่อผู้ใช้ หรืออีเมลตรงกับ pattern (ตัวพิมพ์เล็ก มี % แล้ว)
+    @Query("SELECT new com.easyvan.van_booking_service.dto.DriverDTO("
+            + "u.id, u.username, u.fullName, u.phoneNumber, u.email, u.createdAt) "
+            + "FROM User u WHERE u.role = 'DRIVER' AND u.id > :afterId "
+            + "AND (LOWER(u.fullName) LIKE :pattern OR LOWER(u.username) LIKE :pattern OR LOWER(u.email) LIKE :pattern) "
+            + "ORDER BY u.id")
+    List<DriverDTO> searchDriverPage(@Param("pattern") String pattern, @Param("afterId") long afterId,
+            Pageable pageable);
+
+    // ตรวจข้อมูลซ้ำทีละชุดตอนนำเข้าคนขับรถ (แทนการ query ทีละแถว)
+    @Query("SELECT u.username FROM User u WHERE u.username IN :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    // emails ต้องเป็นตัวพิมพ์ใหญ่แล้ว คืนค่าเป็นตัวพิมพ์ใหญ่
+    @Query("SELECT upper(u.email) FROM User u WHERE upper(u.email) IN :emails")
+    List<String> findExistingEmailsUpperCase(@Param("emails") Collection<String> emails);
+
+    // เปลี่ยน hash ของรหัสผ่านเฉพาะเมื่อยังเป็นค่าเดิม (ใช้ตอน rehash หลังเข้าสู่ระบบ)
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.id = :id AND u.password = :oldHash")
+    int replacePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
 }
\ No newline at end of file
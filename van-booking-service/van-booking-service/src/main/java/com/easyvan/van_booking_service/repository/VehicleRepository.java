@@ -1,7 +1,10 @@
 package com.easyvan.van_booking_service.repository;
 
 import com.easyvan.van_booking_service.entity.Vehicle;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,4 +12,8 @@ import java.util.List;
 @Repository
 public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
     List<Vehicle> findByOwnerId(Long ownerId);
+
+    // รายการสำหรับแอดมินแบบ keyset ตาม id
+    @Query("SELECT v FROM Vehicle v LEFT JOIN FETCH v.owner WHERE v.id > :afterId ORDER BY v.id")
+    List<Vehicle> findPage(@Param("afterId") long afterId, Pageable pageable);
 }
@@ -1,25 +1,27 @@
 package com.easyvan.van_booking_service.service;
 
+import com.easyvan.van_booking_service.dto.AdminScheduleDTO;
+import com.easyvan.van_booking_service.dto.CursorPage;
+import com.easyvan.van_booking_service.dto.DriverDTO;
+import com.easyvan.van_booking_service.entity.Booking;
 import com.easyvan.van_booking_service.entity.User;
 import com.easyvan.van_booking_service.entity.Station;
 import com.easyvan.van_booking_service.entity.Route;
 import com.easyvan.van_booking_service.entity.Schedule;
 import com.easyvan.van_booking_service.entity.Vehicle;
+import com.easyvan.van_booking_service.repository.BookingRepository;
 import com.easyvan.van_booking_service.repository.UserRepository;
 import com.easyvan.van_booking_service.repository.StationRepository;
 import com.easyvan.van_booking_service.repository.RouteRepository;
 import com.easyvan.van_booking_service.repository.SchedulesRepository;
 import com.easyvan.van_booking_service.repository.VehicleRepository;
-import com.opencsv.CSVReader;
+import jakarta.persistence.EntityManagerFactory;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
@@ -27,13 +29,21 @@ import java.util.List;
 public class AdminService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final StationRepository stationRepository;
     private final RouteRepository routeRepository;
     private final SchedulesRepository schedulesRepository;
     private final VehicleRepository vehicleRepository;
-
-    public User createDriver(User driverData) {
+    private final SeatMapService seatMapService;
+    private final ScheduleResolver scheduleResolver;
+    private final ScheduleService scheduleService;
+    private final EntityManagerFactory entityManagerFactory;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final UserStatusCache userStatusCache;
+    private final BookingRepository bookingRepository;
+    private final FileStorageService fileStorageService;
+
+    public DriverDTO createDriver(User driverData) {
         if (userRepository.existsByUsername(driverData.getUsername())) {
             throw new RuntimeException("ชื่อผู้ใช้งานนี้มีอยู่ในระบบแล้ว");
         }
@@ -41,80 +51,60 @@ public class AdminService {
             throw new RuntimeException("อีเมลนี้ถูกใช้งานแล้ว");
         }
         driverData.setRole("DRIVER");
-        driverData.setPassword(passwordEncoder.encode(driverData.getPassword()));
-        return userRepository.save(driverData);
-    }
-
-    public List<User> importDriversFromCsv(MultipartFile file) {
-        List<User> users = new ArrayList<>();
-        try (Reader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), "UTF-8"))) {
-            CSVReader csvReader = new CSVReader(reader);
-            String[] nextRecord;
-            boolean firstRow = true;
-
-            while ((nextRecord = csvReader.readNext()) != null) {
-                if (firstRow) { // Skip header
-                    firstRow = false;
-                    continue;
-                }
-
-                // Format: username, email, password, fullName, phoneNumber
-                if (nextRecord.length >= 5) {
-                    String username = nextRecord[0].trim();
-                    String email = nextRecord[1].trim();
-
-                    if (userRepository.existsByUsername(username)
-                            || userRepository.findByEmailIgnoreCase(email).isPresent())
-                        continue;
-
-                    User user = new User();
-                    user.setUsername(username);
-                    user.setEmail(email);
-                    user.setPassword(passwordEncoder.encode(nextRecord[2].trim()));
-                    user.setFullName(nextRecord[3].trim());
-                    user.setPhoneNumber(nextRecord[4].trim());
-                    user.setRole("DRIVER");
-                    users.add(user);
-                }
-            }
-            return userRepository.saveAll(users);
-        } catch (Exception e) {
-            throw new RuntimeException("เกิดข้อผิดพลาดในการประมวลผลไฟล์ CSV: " + e.getMessage());
-        }
+        driverData.setPassword(passwordHashingService.encode(driverData.getPassword()));
+        return toDriverDTO(userRepository.save(driverData));
     }
 
-    public User updateDriver(Long id, User driverData) {
+    public DriverDTO updateDriver(Long id, User driverData) {
         User driver = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("ไม่พบข้อมูลคนขับรถ"));
 
         driver.setFullName(driverData.getFullName());
         driver.setPhoneNumber(driverData.getPhoneNumber());
+        userStatusCache.evict(driver.getEmail());
         driver.setEmail(driverData.getEmail());
 
         if (driverData.getPassword() != null && !driverData.getPassword().isEmpty()) {
-            driver.setPassword(passwordEncoder.encode(driverData.getPassword()));
+            driver.setPassword(passwordHashingService.encode(driverData.getPassword()));
         }
 
-        return userRepository.save(driver);
+        return toDriverDTO(userRepository.save(driver));
     }
 
     public void deleteDriver(Long id) {
+        userRepository.findById(id).ifPresent(driver -> userStatusCache.evict(driver.getEmail()));
         userRepository.deleteById(id);
     }
 
-    public List<User> getAllDrivers() {
-        return userRepository.findAll().stream()
-                .filter(u -> "DRIVER".equals(u.getRole()))
-                .toList();
+    // รายการแบบแบ่งหน้าด้วย cursor (ดู PageCursors) แต่ละคำขออ่านไม่เกิน limit + 1 แถวเสมอ
+    // query ที่ไม่ระบุหรือว่างหมายถึงคนขับทั้งหมด
+    public CursorPage<DriverDTO> getDrivers(String query, String cursor, int limit) {
+        long afterId = PageCursors.idAfter(cursor);
+        List<DriverDTO> rows = query == null || query.isBlank()
+                ? userRepository.findDriverPage(afterId, PageCursors.fetchSize(limit))
+                : userRepository.searchDriverPage("%" + query.trim().toLowerCase() + "%", afterId,
+                        PageCursors.fetchSize(limit));
+        return PageCursors.page(rows, limit, driver -> PageCursors.ofId(driver.getId()));
+    }
+
+    private static DriverDTO toDriverDTO(User user) {
+        return new DriverDTO(user.getId(), user.getUsername(), user.getFullName(), user.getPhoneNumber(),
+                user.getEmail(), user.getCreatedAt());
     }
 
     // --- Station Management ---
     public Station createStation(Station station) {
-        return stationRepository.save(station);
+        Station saved = stationRepository.save(station);
+        catalogSnapshotService.bumpVersion();
+        return saved;
     }
 
-    public List<Station> getAllStations() {
-        return stationRepository.findAll();
+    public CursorPage<Station> getStations(String province, String cursor, int limit) {
+        long afterId = PageCursors.idAfter(cursor);
+        List<Station> rows = province == null
+                ? stationRepository.findPage(afterId, PageCursors.fetchSize(limit))
+                : stationRepository.findPageByProvince(province, afterId, PageCursors.fetchSize(limit));
+        return PageCursors.page(rows, limit, station -> PageCursors.ofId(station.getId()));
     }
 
     public Station updateStation(Long id, Station data) {
@@ -123,20 +113,29 @@ public class AdminService {
         station.setStationName(data.getStationName());
         station.setProvince(data.getProvince());
         station.setIsMainHub(data.getIsMainHub());
-        return stationRepository.save(station);
+        Station saved = stationRepository.save(station);
+        evictReferenceData(Station.class, id);
+        return saved;
     }
 
     public void deleteStation(Long id) {
         stationRepository.deleteById(id);
+        evictReferenceData(Station.class, id);
     }
 
     // --- Route Management ---
     public Route createRoute(Route route) {
-        return routeRepository.save(route);
+        Route saved = routeRepository.save(route);
+        catalogSnapshotService.bumpVersion();
+        return saved;
     }
 
-    public List<Route> getAllRoutes() {
-        return routeRepository.findAll();
+    public CursorPage<Route> getRoutes(Boolean active, String cursor, int limit) {
+        long afterId = PageCursors.idAfter(cursor);
+        List<Route> rows = active == null
+                ? routeRepository.findPage(afterId, PageCursors.fetchSize(limit))
+                : routeRepository.findPageByActive(active, afterId, PageCursors.fetchSize(limit));
+        return PageCursors.page(rows, limit, route -> PageCursors.ofId(route.getId()));
     }
 
     public Route updateRoute(Long id, Route data) {
@@ -147,27 +146,100 @@ public class AdminService {
         route.setBasePrice(data.getBasePrice());
         route.setEstimatedDuration(data.getEstimatedDuration());
         route.setIsActive(data.getIsActive());
-        return routeRepository.save(route);
+        Route saved = routeRepository.save(route);
+        evictReferenceData(Route.class, id);
+        scheduleService.evictTimetables(id);
+        return saved;
     }
 
     public void deleteRoute(Long id) {
         routeRepository.deleteById(id);
+        evictReferenceData(Route.class, id);
+        scheduleService.evictTimetables(id);
     }
 
     // --- Schedule (Assignment) Management ---
-    public Schedule createSchedule(Schedule schedule) {
-        return schedulesRepository.save(schedule);
-    }
-
-    public List<Schedule> getAllSchedules() {
-        return schedulesRepository.findAll();
+    public AdminScheduleDTO createSchedule(Schedule schedule) {
+        // รอบของเส้นทาง/เวลานี้อาจถูกสร้างไว้แล้วจากการจองของผู้โดยสาร ให้มอบหมายลงแถวเดิม (unique key)
+        if (schedule.getId() == null && schedule.getRoute() != null && schedule.getRoute().getId() != null) {
+            schedulesRepository.findByRouteIdAndDepartureTime(schedule.getRoute().getId(), schedule.getDepartureTime())
+                    .ifPresent(existing -> {
+                        schedule.setId(existing.getId());
+                        schedule.setCreatedAt(existing.getCreatedAt());
+                    });
+        }
+        Schedule saved = schedulesRepository.save(schedule);
+        // ความจุของรถที่ผูกกับรอบอาจเปลี่ยน ให้โหลดผังที่นั่งใหม่
+        if (saved.getRoute() != null && saved.getRoute().getId() != null) {
+            seatMapService.evict(saved.getRoute().getId(), saved.getDepartureTime());
+            scheduleResolver.evict(saved.getRoute().getId(), saved.getDepartureTime());
+        }
+        return schedulesRepository.findAdminView(saved.getId())
+                .orElseThrow(() -> new RuntimeException("ไม่พบข้อมูลรอบรถ"));
+    }
+
+    // from/to ที่ไม่ระบุหมายถึงไม่จำกัดช่วง
+    public CursorPage<AdminScheduleDTO> getSchedules(LocalDateTime from, LocalDateTime to, Long routeId, String status,
+            String cursor, int limit) {
+        LocalDateTime start = from != null ? from : LocalDateTime.of(1970, 1, 1, 0, 0);
+        LocalDateTime end = to != null ? to : LocalDateTime.of(9999, 1, 1, 0, 0);
+        PageCursors.TimeAndId after = PageCursors.timeAndIdAfter(cursor);
+        // cursor ที่อยู่ก่อน from ให้เริ่มที่ from แทน
+        boolean seek = after != null && !after.time().isBefore(start);
+        LocalDateTime afterTime = seek ? after.time() : start;
+        long afterId = seek ? after.id() : 0L;
+        List<AdminScheduleDTO> rows = routeId == null
+                ? schedulesRepository.findPage(end, afterTime, afterId, status, PageCursors.fetchSize(limit))
+                : schedulesRepository.findPageByRoute(routeId, end, afterTime, afterId, status,
+                        PageCursors.fetchSize(limit));
+        return PageCursors.page(rows, limit,
+                schedule -> PageCursors.ofTimeAndId(schedule.getDepartureTime(), schedule.getId()));
     }
 
     public void deleteSchedule(Long id) {
         schedulesRepository.deleteById(id);
+        scheduleResolver.evictById(id);
+    }
+
+    public CursorPage<Vehicle> getVehicles(String cursor, int limit) {
+        List<Vehicle> rows = vehicleRepository.findPage(PageCursors.idAfter(cursor), PageCursors.fetchSize(limit));
+        return PageCursors.page(rows, limit, vehicle -> PageCursors.ofId(vehicle.getId()));
+    }
+
+    // ไฟล์สลิปของการจอง สำหรับให้แอดมินตรวจสอบย้อนหลัง
+    public Path getSlipFile(Long bookingId) {
+        Booking booking = bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new RuntimeException("ไม่พบข้อมูลการจอง"));
+        if (booking.getSlipImageUrl() == null) {
+            throw new RuntimeException("การจองนี้ยังไม่มีสลิปการชำระเงิน");
+        }
+        Path file = fileStorageService.resolve(booking.getSlipImageUrl());
+        if (!Files.isReadable(file)) {
+            throw new RuntimeException("ไม่พบไฟล์สลิปของการจองนี้");
+        }
+        return file;
+    }
+
+    // รูปย่อของสลิป (มีเฉพาะสลิปที่บันทึกหลังเปิดใช้การย่อรูป)
+    public Path getSlipThumbnail(Long bookingId) {
+        String key = getSlipFile(bookingId).getFileName().toString();
+        Path thumbnail;
+        try {
+            thumbnail = fileStorageService.resolveThumbnail(key);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("สลิปนี้ไม่มีรูปย่อ");
+        }
+        if (!Files.isReadable(thumbnail)) {
+            throw new RuntimeException("สลิปนี้ไม่มีรูปย่อ");
+        }
+        return thumbnail;
     }
 
-    public List<Vehicle> getAllVehicles() {
-        return vehicleRepository.findAll();
+    // ล้างข้อมูลอ้างอิงออกจาก second-level cache, query cache และ catalog snapshot ทันทีที่แอดมินแก้ไข/ลบ
+    // (ครอบคลุมกรณีที่แถวถูกแก้นอก session ปัจจุบัน ซึ่ง Hibernate ไม่รู้)
+    private void evictReferenceData(Class<?> entityClass, Long id) {
+        entityManagerFactory.getCache().evict(entityClass, id);
+        entityManagerFactory.unwrap(org.hibernate.SessionFactory.class).getCache().evictDefaultQueryRegion();
+        catalogSnapshotService.bumpVersion();
     }
 }
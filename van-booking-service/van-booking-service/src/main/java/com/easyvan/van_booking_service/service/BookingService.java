@@ -1,120 +1,202 @@
 package com.easyvan.van_booking_service.service;
 
 import com.easyvan.van_booking_service.dto.BookingRequest;
+import com.easyvan.van_booking_service.dto.GroupBookingRequest;
+import com.easyvan.van_booking_service.dto.SeatLease;
+import com.easyvan.van_booking_service.dto.SeatMapDTO;
+import com.easyvan.van_booking_service.dto.SeatMapEvent;
 import com.easyvan.van_booking_service.entity.Booking;
 import com.easyvan.van_booking_service.entity.Schedule;
-import com.easyvan.van_booking_service.entity.Route;
+import com.easyvan.van_booking_service.entity.User;
+import com.easyvan.van_booking_service.exception.SeatUnavailableException;
 import com.easyvan.van_booking_service.repository.BookingRepository;
-import com.easyvan.van_booking_service.repository.RouteRepository;
-import com.easyvan.van_booking_service.repository.SchedulesRepository;
 import com.easyvan.van_booking_service.repository.UserRepository;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import java.time.Duration;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 @Service
 public class BookingService {
 
+    private static final String SEAT_TAKEN_MESSAGE = "ที่นั่งนี้มีผู้ใช้งานท่านอื่นกำลังดำเนินการจองอยู่ หรือไม่ว่างในขณะนี้";
+
     private final BookingRepository bookingRepository;
-    private final SchedulesRepository schedulesRepository;
-    private final RouteRepository routeRepository;
+    private final ScheduleResolver scheduleResolver;
     private final UserRepository userRepository;
-    private final StringRedisTemplate redisTemplate;
+    private final SeatMapService seatMapService;
+    private final SeatLockService seatLockService;
+    private final SeatMapEventBroker seatMapEventBroker;
+    private final EmailService emailService;
+    private final int maxGroupSize;
 
     public BookingService(BookingRepository bookingRepository,
-            SchedulesRepository schedulesRepository,
-            RouteRepository routeRepository,
+            ScheduleResolver scheduleResolver,
             UserRepository userRepository,
-            StringRedisTemplate redisTemplate) {
+            SeatMapService seatMapService,
+            SeatLockService seatLockService,
+            SeatMapEventBroker seatMapEventBroker,
+            EmailService emailService,
+            @Value("${booking.max-group-size:10}") int maxGroupSize) {
         this.bookingRepository = bookingRepository;
-        this.schedulesRepository = schedulesRepository;
-        this.routeRepository = routeRepository;
+        this.scheduleResolver = scheduleResolver;
         this.userRepository = userRepository;
-        this.redisTemplate = redisTemplate;
+        this.seatMapService = seatMapService;
+        this.seatLockService = seatLockService;
+        this.seatMapEventBroker = seatMapEventBroker;
+        this.emailService = emailService;
+        this.maxGroupSize = maxGroupSize;
+    }
+
+    public SeatMapDTO getSeatMap(Long routeId, LocalDateTime departureTime) {
+        return seatMapService.read(routeId, departureTime);
     }
 
+    public List<Integer> getBookedSeats(Long routeId, LocalDateTime departureTime) {
+        SeatMapDTO seatMap = seatMapService.read(routeId, departureTime);
+        List<Integer> seats = new ArrayList<>(seatMap.getHeldSeats());
+        seats.addAll(seatMap.getConfirmedSeats());
+        seats.sort(null);
+        return seats;
+    }
+
+    @Transactional
     public String reserveSeatWithLock(BookingRequest request) {
         // 1. หาหรือสร้าง Schedule จริงในฐานข้อมูลตาม Route และ เวลาที่เลือก (ใช้
         // Repository แทน findAll)
-        Schedule schedule = schedulesRepository
-                .findByRouteIdAndDepartureTime(request.getRouteId(), request.getDepartureTime())
-                .orElseGet(() -> {
-                    Route route = routeRepository.findById(request.getRouteId())
-                            .orElseThrow(() -> new RuntimeException("ไม่พบเส้นทางที่ระบุ"));
-                    Schedule newSch = new Schedule();
-                    newSch.setRoute(route);
-                    newSch.setDepartureTime(request.getDepartureTime());
-                    newSch.setStatus("AVAILABLE");
-                    return schedulesRepository.save(newSch);
-                });
-
-        // 2. จัดการเรื่อง Lock ใน Redis (พร้อมระบบ Fallback หากไม่มี Redis)
-        String lockKey = "lock:seat:" + schedule.getId() + ":" + request.getSeatNumber();
-        boolean isLocked = false;
+        Schedule schedule = findOrCreateSchedule(request.getRouteId(), request.getDepartureTime());
 
-        try {
-            Boolean lockResult = redisTemplate.opsForValue()
-                    .setIfAbsent(lockKey, "LOCKED", Duration.ofMinutes(10));
-            isLocked = Boolean.TRUE.equals(lockResult);
-        } catch (Exception e) {
-            // Log warning (could use a logger here)
-            // Fallback: ตรวจสอบจากตาราง bookings (เช็คทั้ง CONFIRMED และ PENDING)
-            List<Booking> existingBookings = bookingRepository.findByScheduleId(schedule.getId());
-            boolean isSeatTaken = existingBookings.stream()
-                    .anyMatch(b -> b.getSeatNumber().equals(request.getSeatNumber()) &&
-                            ("CONFIRMED".equals(b.getStatus()) || "PENDING".equals(b.getStatus())));
-            isLocked = !isSeatTaken;
-        }
+        // 2. ถือครองที่นั่งผ่าน SeatLockStrategy ที่ตั้งค่าไว้ (Redis เป็นหลัก และสลับไปใช้ Postgres เมื่อ Redis ล่ม)
+        // owner ของ lock คือ request UUID เพื่อให้ปล่อย/ยืนยันที่นั่งได้เฉพาะผู้ที่ถือครองจริง
+        String owner = UUID.randomUUID().toString();
+        SeatLease lease = seatLockService.acquire(schedule, request.getSeatNumber(), owner);
+        boolean isLocked = lease != null;
 
         if (isLocked) {
             try {
-                Booking booking = new Booking();
-                booking.setSchedule(schedule);
-                booking.setSeatNumber(request.getSeatNumber());
-                booking.setPickupPoint(request.getPickupPoint());
-                booking.setPickupLat(request.getPickupLat());
-                booking.setPickupLng(request.getPickupLng());
-                booking.setDropoffPoint(request.getDropoffPoint());
-                booking.setDropoffLat(request.getDropoffLat());
-                booking.setDropoffLng(request.getDropoffLng());
-                booking.setContactPhone(request.getContactPhone());
-                booking.setRemark(request.getRemark());
-                booking.setTotalPrice(request.getTotalPrice());
-                booking.setStatus("PENDING");
-
-                if (request.getUserId() != null) {
-                    userRepository.findById(request.getUserId()).ifPresent(booking::setUser);
-                }
-
-                bookingRepository.save(booking);
+                User user = request.getUserId() != null ? userRepository.findById(request.getUserId()).orElse(null)
+                        : null;
+                Booking booking = newBooking(request, schedule, request.getSeatNumber(), lease, user);
+
+                // flush ทันทีเพื่อให้ unique index ของที่นั่งตรวจสอบภายใน try นี้
+                bookingRepository.saveAndFlush(booking);
+                seatMapEventBroker.publish(schedule, request.getSeatNumber(), SeatMapEvent.HELD);
                 return "จองสำเร็จ:" + booking.getId();
+            } catch (DataIntegrityViolationException e) {
+                releaseSeat(schedule, request.getSeatNumber(), owner);
+                throw new SeatUnavailableException(SEAT_TAKEN_MESSAGE);
             } catch (Exception e) {
-                redisTemplate.delete(lockKey);
+                releaseSeat(schedule, request.getSeatNumber(), owner);
                 throw new RuntimeException("เกิดข้อผิดพลาดในการบันทึกข้อมูลการจอง: " + e.getMessage());
             }
         } else {
-            return "ที่นั่งนี้มีผู้ใช้งานท่านอื่นกำลังดำเนินการจองอยู่ หรือไม่ว่างในขณะนี้";
+            return SEAT_TAKEN_MESSAGE;
+        }
+    }
+
+    /**
+     * จองหลายที่นั่งในรอบเดียวกันแบบ all-or-nothing: ถือครองทุกที่นั่งด้วยการเรียก lock ครั้งเดียว
+     * และบันทึกการจองทั้งหมดใน transaction เดียว หากที่นั่งใดไม่ว่างจะไม่มีการจองเกิดขึ้นเลย
+     */
+    @Transactional
+    public List<Long> reserveGroup(GroupBookingRequest request) {
+        List<Integer> seatNumbers = request.getSeatNumbers();
+        if (seatNumbers == null || seatNumbers.isEmpty()) {
+            throw new RuntimeException("กรุณาเลือกที่นั่งอย่างน้อยหนึ่งที่นั่ง");
+        }
+        if (seatNumbers.size() > maxGroupSize) {
+            throw new RuntimeException("จองได้สูงสุด " + maxGroupSize + " ที่นั่งต่อครั้ง");
+        }
+        if (seatNumbers.stream().distinct().count() != seatNumbers.size()) {
+            throw new RuntimeException("มีหมายเลขที่นั่งซ้ำกัน");
+        }
+
+        Schedule schedule = findOrCreateSchedule(request.getRouteId(), request.getDepartureTime());
+
+        String owner = UUID.randomUUID().toString();
+        List<SeatLease> leases = seatLockService.acquireAll(schedule, seatNumbers, owner);
+        if (leases == null) {
+            throw new SeatUnavailableException("มีที่นั่งบางที่นั่งไม่ว่างแล้ว กรุณาเลือกที่นั่งใหม่");
+        }
+
+        try {
+            User user = request.getUserId() != null ? userRepository.findById(request.getUserId()).orElse(null)
+                    : null;
+            List<Booking> bookings = new ArrayList<>();
+            for (int i = 0; i < seatNumbers.size(); i++) {
+                bookings.add(newBooking(request, schedule, seatNumbers.get(i), leases.get(i), user));
+            }
+            bookingRepository.saveAllAndFlush(bookings);
+            seatNumbers.forEach(seat -> seatMapEventBroker.publish(schedule, seat, SeatMapEvent.HELD));
+            return bookings.stream().map(Booking::getId).toList();
+        } catch (DataIntegrityViolationException e) {
+            seatNumbers.forEach(seat -> releaseSeat(schedule, seat, owner));
+            throw new SeatUnavailableException("มีที่นั่งบางที่นั่งไม่ว่างแล้ว กรุณาเลือกที่นั่งใหม่");
+        } catch (RuntimeException e) {
+            seatNumbers.forEach(seat -> releaseSeat(schedule, seat, owner));
+            throw new RuntimeException("เกิดข้อผิดพลาดในการบันทึกข้อมูลการจอง: " + e.getMessage());
         }
     }
 
+    // อีเมลยืนยันถูกบันทึกลง outbox ใน transaction เดียวกับการยืนยันการจอง
+    @Transactional
     public void confirmPayment(Long bookingId, String slipImageUrl, String transactionId) {
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new RuntimeException("ไม่พบข้อมูลการจอง"));
 
-        booking.setSlipImageUrl(slipImageUrl);
-        booking.setTransactionId(transactionId);
-        booking.setStatus("CONFIRMED");
-        bookingRepository.save(booking);
+        // ยืนยันที่นั่งเฉพาะเมื่อยังเป็นเจ้าของ lock อยู่ (หรือที่นั่งยังว่าง) ป้องกันการยืนยันทับผู้จองรายใหม่
+        boolean confirmed;
+        try {
+            confirmed = seatLockService.confirm(booking.getSchedule(), booking.getSeatNumber(),
+                    SeatMapService.leaseOf(booking));
+        } catch (DataAccessException e) {
+            System.err.println("Warning: seat lock unavailable during payment confirmation: " + e.getMessage());
+            confirmed = true;
+        }
+        if (!confirmed) {
+            throw new RuntimeException("หมดเวลาการถือครองที่นั่ง และที่นั่งนี้ถูกผู้ใช้งานท่านอื่นจองไปแล้ว");
+        }
 
+        long fence = booking.getFencingToken() != null ? booking.getFencingToken() : 0L;
         try {
-            String lockKey = "lock:seat:" + booking.getSchedule().getId() + ":" + booking.getSeatNumber();
-            redisTemplate.delete(lockKey);
-        } catch (Exception e) {
-            System.err.println("Warning: Redis unavailable during payment confirmation: " + e.getMessage());
+            // การจองที่ EXPIRED แล้วจะยืนยันได้เฉพาะเมื่อยังไม่มีผู้อื่นจองที่นั่งนั้น (unique index)
+            if (bookingRepository.confirmWithFence(bookingId, slipImageUrl, transactionId, fence) == 0) {
+                throw new SeatUnavailableException("การจองถูกเปลี่ยนแปลงระหว่างยืนยันการชำระเงิน กรุณาลองใหม่อีกครั้ง");
+            }
+        } catch (DataIntegrityViolationException e) {
+            if (String.valueOf(e.getMostSpecificCause().getMessage()).contains("uq_bookings_transaction_id")) {
+                throw new RuntimeException("สลิปนี้ถูกใช้ชำระเงินสำหรับการจองอื่นไปแล้ว");
+            }
+            throw new SeatUnavailableException("หมดเวลาการถือครองที่นั่ง และที่นั่งนี้ถูกผู้ใช้งานท่านอื่นจองไปแล้ว");
+        }
+        booking = bookingRepository.findById(bookingId).orElseThrow();
+        emailService.sendBookingConfirmedEmail(booking);
+        seatMapEventBroker.publish(booking.getSchedule(), booking.getSeatNumber(), SeatMapEvent.CONFIRMED);
+    }
+
+    public void extendHold(Long bookingId) {
+        Booking booking = bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new RuntimeException("ไม่พบข้อมูลการจอง"));
+
+        if (!"PENDING".equals(booking.getStatus())) {
+            throw new RuntimeException("ต่อเวลาได้เฉพาะรายการที่รอชำระเงินเท่านั้น");
+        }
+        SeatLease lease = SeatMapService.leaseOf(booking);
+        if (!seatLockService.extend(booking.getSchedule(), booking.getSeatNumber(), lease)) {
+            throw new RuntimeException("หมดเวลาการถือครองที่นั่งแล้ว กรุณาทำรายการจองใหม่");
+        }
+        if (bookingRepository.extendPendingHold(bookingId, LocalDateTime.now().plus(seatMapService.getHoldTtl()),
+                lease.getFencingToken() != null ? lease.getFencingToken() : 0L) == 0) {
+            throw new RuntimeException("หมดเวลาการถือครองที่นั่งแล้ว กรุณาทำรายการจองใหม่");
         }
     }
 
+    @Transactional
     public void cancelBooking(Long bookingId) {
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new RuntimeException("ไม่พบข้อมูลการจอง"));
@@ -125,15 +207,13 @@ public class BookingService {
 
         booking.setStatus("CANCELLED");
         bookingRepository.save(booking);
+        emailService.sendBookingCancelledEmail(booking);
 
-        try {
-            String lockKey = "lock:seat:" + booking.getSchedule().getId() + ":" + booking.getSeatNumber();
-            redisTemplate.delete(lockKey);
-        } catch (Exception e) {
-            System.err.println("Warning: Redis unavailable during booking cancellation: " + e.getMessage());
-        }
+        releaseSeat(booking.getSchedule(), booking.getSeatNumber(), SeatMapService.ownerOf(booking));
+        seatMapEventBroker.publish(booking.getSchedule(), booking.getSeatNumber(), SeatMapEvent.FREE);
     }
 
+    @Transactional
     public void rescheduleBooking(Long bookingId, java.time.LocalDateTime newDepartureTime) {
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new RuntimeException("ไม่พบข้อมูลการจอง"));
@@ -143,37 +223,66 @@ public class BookingService {
         }
 
         // 1. Find or create new Schedule
-        Schedule newSchedule = schedulesRepository
-                .findByRouteIdAndDepartureTime(booking.getSchedule().getRoute().getId(), newDepartureTime)
-                .orElseGet(() -> {
-                    Route route = routeRepository.findById(booking.getSchedule().getRoute().getId())
-                            .orElseThrow(() -> new RuntimeException("ไม่พบเส้นทางที่ระบุ"));
-                    Schedule newSch = new Schedule();
-                    newSch.setRoute(route);
-                    newSch.setDepartureTime(newDepartureTime);
-                    newSch.setStatus("AVAILABLE");
-                    return schedulesRepository.save(newSch);
-                });
-
-        // 2. Check availability on new schedule (same seat)
-        boolean isSeatTaken = bookingRepository.findByScheduleId(newSchedule.getId()).stream()
-                .anyMatch(b -> b.getSeatNumber().equals(booking.getSeatNumber()) &&
-                        ("CONFIRMED".equals(b.getStatus()) || "PENDING".equals(b.getStatus())));
+        Schedule newSchedule = findOrCreateSchedule(booking.getSchedule().getRoute().getId(), newDepartureTime);
+
+        // 2. Move the seat to the new schedule atomically (same seat)
+        SeatLease lease = seatLockService.move(booking.getSchedule(), newSchedule, booking.getSeatNumber(),
+                SeatMapService.ownerOf(booking));
+        boolean isSeatTaken = lease == null;
 
         if (isSeatTaken) {
-            throw new RuntimeException("ที่นั่งเดิมไม่ว่างในรอบเวลาใหม่ กรุณาเลือกที่นั่งอื่นหรือรอบเวลาอื่น");
+            throw new SeatUnavailableException("ที่นั่งเดิมไม่ว่างในรอบเวลาใหม่ กรุณาเลือกที่นั่งอื่นหรือรอบเวลาอื่น");
         }
 
         // 3. Update Booking
-        // Unlock old seat
+        booking.setLockOwner(lease.getOwner());
+        booking.setFencingToken(lease.getFencingToken());
+        Schedule oldSchedule = booking.getSchedule();
+        booking.setSchedule(newSchedule);
         try {
-            String oldLockKey = "lock:seat:" + booking.getSchedule().getId() + ":" + booking.getSeatNumber();
-            redisTemplate.delete(oldLockKey);
-        } catch (Exception e) {
-            System.err.println("Warning: Redis unavailable during rescheduling (unlock old): " + e.getMessage());
+            bookingRepository.saveAndFlush(booking);
+        } catch (DataIntegrityViolationException e) {
+            // ฐานข้อมูลปฏิเสธ ให้ผังที่นั่งทั้งสองรอบโหลดใหม่จากฐานข้อมูล
+            seatMapService.evict(oldSchedule.getRoute().getId(), oldSchedule.getDepartureTime());
+            seatMapService.evict(newSchedule.getRoute().getId(), newSchedule.getDepartureTime());
+            throw new SeatUnavailableException("ที่นั่งเดิมไม่ว่างในรอบเวลาใหม่ กรุณาเลือกที่นั่งอื่นหรือรอบเวลาอื่น");
         }
+        seatMapEventBroker.publish(oldSchedule, booking.getSeatNumber(), SeatMapEvent.FREE);
+        seatMapEventBroker.publish(newSchedule, booking.getSeatNumber(),
+                "PENDING".equals(booking.getStatus()) ? SeatMapEvent.HELD : SeatMapEvent.CONFIRMED);
+    }
 
-        booking.setSchedule(newSchedule);
-        bookingRepository.save(booking);
+    private Schedule findOrCreateSchedule(Long routeId, LocalDateTime departureTime) {
+        return scheduleResolver.findOrCreate(routeId, departureTime);
+    }
+
+    private Booking newBooking(BookingRequest request, Schedule schedule, Integer seatNumber, SeatLease lease,
+            User user) {
+        Booking booking = new Booking();
+        booking.setSchedule(schedule);
+        booking.setSeatNumber(seatNumber);
+        booking.setPickupPoint(request.getPickupPoint());
+        booking.setPickupLat(request.getPickupLat());
+        booking.setPickupLng(request.getPickupLng());
+        booking.setDropoffPoint(request.getDropoffPoint());
+        booking.setDropoffLat(request.getDropoffLat());
+        booking.setDropoffLng(request.getDropoffLng());
+        booking.setContactPhone(request.getContactPhone());
+        booking.setRemark(request.getRemark());
+        booking.setTotalPrice(request.getTotalPrice());
+        booking.setStatus("PENDING");
+        booking.setHoldExpiresAt(LocalDateTime.now().plus(seatMapService.getHoldTtl()));
+        booking.setLockOwner(lease.getOwner());
+        booking.setFencingToken(lease.getFencingToken());
+        booking.setUser(user);
+        return booking;
+    }
+
+    private void releaseSeat(Schedule schedule, Integer seatNumber, String owner) {
+        try {
+            seatLockService.release(schedule, seatNumber, owner);
+        } catch (DataAccessException e) {
+            System.err.println("Warning: seat lock unavailable while releasing seat: " + e.getMessage());
+        }
     }
 }
\ No newline at end of file
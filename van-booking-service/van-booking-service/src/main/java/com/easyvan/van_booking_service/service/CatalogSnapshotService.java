@@ -0,0 +1,164 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.entity.Route;
+import com.easyvan.van_booking_service.entity.Station;
+import com.easyvan.van_booking_service.repository.RouteRepository;
+import com.easyvan.van_booking_service.repository.StationRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * เก็บ JSON ของเส้นทางที่เปิดให้บริการและสถานีทั้งหมดไว้เป็น byte array ที่ serialize และ gzip ไว้แล้ว
+ * พร้อม ETag จาก hash ของเนื้อหา หน้าเว็บที่โหลดซ้ำจึงไม่ต้อง query หรือ serialize ใหม่
+ *
+ * AdminService เรียก {@link #bumpVersion()} ทุกครั้งที่สร้าง/แก้ไข/ลบเส้นทางหรือสถานี
+ * version ใหม่ถูกกระจายไปเครื่องอื่นผ่าน Redis channel {@code catalog-invalidate}
+ * แล้ว snapshot จะถูกสร้างใหม่ในคำขอถัดไป
+ *
+ * second-level cache และ query cache ของ Hibernate เป็นของแต่ละเครื่อง เครื่องที่ได้รับข้อความจึงล้าง
+ * region ของ Station/Route และ query cache ก่อน ไม่เช่นนั้น snapshot ใหม่จะถูกสร้างจากข้อมูลเก่าใน cache
+ */
+@Service
+public class CatalogSnapshotService implements MessageListener {
+
+    static final String CHANNEL = "catalog-invalidate";
+
+    private final RouteRepository routeRepository;
+    private final StationRepository stationRepository;
+    private final ObjectMapper objectMapper;
+    private final StringRedisTemplate redisTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot routes;
+    private volatile Snapshot stations;
+
+    public CatalogSnapshotService(RouteRepository routeRepository,
+            StationRepository stationRepository,
+            ObjectMapper objectMapper,
+            StringRedisTemplate redisTemplate,
+            EntityManagerFactory entityManagerFactory,
+            RedisMessageListenerContainer listenerContainer) {
+        this.routeRepository = routeRepository;
+        this.stationRepository = stationRepository;
+        this.objectMapper = objectMapper;
+        this.redisTemplate = redisTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    public Snapshot getRoutes() {
+        Snapshot current = routes;
+        if (current == null || current.version() != version.get()) {
+            current = build(routeRepository::findByIsActiveTrue);
+            routes = current;
+        }
+        return current;
+    }
+
+    public Snapshot getStations() {
+        Snapshot current = stations;
+        if (current == null || current.version() != version.get()) {
+            current = build(stationRepository::findAll);
+            stations = current;
+        }
+        return current;
+    }
+
+    /**
+     * ทำให้ snapshot ปัจจุบันหมดอายุ หากอยู่ใน transaction จะมีผลหลัง commit
+     * เพื่อไม่ให้ snapshot ใหม่ถูกสร้างจากข้อมูลก่อนการแก้ไข
+     */
+    public void bumpVersion() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate();
+                }
+            });
+        } else {
+            invalidate();
+        }
+    }
+
+    private void invalidate() {
+        version.incrementAndGet();
+        try {
+            redisTemplate.convertAndSend(CHANNEL, "bump");
+        } catch (DataAccessException e) {
+            System.err.println("Warning: Redis unavailable, catalog change not broadcast: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        // ข้อความที่เครื่องนี้ส่งเองก็ถูกนับด้วย ไม่เป็นไรเพราะแค่ทำให้สร้าง snapshot ใหม่อีกครั้ง
+        // ล้าง cache ก่อนเพิ่ม version เพื่อให้ snapshot ที่สร้างหลังจากนี้อ่านจากฐานข้อมูล
+        evictReferenceCaches();
+        version.incrementAndGet();
+    }
+
+    private void evictReferenceCaches() {
+        entityManagerFactory.getCache().evict(Route.class);
+        entityManagerFactory.getCache().evict(Station.class);
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictDefaultQueryRegion();
+    }
+
+    // อ่าน version ก่อน query หากมีการแก้ไขระหว่างสร้าง snapshot จะไม่ตรงกับ version ใหม่และถูกสร้างใหม่อีกครั้ง
+    private Snapshot build(Supplier<?> loader) {
+        long builtVersion = version.get();
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(loader.get());
+            return new Snapshot(builtVersion, json, gzip(json), etag(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("ไม่สามารถสร้างข้อมูล catalog ได้", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String etag(byte[] data) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(data);
+            return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * ข้อมูล catalog ที่ไม่เปลี่ยนแปลงแล้ว ห้ามแก้ไข array ที่ได้รับ
+     */
+    public record Snapshot(long version, byte[] json, byte[] gzipped, String etag) {
+    }
+}
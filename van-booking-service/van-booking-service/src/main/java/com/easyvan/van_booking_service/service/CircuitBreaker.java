@@ -0,0 +1,62 @@
+package com.easyvan.van_booking_service.service;
+
+/**
+ * circuit breaker แบบนับความล้มเหลวติดกัน ใช้หน้าระบบภายนอกที่อาจล่ม (ไม่ต้องพึ่ง library เพิ่ม)
+ *
+ * CLOSED: เรียกได้ตามปกติ ล้มเหลวติดกันครบ {@code failureThreshold} ครั้งจะเปลี่ยนเป็น OPEN
+ * OPEN: ปฏิเสธทันทีจนครบ {@code openMillis} แล้วเปลี่ยนเป็น HALF_OPEN
+ * HALF_OPEN: ให้ผ่านได้ครั้งละหนึ่งคำขอเพื่อทดสอบ สำเร็จแล้วกลับเป็น CLOSED ล้มเหลวกลับเป็น OPEN
+ */
+class CircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    // คืน true หากเรียกได้ ผู้เรียกต้องรายงานผลด้วย onSuccess/onFailure ทุกครั้งที่ได้ true
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    synchronized void onFailure() {
+        probeInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,375 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.dto.DriverImportJob;
+import com.easyvan.van_booking_service.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * นำเข้าคนขับรถจากไฟล์ CSV (username, email, password, fullName, phoneNumber) แบบ asynchronous
+ * รับไฟล์แล้วคืน job id ทันที ความคืบหน้าและแถวที่นำเข้าไม่ได้ดูได้จาก {@link #getJob(String)}
+ *
+ * ไฟล์ถูกอ่านแบบ streaming ทีละชุด ({@code driver.import.chunk-size} แถว) แต่ละชุดตรวจ username/email ซ้ำ
+ * ด้วย query แบบ {@code IN} ชุดละครั้ง, hash รหัสผ่านพร้อมกันบน pool ที่จำกัดขนาด ({@code driver.import.hash-threads})
+ * แล้วเขียนด้วย JDBC batch insert ({@code ON CONFLICT DO NOTHING} แถวที่ถูกเพิ่มโดยคำขออื่นระหว่างนี้จึงถูกข้าม)
+ * งานนำเข้ารันทีละงาน สถานะเก็บใน Redis ({@code driverimport:<id>}) และสำเนาในเครื่องเหมือนงานตรวจสอบสลิป
+ */
+@Service
+public class DriverImportService {
+
+    private static final String JOB_KEY_PREFIX = "driverimport:";
+    private static final String BUSY_MESSAGE = "มีงานนำเข้าข้อมูลค้างอยู่ กรุณาลองใหม่ภายหลัง";
+    private static final int COLUMNS = 5;
+
+    private static final String INSERT_SQL = """
+            INSERT INTO users (username, password, full_name, role, phone_number, email, created_at)
+            VALUES (?, ?, ?, 'DRIVER', ?, ?, ?)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private final ThreadPoolExecutor jobs;
+    private final ThreadPoolExecutor hashers;
+    private final Cache<String, DriverImportJob> localJobs;
+    private final Duration jobTtl;
+    private final int chunkSize;
+    private final int maxErrors;
+    private final Timer importTimer;
+    private final Timer hashTimer;
+
+    public DriverImportService(UserRepository userRepository,
+            JdbcTemplate jdbcTemplate,
+            PasswordEncoder passwordEncoder,
+            StringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${driver.import.chunk-size:500}") int chunkSize,
+            @Value("${driver.import.hash-threads:0}") int hashThreads,
+            @Value("${driver.import.queue-capacity:2}") int queueCapacity,
+            @Value("${driver.import.max-errors:1000}") int maxErrors,
+            @Value("${driver.import.job-ttl-minutes:60}") long jobTtlMinutes) {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordEncoder = passwordEncoder;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+        this.jobTtl = Duration.ofMinutes(jobTtlMinutes);
+
+        this.jobs = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "driver-import"),
+                new ThreadPoolExecutor.AbortPolicy());
+        // เหมือน PasswordHashingService: ใช้ไม่เกินครึ่งหนึ่งของ core และแต่ละครั้งส่งงานไม่เกินหนึ่งชุด
+        int poolSize = hashThreads > 0 ? hashThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.hashers = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(chunkSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "driver-import-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.localJobs = Caffeine.newBuilder()
+                .maximumSize(100)
+                .expireAfterWrite(jobTtl)
+                .build();
+
+        this.importTimer = Timer.builder("driver.import").register(meterRegistry);
+        this.hashTimer = Timer.builder("password.hashing").tag("operation", "import").register(meterRegistry);
+        meterRegistry.gauge("driver.import.queue.depth", jobs, e -> e.getQueue().size());
+    }
+
+    /**
+     * คัดลอกไฟล์ที่อัปโหลดไว้ แล้วเข้าคิวนำเข้า โยน {@link RejectedExecutionException} หากมีงานค้างเต็มคิว
+     */
+    public DriverImportJob submit(MultipartFile file) {
+        if (jobs.getQueue().remainingCapacity() == 0) {
+            throw new RejectedExecutionException(BUSY_MESSAGE);
+        }
+        // ไฟล์ที่อัปโหลดใช้ได้เฉพาะระหว่าง request
+        Path csv;
+        try {
+            csv = Files.createTempFile("driver-import-", ".csv");
+            file.transferTo(csv);
+        } catch (IOException e) {
+            throw new RuntimeException("ไม่สามารถอ่านไฟล์ CSV ได้: " + e.getMessage());
+        }
+
+        DriverImportJob job = new DriverImportJob();
+        job.setJobId(UUID.randomUUID().toString());
+        job.setFileName(file.getOriginalFilename());
+        job.setStatus(DriverImportJob.QUEUED);
+        job.setMessage("กำลังรอนำเข้าข้อมูล");
+        job.setCreatedAt(LocalDateTime.now());
+        save(job);
+
+        try {
+            jobs.execute(() -> importTimer.record(() -> run(job, csv)));
+        } catch (RejectedExecutionException e) {
+            deleteQuietly(csv);
+            finish(job, DriverImportJob.FAILED, BUSY_MESSAGE);
+            throw e;
+        }
+        // คืนสำเนา ตัว job ถูกแก้ไขต่อโดยงานนำเข้า
+        return getJob(job.getJobId());
+    }
+
+    public DriverImportJob getJob(String jobId) {
+        DriverImportJob job = localJobs.getIfPresent(jobId);
+        if (job != null) {
+            return job;
+        }
+        try {
+            String json = redisTemplate.opsForValue().get(JOB_KEY_PREFIX + jobId);
+            return json != null ? objectMapper.readValue(json, DriverImportJob.class) : null;
+        } catch (DataAccessException | JsonProcessingException e) {
+            System.err.println("Warning: cannot read driver import job " + jobId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void run(DriverImportJob job, Path csv) {
+        job.setStatus(DriverImportJob.RUNNING);
+        job.setMessage("กำลังนำเข้าข้อมูล");
+        save(job);
+
+        Set<String> seenUsernames = new HashSet<>();
+        Set<String> seenEmails = new HashSet<>();
+        List<DriverRow> chunk = new ArrayList<>(chunkSize);
+        try (Reader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+                CSVReader csvReader = new CSVReader(reader)) {
+            csvReader.readNext(); // Skip header
+            long rowNumber = 1;
+            String[] record;
+            while ((record = csvReader.readNext()) != null) {
+                rowNumber++;
+                if (record.length == 1 && record[0].isBlank()) {
+                    continue; // บรรทัดว่าง
+                }
+                job.setProcessedRows(job.getProcessedRows() + 1);
+                DriverRow row = parse(job, rowNumber, record, seenUsernames, seenEmails);
+                if (row != null) {
+                    chunk.add(row);
+                }
+                if (chunk.size() >= chunkSize) {
+                    importChunk(job, chunk);
+                    chunk.clear();
+                    save(job);
+                }
+            }
+            importChunk(job, chunk);
+            finish(job, DriverImportJob.SUCCEEDED, "นำเข้าคนขับรถ " + job.getImportedRows() + " คน ข้าม "
+                    + job.getSkippedRows() + " แถว");
+        } catch (IOException | CsvException | RuntimeException e) {
+            // ชุดที่บันทึกไปแล้วยังคงอยู่ จำนวนใน job คือสิ่งที่นำเข้าสำเร็จจริง
+            finish(job, DriverImportJob.FAILED, "เกิดข้อผิดพลาดในการประมวลผลไฟล์ CSV: " + e.getMessage());
+        } finally {
+            deleteQuietly(csv);
+        }
+    }
+
+    // ตรวจรูปแบบของแถวและข้อมูลซ้ำภายในไฟล์ คืน null หากแถวนี้ต้องข้าม
+    private DriverRow parse(DriverImportJob job, long rowNumber, String[] record,
+            Set<String> seenUsernames, Set<String> seenEmails) {
+        if (record.length < COLUMNS) {
+            reject(job, rowNumber, record[0].trim(), "ข้อมูลไม่ครบ " + COLUMNS + " คอลัมน์");
+            return null;
+        }
+        String username = record[0].trim();
+        String email = record[1].trim().isEmpty() ? null : record[1].trim();
+        String password = record[2].trim();
+        String fullName = record[3].trim();
+        String phoneNumber = record[4].trim();
+
+        if (username.isEmpty() || password.isEmpty()) {
+            reject(job, rowNumber, username, "ต้องระบุชื่อผู้ใช้และรหัสผ่าน");
+            return null;
+        }
+        // ตามขนาดคอลัมน์ของตาราง users
+        if (username.length() > 50 || fullName.length() > 100 || phoneNumber.length() > 15
+                || (email != null && email.length() > 255)) {
+            reject(job, rowNumber, username, "ข้อมูลยาวเกินกำหนด");
+            return null;
+        }
+        if (!seenUsernames.add(username)) {
+            reject(job, rowNumber, username, "ชื่อผู้ใช้ซ้ำกับแถวก่อนหน้าในไฟล์");
+            return null;
+        }
+        if (email != null && !seenEmails.add(email.toUpperCase(Locale.ROOT))) {
+            reject(job, rowNumber, username, "อีเมลซ้ำกับแถวก่อนหน้าในไฟล์");
+            return null;
+        }
+        return new DriverRow(rowNumber, username, email, password, fullName, phoneNumber);
+    }
+
+    private void importChunk(DriverImportJob job, List<DriverRow> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (DriverRow row : chunk) {
+            usernames.add(row.username());
+            if (row.email() != null) {
+                emails.add(row.email().toUpperCase(Locale.ROOT));
+            }
+        }
+        Set<String> existingUsernames = new HashSet<>(userRepository.findExistingUsernames(usernames));
+        Set<String> existingEmails = emails.isEmpty()
+                ? Set.of()
+                : new HashSet<>(userRepository.findExistingEmailsUpperCase(emails));
+
+        List<DriverRow> accepted = new ArrayList<>(chunk.size());
+        for (DriverRow row : chunk) {
+            if (existingUsernames.contains(row.username())) {
+                reject(job, row.rowNumber(), row.username(), "ชื่อผู้ใช้งานนี้มีอยู่ในระบบแล้ว");
+            } else if (row.email() != null && existingEmails.contains(row.email().toUpperCase(Locale.ROOT))) {
+                reject(job, row.rowNumber(), row.username(), "อีเมลนี้ถูกใช้งานแล้ว");
+            } else {
+                accepted.add(row);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        // BCrypt เป็นส่วนที่ช้าที่สุด จึง hash ทั้งชุดพร้อมกัน
+        List<Future<String>> hashes = new ArrayList<>(accepted.size());
+        for (DriverRow row : accepted) {
+            hashes.add(hashers.submit(() -> hashTimer.record(() -> passwordEncoder.encode(row.password()))));
+        }
+        List<DriverRow> hashed = new ArrayList<>(accepted.size());
+        List<Object[]> batch = new ArrayList<>(accepted.size());
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = 0; i < accepted.size(); i++) {
+            DriverRow row = accepted.get(i);
+            String hash;
+            try {
+                hash = hashes.get(i).get();
+            } catch (ExecutionException e) {
+                reject(job, row.rowNumber(), row.username(), "ไม่สามารถเข้ารหัสรหัสผ่านได้");
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                hashes.forEach(future -> future.cancel(true));
+                throw new RuntimeException("การนำเข้าข้อมูลถูกขัดจังหวะ");
+            }
+            hashed.add(row);
+            batch.add(new Object[] { row.username(), hash, row.fullName(), row.phoneNumber(), row.email(), createdAt });
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        int[] counts = jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+        long imported = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                DriverRow row = hashed.get(i);
+                reject(job, row.rowNumber(), row.username(), "ชื่อผู้ใช้หรืออีเมลถูกเพิ่มเข้าระบบระหว่างการนำเข้า");
+            } else if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                imported++;
+            }
+        }
+        job.setImportedRows(job.getImportedRows() + imported);
+        meterRegistry.counter("driver.import.rows", "result", "imported").increment(imported);
+    }
+
+    private void reject(DriverImportJob job, long rowNumber, String username, String message) {
+        job.setSkippedRows(job.getSkippedRows() + 1);
+        if (job.getErrors().size() < maxErrors) {
+            job.getErrors().add(new DriverImportJob.RowError(rowNumber, username, message));
+        } else {
+            job.setErrorsTruncated(true);
+        }
+        meterRegistry.counter("driver.import.rows", "result", "skipped").increment();
+    }
+
+    private void finish(DriverImportJob job, String status, String message) {
+        job.setStatus(status);
+        job.setMessage(message);
+        save(job);
+    }
+
+    private void save(DriverImportJob job) {
+        job.setUpdatedAt(LocalDateTime.now());
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(job);
+            // เก็บสำเนา ผู้ถามสถานะจึงไม่อ่าน errors ระหว่างที่งานนำเข้ายังเพิ่มอยู่
+            localJobs.put(job.getJobId(), objectMapper.readValue(json, DriverImportJob.class));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        try {
+            redisTemplate.opsForValue().set(JOB_KEY_PREFIX + job.getJobId(), json, jobTtl);
+        } catch (DataAccessException e) {
+            System.err.println("Warning: driver import job stored locally only: " + e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Warning: could not delete temp file " + path + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.shutdown();
+        hashers.shutdown();
+    }
+
+    private record DriverRow(long rowNumber, String username, String email, String password,
+            String fullName, String phoneNumber) {
+    }
+}
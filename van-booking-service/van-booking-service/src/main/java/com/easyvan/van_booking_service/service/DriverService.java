@@ -1,5 +1,6 @@
 package com.easyvan.van_booking_service.service;
 
+import com.easyvan.van_booking_service.dto.ScheduleBookingDTO;
 import com.easyvan.van_booking_service.entity.Booking;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,7 +32,7 @@ public class DriverService {
         }).toList();
     }
 
-    public List<Booking> getBookingsBySchedule(Long scheduleId) {
-        return bookingRepository.findByScheduleId(scheduleId);
+    public List<ScheduleBookingDTO> getBookingsBySchedule(Long scheduleId) {
+        return bookingRepository.findManifestByScheduleId(scheduleId);
     }
 }
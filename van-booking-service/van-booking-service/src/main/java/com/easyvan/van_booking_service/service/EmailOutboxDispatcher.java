@@ -0,0 +1,208 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.entity.EmailOutbox;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ส่งอีเมลจากตาราง email_outbox ทีละชุด โดยแต่ละชุดใช้ SMTP session เดียว ({@link JavaMailSender#send(SimpleMailMessage...)})
+ *
+ * แต่ละชุดจองแถวด้วย {@code FOR UPDATE SKIP LOCKED} และเลื่อน next_attempt_at ออกไปเป็นระยะ lease
+ * จึงรันพร้อมกันได้หลายเครื่อง และหากเครื่องหยุดระหว่างส่ง อีเมลจะถูกส่งใหม่เมื่อ lease หมด (at-least-once)
+ * อีเมลที่ส่งไม่สำเร็จจะลองใหม่แบบ exponential backoff เมื่อครบ {@code email.outbox.max-attempts} ครั้ง
+ * จะถูกเปลี่ยนเป็น DEAD ให้ตรวจสอบเอง ทดสอบได้โดยชี้ {@code spring.mail.host/port} ไปที่ SMTP จำลอง เช่น GreenMail
+ */
+@Component
+public class EmailOutboxDispatcher {
+
+    private static final String CLAIM_BATCH_SQL = """
+            UPDATE email_outbox o
+            SET next_attempt_at = ?, attempts = o.attempts + 1
+            FROM (
+                SELECT id FROM email_outbox
+                WHERE status = 'PENDING' AND next_attempt_at <= ?
+                ORDER BY next_attempt_at
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            ) due
+            WHERE o.id = due.id
+            RETURNING o.id, o.recipient, o.subject, o.body, o.attempts
+            """;
+
+    private static final String MARK_SENT_SQL = """
+            UPDATE email_outbox SET status = 'SENT', sent_at = ?, last_error = NULL WHERE id = ?
+            """;
+
+    private static final String MARK_FAILED_SQL = """
+            UPDATE email_outbox SET status = ?, next_attempt_at = ?, last_error = ? WHERE id = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JavaMailSender mailSender;
+    private final MeterRegistry meterRegistry;
+    private final String fromEmail;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+    private final Timer batchTimer;
+
+    public EmailOutboxDispatcher(JdbcTemplate jdbcTemplate,
+            JavaMailSender mailSender,
+            MeterRegistry meterRegistry,
+            @Value("${spring.mail.username}") String fromEmail,
+            @Value("${email.outbox.batch-size:50}") int batchSize,
+            @Value("${email.outbox.max-batches:10}") int maxBatchesPerRun,
+            @Value("${email.outbox.max-attempts:8}") int maxAttempts,
+            @Value("${email.outbox.lease-ms:300000}") long leaseMillis,
+            @Value("${email.outbox.backoff-ms:30000}") long backoffMillis,
+            @Value("${email.outbox.max-backoff-ms:3600000}") long maxBackoffMillis,
+            @Value("${email.smtp.timeout-ms:10000}") long smtpTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mailSender = mailSender;
+        this.meterRegistry = meterRegistry;
+        this.fromEmail = fromEmail;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.maxAttempts = maxAttempts;
+        this.lease = Duration.ofMillis(leaseMillis);
+        this.backoff = Duration.ofMillis(backoffMillis);
+        this.maxBackoff = Duration.ofMillis(maxBackoffMillis);
+        this.batchTimer = Timer.builder("email.outbox.batch").register(meterRegistry);
+
+        // SMTP ที่ค้างต้องไม่ทำให้ dispatcher ค้างตาม (ค่าที่ตั้งไว้ใน spring.mail.properties มีผลก่อน)
+        if (mailSender instanceof JavaMailSenderImpl impl) {
+            String timeout = String.valueOf(smtpTimeoutMillis);
+            impl.getJavaMailProperties().putIfAbsent("mail.smtp.connectiontimeout", timeout);
+            impl.getJavaMailProperties().putIfAbsent("mail.smtp.timeout", timeout);
+            impl.getJavaMailProperties().putIfAbsent("mail.smtp.writetimeout", timeout);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.interval-ms:5000}")
+    public void dispatch() {
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            int claimed;
+            try {
+                claimed = batchTimer.recordCallable(this::dispatchBatch);
+            } catch (DataAccessException e) {
+                System.err.println("Warning: email outbox unavailable: " + e.getMessage());
+                return;
+            } catch (Exception e) {
+                System.err.println("Warning: email outbox dispatch failed: " + e.getMessage());
+                return;
+            }
+            if (claimed < batchSize) {
+                return;
+            }
+        }
+    }
+
+    private int dispatchBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<ClaimedEmail> batch = jdbcTemplate.query(CLAIM_BATCH_SQL,
+                (rs, rowNum) -> new ClaimedEmail(rs.getLong("id"), rs.getInt("attempts"), toMessage(
+                        rs.getString("recipient"), rs.getString("subject"), rs.getString("body"))),
+                Timestamp.valueOf(now.plus(lease)), Timestamp.valueOf(now), batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Map<Object, Exception> failures = Map.of();
+        try {
+            mailSender.send(batch.stream().map(ClaimedEmail::message).toArray(SimpleMailMessage[]::new));
+        } catch (MailSendException e) {
+            // อีเมลสองฉบับที่เนื้อหาเหมือนกันต้องไม่ถูกนับเป็นฉบับเดียว จึงจับคู่ด้วย identity ของ message
+            failures = new IdentityHashMap<>(e.getFailedMessages());
+        } catch (MailException e) {
+            // เชื่อมต่อ/ยืนยันตัวตนกับ SMTP ไม่ได้ ทั้งชุดถือว่าล้มเหลว
+            Map<Object, Exception> all = new IdentityHashMap<>();
+            batch.forEach(email -> all.put(email.message(), e));
+            failures = all;
+        }
+
+        List<Object[]> sent = new ArrayList<>();
+        List<Object[]> failed = new ArrayList<>();
+        Timestamp sentAt = Timestamp.valueOf(LocalDateTime.now());
+        for (ClaimedEmail email : batch) {
+            Exception error = failures.get(email.message());
+            if (error == null) {
+                sent.add(new Object[] { sentAt, email.id() });
+            } else {
+                failed.add(failureUpdate(email, error));
+            }
+        }
+        if (!sent.isEmpty()) {
+            jdbcTemplate.batchUpdate(MARK_SENT_SQL, sent);
+            meterRegistry.counter("email.outbox.sent").increment(sent.size());
+        }
+        if (!failed.isEmpty()) {
+            jdbcTemplate.batchUpdate(MARK_FAILED_SQL, failed);
+        }
+        return batch.size();
+    }
+
+    // ลองใหม่แบบ exponential backoff หรือย้ายเป็น DEAD เมื่อครบจำนวนครั้ง
+    private Object[] failureUpdate(ClaimedEmail email, Exception error) {
+        boolean dead = email.attempts() >= maxAttempts;
+        meterRegistry.counter("email.outbox.failed", "final", String.valueOf(dead)).increment();
+        if (dead) {
+            System.err.println("Email " + email.id() + " moved to dead letter after " + email.attempts()
+                    + " attempts: " + error.getMessage());
+        }
+        long delayMillis = Math.min(maxBackoff.toMillis(),
+                backoff.toMillis() << Math.min(20, Math.max(0, email.attempts() - 1)));
+        return new Object[] {
+                dead ? EmailOutbox.DEAD : EmailOutbox.PENDING,
+                Timestamp.valueOf(LocalDateTime.now().plus(Duration.ofMillis(delayMillis))),
+                String.valueOf(error.getMessage()),
+                email.id() };
+    }
+
+    private SimpleMailMessage toMessage(String to, String subject, String body) {
+        SimpleMailMessage message = new OutboxMessage();
+        message.setTo(to);
+        message.setSubject(subject);
+        message.setText(body);
+        message.setFrom(fromEmail);
+        return message;
+    }
+
+    private record ClaimedEmail(long id, int attempts, SimpleMailMessage message) {
+    }
+
+    // SimpleMailMessage เทียบ equals ตามเนื้อหา ทำให้ failedMessages ของ MailSendException (LinkedHashMap)
+    // รวมอีเมลที่เหมือนกันเป็น key เดียว แต่ละแถวของ outbox จึงต้องเท่ากับตัวเองเท่านั้น
+    private static final class OutboxMessage extends SimpleMailMessage {
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+}
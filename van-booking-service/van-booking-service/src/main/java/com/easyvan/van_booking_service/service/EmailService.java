@@ -1,27 +1,32 @@
 package com.easyvan.van_booking_service.service;
 
+import com.easyvan.van_booking_service.entity.Booking;
+import com.easyvan.van_booking_service.entity.EmailOutbox;
+import com.easyvan.van_booking_service.entity.Route;
+import com.easyvan.van_booking_service.repository.EmailOutboxRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.time.format.DateTimeFormatter;
+
+/**
+ * สร้างอีเมลแล้วบันทึกลง outbox ใน transaction ของผู้เรียก อีเมลจะถูกส่งจริงเมื่อ transaction commit แล้วเท่านั้น
+ * โดย {@link EmailOutboxDispatcher} คำขอ HTTP จึงไม่ต้องรอ SMTP และอีเมลไม่หายแม้ SMTP ล่มชั่วคราว
+ */
 @Service
 @RequiredArgsConstructor
 public class EmailService {
 
-    private final JavaMailSender mailSender;
+    private static final DateTimeFormatter DEPARTURE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
 
-    @Value("${spring.mail.username}")
-    private String fromEmail;
+    private final EmailOutboxRepository emailOutboxRepository;
 
     public void sendEmail(String to, String subject, String body) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(to);
-        message.setSubject(subject);
-        message.setText(body);
-        message.setFrom(fromEmail);
-        mailSender.send(message);
+        EmailOutbox email = new EmailOutbox();
+        email.setRecipient(to);
+        email.setSubject(subject);
+        email.setBody(body);
+        emailOutboxRepository.save(email);
     }
 
     public void sendResetPasswordEmail(String to, String token) {
@@ -35,4 +40,59 @@ public class EmailService {
 
         sendEmail(to, "รีเซ็ตรหัสผ่าน - EasyVan Booking", body);
     }
+
+    public void sendBookingConfirmedEmail(Booking booking) {
+        String to = recipientOf(booking);
+        if (to == null) {
+            return;
+        }
+        String body = "สวัสดีครับ,\n\n"
+                + "การชำระเงินของคุณได้รับการยืนยันแล้ว รายละเอียดการจอง:\n\n"
+                + bookingDetails(booking) + "\n"
+                + "กรุณามาถึงจุดรับก่อนเวลาออกเดินทางอย่างน้อย 15 นาทีครับ";
+
+        sendEmail(to, "ยืนยันการจอง #" + booking.getId() + " - EasyVan Booking", body);
+    }
+
+    public void sendBookingCancelledEmail(Booking booking) {
+        String to = recipientOf(booking);
+        if (to == null) {
+            return;
+        }
+        String body = "สวัสดีครับ,\n\n"
+                + "การจองของคุณถูกยกเลิกแล้ว รายละเอียด:\n\n"
+                + bookingDetails(booking) + "\n"
+                + "หากคุณไม่ได้เป็นผู้ยกเลิกรายการนี้ กรุณาติดต่อเจ้าหน้าที่ครับ";
+
+        sendEmail(to, "ยกเลิกการจอง #" + booking.getId() + " - EasyVan Booking", body);
+    }
+
+    private static String recipientOf(Booking booking) {
+        if (booking.getUser() == null || booking.getUser().getEmail() == null
+                || booking.getUser().getEmail().isBlank()) {
+            return null;
+        }
+        return booking.getUser().getEmail();
+    }
+
+    private static String bookingDetails(Booking booking) {
+        StringBuilder details = new StringBuilder();
+        details.append("หมายเลขการจอง: ").append(booking.getId()).append('\n');
+        if (booking.getSchedule() != null) {
+            Route route = booking.getSchedule().getRoute();
+            if (route != null && route.getOriginStation() != null && route.getDestinationStation() != null) {
+                details.append("เส้นทาง: ").append(route.getOriginStation().getStationName())
+                        .append(" - ").append(route.getDestinationStation().getStationName()).append('\n');
+            }
+            if (booking.getSchedule().getDepartureTime() != null) {
+                details.append("เวลาออกเดินทาง: ")
+                        .append(booking.getSchedule().getDepartureTime().format(DEPARTURE_FORMAT)).append('\n');
+            }
+        }
+        details.append("ที่นั่ง: ").append(booking.getSeatNumber()).append('\n');
+        if (booking.getPickupPoint() != null) {
+            details.append("จุดรับ: ").append(booking.getPickupPoint()).append('\n');
+        }
+        return details.toString();
+    }
 }
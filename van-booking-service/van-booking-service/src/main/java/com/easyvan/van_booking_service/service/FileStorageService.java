@@ -3,14 +3,40 @@ package com.easyvan.van_booking_service.service;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.UUID;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
+/**
+ * เก็บไฟล์สลิปแบบ content-addressed: ชื่อไฟล์คือ SHA-256 ของเนื้อหา วางใน directory ย่อยตาม hash
+ * ({@code uploads/slips/ab/cd/<sha256>}) แต่ละ directory จึงมีไฟล์ไม่มาก และไฟล์ที่เหมือนกันถูกเก็บเพียงชุดเดียว
+ * ไฟล์เดิมที่บันทึกเป็น {@code UUID_ชื่อไฟล์} ในระดับบนสุดยังอ่านได้ผ่าน {@link #resolve(String)}
+ *
+ * ไฟล์หนึ่งไฟล์อาจถูกใช้โดยหลายงานหรือหลายการจองพร้อมกัน จึงไม่ลบทันทีเมื่องานหนึ่งเลิกใช้
+ * ไฟล์ที่ไม่มีการจองอ้างถึงจะถูกลบภายหลังโดย {@link SlipFileCollector}
+ */
 @Service
 public class FileStorageService {
 
+    private static final Pattern CONTENT_KEY = Pattern.compile("[0-9a-f]{64}");
+
     private final String uploadDir = "uploads/slips";
 
     public FileStorageService() {
@@ -22,13 +48,206 @@ public class FileStorageService {
     }
 
     public String store(MultipartFile file) {
+        return ingest(file).fileName();
+    }
+
+    /**
+     * อ่านไฟล์ที่อัปโหลดเพียงรอบเดียว: เขียนลงไฟล์ชั่วคราวพร้อมคำนวณ SHA-256 ไปด้วย แล้วย้ายไปยังตำแหน่งตาม hash
+     * ไม่มีการโหลดทั้งไฟล์เข้า heap ไฟล์ที่ไม่สมบูรณ์จะไม่ปรากฏภายใต้ชื่อจริง หากมีไฟล์เดียวกันอยู่แล้วจะทิ้งไฟล์ชั่วคราว
+     * คืน key (SHA-256) ที่ใช้อ้างอิงไฟล์
+     */
+    public StoredFile ingest(MultipartFile file) {
+        return write(out -> {
+            try (InputStream in = file.getInputStream()) {
+                in.transferTo(out);
+            }
+        });
+    }
+
+    /**
+     * บันทึกเนื้อหาที่สร้างขึ้นเอง (เช่น รูปที่ย่อแล้ว) ด้วยวิธีเดียวกับ {@link #ingest(MultipartFile)}
+     */
+    public StoredFile write(ContentWriter writer) {
+        Path directory = Paths.get(uploadDir);
+        Path temp = null;
         try {
-            String fileName = UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
-            Path targetLocation = Paths.get(uploadDir).resolve(fileName);
-            Files.copy(file.getInputStream(), targetLocation);
-            return fileName;
+            temp = Files.createTempFile(directory, "upload-", ".part");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long size;
+            try (CountingDigestOutputStream out = new CountingDigestOutputStream(Files.newOutputStream(temp), digest)) {
+                writer.writeTo(out);
+                size = out.count;
+            }
+
+            String key = HexFormat.of().formatHex(digest.digest());
+            Path target = resolve(key);
+            if (Files.exists(target)) {
+                deleteQuietly(temp);
+                touch(target);
+            } else {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // มีคำขออื่นบันทึกไฟล์เดียวกันไปพร้อมกัน
+                    deleteQuietly(temp);
+                    touch(target);
+                }
+            }
+            return new StoredFile(key, key, size);
         } catch (IOException e) {
+            deleteQuietly(temp);
             throw new RuntimeException("Could not store file", e);
+        } catch (NoSuchAlgorithmException e) {
+            deleteQuietly(temp);
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // รูปย่อของไฟล์ตาม key (uploads/slips/thumbs/ab/cd/<sha256>) มีเฉพาะไฟล์ที่บันทึกแบบ content-addressed
+    public Path resolveThumbnail(String fileName) {
+        if (!CONTENT_KEY.matcher(fileName).matches()) {
+            throw new IllegalArgumentException("No thumbnail for file: " + fileName);
+        }
+        return Paths.get(uploadDir, "thumbs", fileName.substring(0, 2), fileName.substring(2, 4), fileName);
+    }
+
+    /**
+     * บันทึกรูปย่อ (เขียนไฟล์ชั่วคราวแล้วย้าย ผู้อ่านจึงไม่เห็นไฟล์ที่เขียนไม่เสร็จ)
+     */
+    public void writeThumbnail(String fileName, ContentWriter writer) throws IOException {
+        Path target = resolveThumbnail(fileName);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), "thumb-", ".part");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                writer.writeTo(out);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    public Path resolve(String fileName) {
+        Path root = Paths.get(uploadDir);
+        if (CONTENT_KEY.matcher(fileName).matches()) {
+            return root.resolve(fileName.substring(0, 2)).resolve(fileName.substring(2, 4)).resolve(fileName);
+        }
+        Path legacy = root.resolve(fileName).normalize();
+        if (!legacy.startsWith(root.normalize()) || legacy.getParent() == null
+                || !legacy.getParent().equals(root.normalize())) {
+            throw new IllegalArgumentException("Invalid file name: " + fileName);
+        }
+        return legacy;
+    }
+
+    public void delete(String fileName) {
+        try {
+            Files.deleteIfExists(resolve(fileName));
+            if (CONTENT_KEY.matcher(fileName).matches()) {
+                Files.deleteIfExists(resolveThumbnail(fileName));
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: could not delete slip file " + fileName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * ลบไฟล์และรูปย่อ เฉพาะเมื่อไฟล์ยังไม่ถูกอัปโหลดซ้ำตั้งแต่ cutoff คืนค่า true หากลบแล้ว
+     */
+    public boolean deleteIfOlderThan(String fileName, Instant cutoff) {
+        if (!modifiedBefore(resolve(fileName), cutoff)) {
+            return false;
+        }
+        delete(fileName);
+        return true;
+    }
+
+    /**
+     * ส่ง key ของไฟล์แบบ content-addressed ที่ไม่ถูกเขียนหรืออัปโหลดซ้ำตั้งแต่ {@code cutoff} ให้ consumer
+     * ทีละชุด (ไม่เกิน chunkSize) ไม่เก็บรายชื่อไฟล์ทั้งหมดไว้ในหน่วยความจำ
+     */
+    public void forEachContentKeyOlderThan(Instant cutoff, int chunkSize, Consumer<List<String>> consumer) {
+        List<String> chunk = new ArrayList<>(chunkSize);
+        // uploads/slips/ab/cd/<sha256> อยู่ลึก 3 ระดับ ส่วนรูปย่อใน thumbs/ อยู่ลึกกว่านั้นจึงไม่ถูกนับ
+        try (Stream<Path> files = Files.walk(Paths.get(uploadDir), 3)) {
+            Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                Path path = iterator.next();
+                if (CONTENT_KEY.matcher(path.getFileName().toString()).matches() && modifiedBefore(path, cutoff)) {
+                    chunk.add(path.getFileName().toString());
+                    if (chunk.size() >= chunkSize) {
+                        consumer.accept(List.copyOf(chunk));
+                        chunk.clear();
+                    }
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Warning: could not list slip files: " + e.getMessage());
+        }
+        if (!chunk.isEmpty()) {
+            consumer.accept(List.copyOf(chunk));
         }
     }
+
+    private static boolean modifiedBefore(Path path, Instant cutoff) {
+        try {
+            return Files.isRegularFile(path) && Files.getLastModifiedTime(path).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // ไฟล์เดิมถูกอัปโหลดซ้ำ: เลื่อนเวลาแก้ไขเพื่อไม่ให้ถูกเก็บกวาดระหว่างที่งานใหม่ยังใช้อยู่
+    private static void touch(Path path) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            System.err.println("Warning: could not touch slip file " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Warning: could not delete temp file " + path + ": " + e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    public interface ContentWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    // นับจำนวน byte และคำนวณ digest ระหว่างเขียน
+    private static final class CountingDigestOutputStream extends DigestOutputStream {
+        private long count;
+
+        CountingDigestOutputStream(OutputStream out, MessageDigest digest) {
+            super(out, digest);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            super.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            super.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /**
+     * ไฟล์ที่บันทึกแล้ว: fileName คือ key สำหรับ {@link #resolve(String)} (ปัจจุบันเท่ากับ sha256)
+     */
+    public record StoredFile(String fileName, String sha256, long size) {
+    }
 }
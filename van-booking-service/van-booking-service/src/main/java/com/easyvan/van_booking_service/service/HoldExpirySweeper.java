@@ -0,0 +1,112 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.dto.SeatMapEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * เปลี่ยนการจองที่ค้างอยู่ในสถานะ PENDING เกินเวลา hold_expires_at ให้เป็น EXPIRED ทีละชุด
+ * แล้วคืนที่นั่งในผังที่นั่งของ Redis
+ *
+ * แต่ละชุดเลือกแถวด้วย {@code FOR UPDATE SKIP LOCKED} จึงรันพร้อมกันได้หลายเครื่องโดยไม่ทำงานซ้ำกัน
+ * จำนวนที่นั่งที่คืนได้ถูกนับเป็น metric {@code booking.holds.reclaimed}
+ */
+@Component
+public class HoldExpirySweeper {
+
+    private static final String EXPIRE_BATCH_SQL = """
+            WITH expired AS (
+                UPDATE bookings b
+                SET status = 'EXPIRED', hold_expires_at = NULL
+                FROM (
+                    SELECT id FROM bookings
+                    WHERE status = 'PENDING' AND hold_expires_at < ?
+                    ORDER BY hold_expires_at
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                ) due
+                WHERE b.id = due.id
+                RETURNING b.id, b.schedule_id, b.seat_number, b.lock_owner
+            )
+            SELECT e.id, e.seat_number, e.lock_owner, s.route_id, s.departure_time
+            FROM expired e
+            JOIN schedules s ON s.id = e.schedule_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SeatMapService seatMapService;
+    private final SeatMapEventBroker seatMapEventBroker;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Counter reclaimedCounter;
+    private final Timer sweepTimer;
+
+    public HoldExpirySweeper(JdbcTemplate jdbcTemplate,
+            SeatMapService seatMapService,
+            SeatMapEventBroker seatMapEventBroker,
+            MeterRegistry meterRegistry,
+            @Value("${booking.hold-sweep.batch-size:500}") int batchSize,
+            @Value("${booking.hold-sweep.max-batches:20}") int maxBatchesPerRun) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.seatMapService = seatMapService;
+        this.seatMapEventBroker = seatMapEventBroker;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.reclaimedCounter = Counter.builder("booking.holds.reclaimed")
+                .description("จำนวนการถือครองที่นั่งที่หมดอายุและถูกคืน")
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("booking.holds.sweep").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${booking.hold-sweep.interval-ms:30000}")
+    public void sweep() {
+        sweepTimer.record(() -> {
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                if (expireBatch() < batchSize) {
+                    break;
+                }
+            }
+        });
+    }
+
+    /**
+     * ทำให้การถือครองที่หมดอายุเป็น EXPIRED หนึ่งชุด (หนึ่ง statement จึงเป็น transaction เดียว) คืนจำนวนแถวที่เปลี่ยน
+     */
+    int expireBatch() {
+        List<ExpiredHold> expired = jdbcTemplate.query(EXPIRE_BATCH_SQL,
+                (rs, rowNum) -> new ExpiredHold(
+                        rs.getLong("id"),
+                        rs.getInt("seat_number"),
+                        rs.getString("lock_owner"),
+                        rs.getLong("route_id"),
+                        rs.getTimestamp("departure_time").toLocalDateTime()),
+                Timestamp.valueOf(LocalDateTime.now()), batchSize);
+
+        for (ExpiredHold hold : expired) {
+            String owner = hold.lockOwner() != null ? hold.lockOwner() : "booking:" + hold.bookingId();
+            try {
+                seatMapService.release(hold.routeId(), hold.departureTime(), hold.seatNumber(), owner);
+            } catch (DataAccessException e) {
+                // การถือครองใน Redis มีเวลาหมดอายุของตัวเองอยู่แล้ว
+                System.err.println("Warning: Redis unavailable while releasing expired hold: " + e.getMessage());
+            }
+            seatMapEventBroker.publish(hold.routeId(), hold.departureTime(), hold.seatNumber(), SeatMapEvent.FREE);
+        }
+        reclaimedCounter.increment(expired.size());
+        return expired.size();
+    }
+
+    private record ExpiredHold(long bookingId, int seatNumber, String lockOwner, long routeId,
+            LocalDateTime departureTime) {
+    }
+}
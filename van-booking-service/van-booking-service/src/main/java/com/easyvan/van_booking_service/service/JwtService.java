@@ -0,0 +1,57 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.entity.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * ออกและตรวจสอบ JWT ด้วย key และ parser ที่สร้างครั้งเดียวตอนเริ่มแอป (parser ของ jjwt ใช้ร่วมกันหลาย thread ได้)
+ */
+@Service
+public class JwtService {
+
+    public static final String ROLE_CLAIM = "role";
+
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final long expirationMillis;
+
+    public JwtService(@Value("${jwt.secret}") String jwtSecret,
+            @Value("${jwt.expiration-ms:86400000}") long expirationMillis) {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.expirationMillis = expirationMillis;
+    }
+
+    public long getExpirationMillis() {
+        return expirationMillis;
+    }
+
+    public String issue(User user) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .setId(UUID.randomUUID().toString()) // jti ใช้อ้างอิงตอนเพิกถอน (logout)
+                .setSubject(user.getEmail())
+                .claim(ROLE_CLAIM, user.getRole())
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expirationMillis))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    /**
+     * ตรวจลายเซ็นและวันหมดอายุ โยน {@link io.jsonwebtoken.JwtException} หาก token ไม่ถูกต้อง
+     */
+    public Claims parse(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+}
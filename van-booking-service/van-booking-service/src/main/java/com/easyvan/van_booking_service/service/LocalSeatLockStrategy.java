@@ -0,0 +1,132 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.dto.SeatLease;
+import com.easyvan.van_booking_service.entity.Booking;
+import com.easyvan.van_booking_service.entity.Schedule;
+import com.easyvan.van_booking_service.repository.BookingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ล็อกที่นั่งภายใน process ด้วย lock แบบ striped (จำนวน lock คงที่ ไม่ขึ้นกับจำนวนที่นั่ง)
+ * lock จะถูกถือไว้จน transaction ของการจองจบ ใช้ได้เฉพาะการรันเครื่องเดียวเท่านั้น
+ */
+@Component
+public class LocalSeatLockStrategy implements SeatLockStrategy {
+
+    private final BookingRepository bookingRepository;
+    private final ReentrantLock[] stripes;
+    private final long waitMillis;
+
+    public LocalSeatLockStrategy(BookingRepository bookingRepository,
+            @Value("${seat-lock.local.stripes:256}") int stripeCount,
+            @Value("${seat-lock.local.wait-millis:2000}") long waitMillis) {
+        this.bookingRepository = bookingRepository;
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.waitMillis = waitMillis;
+    }
+
+    @Override
+    public String getName() {
+        return "local";
+    }
+
+    @Override
+    public SeatLease acquire(Schedule schedule, Integer seatNumber, String owner) {
+        if (!lockUntilCompletion(List.of(stripeOf(schedule, seatNumber)))) {
+            return null;
+        }
+        if (bookingRepository.existsByScheduleIdAndSeatNumberAndStatusIn(schedule.getId(), seatNumber,
+                Booking.ACTIVE_STATUSES)) {
+            return null;
+        }
+        return new SeatLease(owner, null);
+    }
+
+    @Override
+    public List<SeatLease> acquireAll(Schedule schedule, List<Integer> seatNumbers, String owner) {
+        // ล็อกตามลำดับ stripe เสมอเพื่อไม่ให้เกิด deadlock ระหว่างการจองกลุ่มที่ทับกัน
+        List<Integer> stripeIndexes = seatNumbers.stream()
+                .map(seat -> stripeOf(schedule, seat))
+                .distinct()
+                .sorted()
+                .toList();
+        if (!lockUntilCompletion(stripeIndexes)) {
+            return null;
+        }
+        if (bookingRepository.existsByScheduleIdAndSeatNumberInAndStatusIn(schedule.getId(), seatNumbers,
+                Booking.ACTIVE_STATUSES)) {
+            return null;
+        }
+        List<SeatLease> leases = new ArrayList<>();
+        seatNumbers.forEach(seat -> leases.add(new SeatLease(owner, null)));
+        return leases;
+    }
+
+    private int stripeOf(Schedule schedule, Integer seatNumber) {
+        return Math.floorMod(Objects.hash(schedule.getId(), seatNumber), stripes.length);
+    }
+
+    /**
+     * ล็อก stripe ตามลำดับที่ให้มา และปล่อยทั้งหมดเมื่อ transaction จบ (commit หรือ rollback) บน thread เดียวกัน
+     */
+    private boolean lockUntilCompletion(List<Integer> stripeIndexes) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("LocalSeatLockStrategy ต้องถูกเรียกภายใน transaction");
+        }
+
+        List<ReentrantLock> held = new ArrayList<>();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                held.forEach(ReentrantLock::unlock);
+            }
+        });
+
+        for (Integer index : stripeIndexes) {
+            ReentrantLock lock = stripes[index];
+            try {
+                if (!lock.tryLock(waitMillis, TimeUnit.MILLISECONDS)) {
+                    return false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            held.add(lock);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean confirm(Schedule schedule, Integer seatNumber, SeatLease lease) {
+        return true;
+    }
+
+    @Override
+    public boolean extend(Schedule schedule, Integer seatNumber, SeatLease lease) {
+        // เวลาถือครองคือ hold_expires_at ของแถวการจอง ซึ่ง BookingService ต่อเวลาเอง
+        return true;
+    }
+
+    @Override
+    public void release(Schedule schedule, Integer seatNumber, String owner) {
+        // lock ถูกปล่อยเมื่อ transaction จบ ส่วนสถานะการจองถูกเปลี่ยนโดย BookingService
+    }
+
+    @Override
+    public SeatLease move(Schedule from, Schedule to, Integer seatNumber, String owner) {
+        return acquire(to, seatNumber, owner);
+    }
+}
@@ -0,0 +1,99 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.dto.CursorPage;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * cursor ของรายการแบบ keyset (seek) คือคีย์การเรียงของแถวสุดท้ายในหน้าก่อน เข้ารหัสเป็น base64url
+ * หน้าถัดไปจึงเริ่มอ่านจาก index ต่อจากคีย์นั้นได้เลย ไม่ต้องข้ามแถวแบบ OFFSET ทุกหน้าใช้เวลาเท่ากัน
+ */
+final class PageCursors {
+
+    static final int DEFAULT_LIMIT = 50;
+    static final int MAX_LIMIT = 200;
+
+    private PageCursors() {
+    }
+
+    // ขอเกินหนึ่งแถวเพื่อรู้ว่ายังมีหน้าถัดไปหรือไม่
+    static Pageable fetchSize(int limit) {
+        return PageRequest.of(0, clamp(limit) + 1);
+    }
+
+    static <T> CursorPage<T> page(List<T> rows, int limit, Function<T, String> cursorOf) {
+        int size = clamp(limit);
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, size);
+        return new CursorPage<>(List.copyOf(items), cursorOf.apply(items.get(size - 1)));
+    }
+
+    static String ofId(Long id) {
+        return encode(String.valueOf(id));
+    }
+
+    static long idAfter(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(decode(cursor));
+        } catch (NumberFormatException e) {
+            throw invalid();
+        }
+    }
+
+    static String ofTimeAndId(LocalDateTime time, Long id) {
+        return encode(time + "|" + id);
+    }
+
+    // คืน null หากไม่มี cursor (หน้าแรก)
+    static TimeAndId timeAndIdAfter(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String value = decode(cursor);
+        int separator = value.lastIndexOf('|');
+        if (separator < 0) {
+            throw invalid();
+        }
+        try {
+            return new TimeAndId(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw invalid();
+        }
+    }
+
+    private static int clamp(int limit) {
+        return limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+    }
+
+    private static RuntimeException invalid() {
+        return new RuntimeException("cursor ไม่ถูกต้อง");
+    }
+
+    record TimeAndId(LocalDateTime time, long id) {
+    }
+}
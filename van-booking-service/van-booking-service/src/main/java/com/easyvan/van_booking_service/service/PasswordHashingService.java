@@ -0,0 +1,146 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.exception.PasswordHashingOverloadedException;
+import com.easyvan.van_booking_service.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * hash/ตรวจรหัสผ่าน (BCrypt) บน thread pool แยกที่จำกัดขนาด ไม่ให้ช่วงที่มีผู้เข้าสู่ระบบจำนวนมาก
+ * กิน CPU ทุก core จนคำขออื่น (เช่น การจอง) ต้องรอ เมื่อคิวเต็มจะโยน {@link PasswordHashingOverloadedException} ทันที
+ *
+ * metric: {@code password.hashing} (เวลาต่อ operation), {@code password.hashing.queue.depth},
+ * {@code password.hashing.active}, {@code password.hashing.rejected}
+ */
+@Service
+public class PasswordHashingService {
+
+    // $2a$10$... : cost อยู่ระหว่าง $ ตัวที่สองและตัวที่สาม
+    private static final Pattern BCRYPT_COST = Pattern.compile("\\A\\$2[abxy]?\\$(\\d{2})\\$");
+
+    private final PasswordEncoder passwordEncoder;
+    private final UserRepository userRepository;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final int bcryptStrength;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+            UserRepository userRepository,
+            MeterRegistry meterRegistry,
+            @Value("${password.hashing.threads:0}") int threads,
+            @Value("${password.hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${password.hashing.timeout-ms:5000}") long timeoutMillis,
+            @Value("${password.bcrypt.strength:10}") int bcryptStrength) {
+        this.passwordEncoder = passwordEncoder;
+        this.userRepository = userRepository;
+        this.timeoutMillis = timeoutMillis;
+        this.bcryptStrength = bcryptStrength;
+
+        // ค่าเริ่มต้นใช้ครึ่งหนึ่งของ core เหลือ CPU ไว้ให้คำขออื่นเสมอ
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = Timer.builder("password.hashing").tag("operation", "encode").register(meterRegistry);
+        this.matchesTimer = Timer.builder("password.hashing").tag("operation", "matches").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("password.hashing.rejected").register(meterRegistry);
+        meterRegistry.gauge("password.hashing.queue.depth", executor, e -> e.getQueue().size());
+        meterRegistry.gauge("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount);
+    }
+
+    public String encode(String rawPassword) {
+        return submit(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)));
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return submit(() -> matchesTimer.record(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+    }
+
+    /**
+     * หลังเข้าสู่ระบบสำเร็จ: หาก hash เดิมใช้ค่า cost ต่างจากที่ตั้งไว้ ({@code password.bcrypt.strength})
+     * ให้ hash ใหม่ในเบื้องหลังและบันทึก ผู้ใช้จึงได้ cost ใหม่โดยไม่ต้องรีเซ็ตรหัสผ่าน
+     * (รวมถึงกรณีลด cost ลงหลังวัดแล้วว่าเข้าสู่ระบบช้าเกินไป)
+     * ถ้าคิวเต็มจะข้ามไปก่อน แล้วทำในการเข้าสู่ระบบครั้งถัดไป
+     */
+    public void rehashIfNeeded(Long userId, String rawPassword, String encodedPassword) {
+        if (!hasDifferentCost(encodedPassword)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                String upgraded = encodeTimer.record(() -> passwordEncoder.encode(rawPassword));
+                // เปลี่ยนเฉพาะเมื่อรหัสผ่านยังเป็นค่าเดิม ไม่ทับการเปลี่ยนรหัสผ่านที่เกิดขึ้นระหว่างนี้
+                userRepository.replacePasswordHash(userId, encodedPassword, upgraded);
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+        }
+    }
+
+    // hash ที่อ่าน cost ไม่ได้ (ไม่ใช่ BCrypt) ถือว่าไม่ต้อง hash ใหม่
+    private boolean hasDifferentCost(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != bcryptStrength;
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new PasswordHashingOverloadedException("ระบบมีผู้ใช้งานจำนวนมาก กรุณาลองใหม่อีกครั้ง");
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedCounter.increment();
+            throw new PasswordHashingOverloadedException("ระบบมีผู้ใช้งานจำนวนมาก กรุณาลองใหม่อีกครั้ง");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("การตรวจสอบรหัสผ่านถูกขัดจังหวะ");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,96 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.dto.SeatLease;
+import com.easyvan.van_booking_service.entity.Booking;
+import com.easyvan.van_booking_service.entity.Schedule;
+import com.easyvan.van_booking_service.repository.BookingRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ล็อกที่นั่งด้วย {@code pg_try_advisory_xact_lock(bigint)} ซึ่งจะถูกปล่อยอัตโนมัติเมื่อ transaction จบ
+ * ระหว่างถือ lock จะตรวจสอบว่าไม่มีการจองที่ยัง active อยู่บนที่นั่งนั้น หลังจาก commit แล้วแถวการจอง
+ * ในตาราง bookings จะเป็นตัวกันที่นั่งเอง ใช้เป็นตัวสำรองเมื่อ Redis ใช้งานไม่ได้
+ */
+@Component
+public class PostgresSeatLockStrategy implements SeatLockStrategy {
+
+    // จำนวนที่นั่งสูงสุดต่อรอบที่ key ไม่ชนกัน (รถตู้มีไม่เกิน 15 ที่นั่ง)
+    private static final int SEATS_PER_SCHEDULE = 1024;
+
+    private final BookingRepository bookingRepository;
+
+    public PostgresSeatLockStrategy(BookingRepository bookingRepository) {
+        this.bookingRepository = bookingRepository;
+    }
+
+    @Override
+    public String getName() {
+        return "postgres";
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public SeatLease acquire(Schedule schedule, Integer seatNumber, String owner) {
+        if (!bookingRepository.tryAdvisoryXactLock(lockKey(schedule, seatNumber))) {
+            // มีอีก transaction กำลังจองที่นั่งนี้อยู่
+            return null;
+        }
+        if (bookingRepository.existsByScheduleIdAndSeatNumberAndStatusIn(schedule.getId(), seatNumber,
+                Booking.ACTIVE_STATUSES)) {
+            return null;
+        }
+        return new SeatLease(owner, null);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<SeatLease> acquireAll(Schedule schedule, List<Integer> seatNumbers, String owner) {
+        // ล็อกตามลำดับหมายเลขที่นั่งเสมอ
+        List<Integer> sorted = seatNumbers.stream().sorted().toList();
+        for (Integer seatNumber : sorted) {
+            if (!bookingRepository.tryAdvisoryXactLock(lockKey(schedule, seatNumber))) {
+                return null;
+            }
+        }
+        if (bookingRepository.existsByScheduleIdAndSeatNumberInAndStatusIn(schedule.getId(), seatNumbers,
+                Booking.ACTIVE_STATUSES)) {
+            return null;
+        }
+        List<SeatLease> leases = new ArrayList<>();
+        seatNumbers.forEach(seat -> leases.add(new SeatLease(owner, null)));
+        return leases;
+    }
+
+    @Override
+    public boolean confirm(Schedule schedule, Integer seatNumber, SeatLease lease) {
+        // แถวการจองในฐานข้อมูลเป็นตัวกันที่นั่งอยู่แล้ว
+        return true;
+    }
+
+    @Override
+    public boolean extend(Schedule schedule, Integer seatNumber, SeatLease lease) {
+        // เวลาถือครองคือ hold_expires_at ของแถวการจอง ซึ่ง BookingService ต่อเวลาเอง
+        return true;
+    }
+
+    @Override
+    public void release(Schedule schedule, Integer seatNumber, String owner) {
+        // lock ถูกปล่อยเมื่อ transaction จบ ส่วนสถานะการจองถูกเปลี่ยนโดย BookingService
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public SeatLease move(Schedule from, Schedule to, Integer seatNumber, String owner) {
+        return acquire(to, seatNumber, owner);
+    }
+
+    // key เดียวแบบ 64 บิตจาก (scheduleId, ที่นั่ง) ไม่ล้นแม้ id ของรอบรถเกิน int
+    private static long lockKey(Schedule schedule, int seatNumber) {
+        return schedule.getId() * SEATS_PER_SCHEDULE + seatNumber;
+    }
+}
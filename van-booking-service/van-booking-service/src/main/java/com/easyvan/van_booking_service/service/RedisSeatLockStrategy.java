@@ -0,0 +1,55 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.dto.SeatLease;
+import com.easyvan.van_booking_service.entity.Schedule;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * ล็อกที่นั่งด้วยผังที่นั่งบน Redis (ดู {@link SeatMapService}) เหมาะกับการรันหลายเครื่อง
+ */
+@Component
+public class RedisSeatLockStrategy implements SeatLockStrategy {
+
+    private final SeatMapService seatMapService;
+
+    public RedisSeatLockStrategy(SeatMapService seatMapService) {
+        this.seatMapService = seatMapService;
+    }
+
+    @Override
+    public String getName() {
+        return "redis";
+    }
+
+    @Override
+    public SeatLease acquire(Schedule schedule, Integer seatNumber, String owner) {
+        return seatMapService.hold(schedule, seatNumber, owner);
+    }
+
+    @Override
+    public List<SeatLease> acquireAll(Schedule schedule, List<Integer> seatNumbers, String owner) {
+        return seatMapService.holdAll(schedule, seatNumbers, owner);
+    }
+
+    @Override
+    public boolean confirm(Schedule schedule, Integer seatNumber, SeatLease lease) {
+        return seatMapService.confirm(schedule, seatNumber, lease);
+    }
+
+    @Override
+    public boolean extend(Schedule schedule, Integer seatNumber, SeatLease lease) {
+        return seatMapService.extend(schedule, seatNumber, lease);
+    }
+
+    @Override
+    public void release(Schedule schedule, Integer seatNumber, String owner) {
+        seatMapService.release(schedule, seatNumber, owner);
+    }
+
+    @Override
+    public SeatLease move(Schedule from, Schedule to, Integer seatNumber, String owner) {
+        return seatMapService.move(from, to, seatNumber, owner);
+    }
+}
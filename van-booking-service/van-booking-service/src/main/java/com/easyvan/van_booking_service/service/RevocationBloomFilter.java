@@ -0,0 +1,73 @@
+package com.easyvan.van_booking_service.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter แบบ thread-safe สำหรับ jti ที่ถูกเพิกถอน ตอบ "ไม่อยู่ในชุดแน่นอน" ได้โดยไม่ต้องล็อกหรือทำ I/O
+ * ลบสมาชิกไม่ได้ จึงต้องสร้างใหม่จากชุดที่ยังไม่หมดอายุเป็นระยะ (ดู {@link TokenRevocationService})
+ */
+final class RevocationBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final int bitCount;
+    private final int hashCount;
+
+    RevocationBloomFilter(int expectedItems, double falsePositiveRate) {
+        int n = Math.max(1, expectedItems);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, m));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.bits = new AtomicLongArray((bitCount + 63) / 64);
+    }
+
+    void add(String value) {
+        long hash = hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = index(h1 + i * h2);
+            int word = bit >>> 6;
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    boolean mightContain(String value) {
+        long hash = hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            int bit = index(h1 + i * h2);
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(int combined) {
+        return (combined & Integer.MAX_VALUE) % bitCount;
+    }
+
+    // FNV-1a 64 บิต ตามด้วย finalizer ของ MurmurHash3 เพื่อกระจายบิตให้ทั่ว
+    private static long hash64(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
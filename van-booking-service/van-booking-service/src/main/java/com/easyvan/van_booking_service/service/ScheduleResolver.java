@@ -0,0 +1,88 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.entity.Schedule;
+import com.easyvan.van_booking_service.repository.RouteRepository;
+import com.easyvan.van_booking_service.repository.SchedulesRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * หาหรือสร้างรอบรถของ (เส้นทาง, เวลาออก) โดยไม่เกิดแถวซ้ำเมื่อผู้โดยสารหลายคนจองรอบใหม่พร้อมกัน
+ *
+ * id ของรอบที่หาเจอแล้วถูกจำไว้ใน cache ภายในเครื่อง (จำกัดขนาด) การจองครั้งถัดไปของรอบเดียวกันจึงอ่านแถว
+ * ด้วย primary key ครั้งเดียวแทน insert + select จำเฉพาะ id ไม่จำ entity เพราะแอดมินอาจแก้ไขหรือลบรอบผ่านเครื่องอื่น
+ * ข้อมูลคนขับ/รถ/ความจุจึงอ่านใหม่ทุกครั้ง และ id ที่ถูกลบไปแล้วจะถูกตรวจพบแล้วสร้างรอบใหม่แทน
+ * รอบที่เพิ่งสร้างจะเข้า cache หลัง commit เท่านั้น เพื่อไม่ให้จำ id ของแถวที่ถูก rollback
+ */
+@Service
+public class ScheduleResolver {
+
+    private final SchedulesRepository schedulesRepository;
+    private final RouteRepository routeRepository;
+    private final Cache<String, Long> resolved;
+
+    public ScheduleResolver(SchedulesRepository schedulesRepository,
+            RouteRepository routeRepository,
+            @Value("${schedule.cache.max-size:10000}") long maxSize,
+            @Value("${schedule.cache.ttl-minutes:10}") long ttlMinutes) {
+        this.schedulesRepository = schedulesRepository;
+        this.routeRepository = routeRepository;
+        this.resolved = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    public Schedule findOrCreate(Long routeId, LocalDateTime departureTime) {
+        String key = key(routeId, departureTime);
+        Long cachedId = resolved.getIfPresent(key);
+        if (cachedId != null) {
+            Schedule cached = schedulesRepository.findById(cachedId).orElse(null);
+            if (cached != null) {
+                return cached;
+            }
+            resolved.invalidate(key);
+        }
+
+        if (!routeRepository.existsById(routeId)) {
+            throw new RuntimeException("ไม่พบเส้นทางที่ระบุ");
+        }
+        Long id = schedulesRepository.insertIfAbsent(routeId, departureTime);
+        Schedule schedule = id != null
+                ? schedulesRepository.findById(id).orElseThrow()
+                : schedulesRepository.findByRouteIdAndDepartureTime(routeId, departureTime)
+                        .orElseThrow(() -> new RuntimeException("ไม่พบรอบรถที่ระบุ"));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    resolved.put(key, schedule.getId());
+                }
+            });
+        } else {
+            resolved.put(key, schedule.getId());
+        }
+        return schedule;
+    }
+
+    // เรียกเมื่อแอดมินแก้ไข/ลบรอบรถบนเครื่องนี้ (เครื่องอื่นตรวจพบ id ที่ถูกลบเองตอนอ่าน)
+    public void evict(Long routeId, LocalDateTime departureTime) {
+        resolved.invalidate(key(routeId, departureTime));
+    }
+
+    public void evictById(Long scheduleId) {
+        resolved.asMap().values().removeIf(scheduleId::equals);
+    }
+
+    private static String key(Long routeId, LocalDateTime departureTime) {
+        return routeId + "|" + departureTime;
+    }
+}
@@ -1,15 +1,25 @@
 package com.easyvan.van_booking_service.service;
 
+import com.easyvan.van_booking_service.dto.DepartureAvailabilityDTO;
+import com.easyvan.van_booking_service.dto.ScheduleOccupancyDTO;
+import com.easyvan.van_booking_service.entity.Booking;
 import com.easyvan.van_booking_service.entity.Route;
 import com.easyvan.van_booking_service.entity.Schedule;
 import com.easyvan.van_booking_service.repository.RouteRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class ScheduleService {
@@ -17,10 +27,25 @@ public class ScheduleService {
     private final RouteRepository routeRepository;
     private final com.easyvan.van_booking_service.repository.SchedulesRepository schedulesRepository;
 
+    // ตารางเวลารถของแต่ละ (routeId, วันที่) คำนวณครั้งเดียวแล้วใช้ซ้ำ
+    private final Cache<String, List<Schedule>> timetables;
+
     public ScheduleService(RouteRepository routeRepository,
-            com.easyvan.van_booking_service.repository.SchedulesRepository schedulesRepository) {
+            com.easyvan.van_booking_service.repository.SchedulesRepository schedulesRepository,
+            @Value("${schedule.timetable-cache.max-size:5000}") long timetableCacheSize,
+            @Value("${schedule.timetable-cache.ttl-minutes:10}") long timetableCacheTtlMinutes) {
         this.routeRepository = routeRepository;
         this.schedulesRepository = schedulesRepository;
+        this.timetables = Caffeine.newBuilder()
+                .maximumSize(timetableCacheSize)
+                .expireAfterWrite(Duration.ofMinutes(timetableCacheTtlMinutes))
+                .build();
+    }
+
+    // ตารางเวลาที่จำไว้มีข้อมูลเส้นทางอยู่ด้วย ต้องล้างเมื่อแอดมินแก้ไขเส้นทาง
+    public void evictTimetables(Long routeId) {
+        String prefix = routeId + "|";
+        timetables.asMap().keySet().removeIf(key -> key.startsWith(prefix));
     }
 
     public Schedule getScheduleById(Long id) {
@@ -28,6 +53,54 @@ public class ScheduleService {
     }
 
     public List<Schedule> generateDynamicSchedules(Long routeId, LocalDate date) {
+        return timetables.get(routeId + "|" + date, key -> List.copyOf(buildTimetable(routeId, date)));
+    }
+
+    /**
+     * ทุกรอบของเส้นทางในวันที่เลือกพร้อมจำนวนที่นั่งคงเหลือ นับที่นั่งของทั้งวันด้วย aggregate query เดียว
+     * รอบที่แอดมินสร้างไว้นอกตารางปกติจะถูกรวมมาด้วย
+     */
+    public List<DepartureAvailabilityDTO> getDayAvailability(Long routeId, LocalDate date) {
+        List<Schedule> timetable = generateDynamicSchedules(routeId, date);
+        if (timetable.isEmpty()) {
+            return List.of();
+        }
+
+        Map<LocalDateTime, ScheduleOccupancyDTO> occupancy = new HashMap<>();
+        for (ScheduleOccupancyDTO row : schedulesRepository.findOccupancy(routeId, date.atStartOfDay(),
+                date.plusDays(1).atStartOfDay(), Booking.ACTIVE_STATUSES)) {
+            occupancy.put(row.getDepartureTime(), row);
+        }
+
+        List<DepartureAvailabilityDTO> availability = new ArrayList<>();
+        for (Schedule slot : timetable) {
+            availability.add(toAvailability(slot.getId(), slot.getDepartureTime(),
+                    occupancy.remove(slot.getDepartureTime())));
+        }
+        long nextId = timetable.size() + 1;
+        for (ScheduleOccupancyDTO extra : occupancy.values().stream()
+                .sorted(Comparator.comparing(ScheduleOccupancyDTO::getDepartureTime)).toList()) {
+            availability.add(toAvailability(nextId++, extra.getDepartureTime(), extra));
+        }
+        availability.sort(Comparator.comparing(DepartureAvailabilityDTO::getDepartureTime));
+        return availability;
+    }
+
+    private static DepartureAvailabilityDTO toAvailability(Long id, LocalDateTime departureTime,
+            ScheduleOccupancyDTO occupancy) {
+        if (occupancy == null) {
+            return new DepartureAvailabilityDTO(id, null, departureTime, "AVAILABLE",
+                    SeatMapService.DEFAULT_CAPACITY, 0, SeatMapService.DEFAULT_CAPACITY);
+        }
+        int capacity = occupancy.getVehicleCapacity() != null ? occupancy.getVehicleCapacity()
+                : SeatMapService.DEFAULT_CAPACITY;
+        int booked = occupancy.getBookedSeats().intValue();
+        int remaining = "CANCELLED".equals(occupancy.getStatus()) ? 0 : Math.max(0, capacity - booked);
+        return new DepartureAvailabilityDTO(id, occupancy.getScheduleId(), departureTime, occupancy.getStatus(),
+                capacity, booked, remaining);
+    }
+
+    private List<Schedule> buildTimetable(Long routeId, LocalDate date) {
         List<Schedule> generatedSchedules = new ArrayList<>();
         Route route = routeRepository.findById(routeId).orElse(null);
 
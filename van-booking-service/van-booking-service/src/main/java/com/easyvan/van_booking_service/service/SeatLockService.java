@@ -0,0 +1,141 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.dto.SeatLease;
+import com.easyvan.van_booking_service.entity.Schedule;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * จุดเดียวที่ BookingService ใช้ล็อกที่นั่ง เลือก {@link SeatLockStrategy} ตาม config
+ * {@code seat-lock.strategy} และสลับไปใช้ {@code seat-lock.fallback} เมื่อ strategy หลักเกิดข้อผิดพลาด
+ * (เช่น Redis ล่ม) ทุก operation ถูกจับเวลาเป็น metric {@code seat.lock.operation}
+ * แยกตาม strategy, operation และ outcome เพื่อเปรียบเทียบ latency ของแต่ละแบบ
+ */
+@Service
+public class SeatLockService {
+
+    private final SeatLockStrategy primary;
+    private final SeatLockStrategy fallback;
+    private final SeatMapService seatMapService;
+    private final MeterRegistry meterRegistry;
+
+    // ผังที่นั่งบน Redis ที่ต้องโหลดใหม่เพราะมีการเปลี่ยนแปลงผ่าน strategy อื่นระหว่างที่ Redis ใช้งานไม่ได้
+    private final Set<String> staleSeatMaps = ConcurrentHashMap.newKeySet();
+
+    public SeatLockService(List<SeatLockStrategy> strategies,
+            SeatMapService seatMapService,
+            MeterRegistry meterRegistry,
+            @Value("${seat-lock.strategy:redis}") String strategyName,
+            @Value("${seat-lock.fallback:postgres}") String fallbackName) {
+        Map<String, SeatLockStrategy> byName = new HashMap<>();
+        strategies.forEach(s -> byName.put(s.getName(), s));
+
+        this.primary = byName.get(strategyName);
+        if (this.primary == null) {
+            throw new IllegalStateException("ไม่รู้จัก seat-lock.strategy: " + strategyName);
+        }
+        this.fallback = fallbackName.isBlank() || fallbackName.equals(strategyName) ? null : byName.get(fallbackName);
+        this.seatMapService = seatMapService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public SeatLease acquire(Schedule schedule, Integer seatNumber, String owner) {
+        return execute("acquire", s -> s.acquire(schedule, seatNumber, owner), schedule);
+    }
+
+    public List<SeatLease> acquireAll(Schedule schedule, List<Integer> seatNumbers, String owner) {
+        return execute("acquire_all", s -> s.acquireAll(schedule, seatNumbers, owner), schedule);
+    }
+
+    public boolean confirm(Schedule schedule, Integer seatNumber, SeatLease lease) {
+        return execute("confirm", s -> s.confirm(schedule, seatNumber, lease), schedule);
+    }
+
+    public boolean extend(Schedule schedule, Integer seatNumber, SeatLease lease) {
+        return execute("extend", s -> s.extend(schedule, seatNumber, lease), schedule);
+    }
+
+    public void release(Schedule schedule, Integer seatNumber, String owner) {
+        execute("release", s -> {
+            s.release(schedule, seatNumber, owner);
+            return Boolean.TRUE;
+        }, schedule);
+    }
+
+    public SeatLease move(Schedule from, Schedule to, Integer seatNumber, String owner) {
+        return execute("move", s -> s.move(from, to, seatNumber, owner), from, to);
+    }
+
+    private <T> T execute(String operation, Function<SeatLockStrategy, T> action, Schedule... touched) {
+        try {
+            flushStaleSeatMaps();
+            T result = timed(primary, operation, action);
+            if (!isRedis(primary)) {
+                invalidateSeatMaps(touched);
+            }
+            return result;
+        } catch (DataAccessException e) {
+            if (fallback == null) {
+                throw e;
+            }
+            System.err.println("Warning: seat lock '" + primary.getName() + "' unavailable, using '"
+                    + fallback.getName() + "': " + e.getMessage());
+            T result = timed(fallback, operation, action);
+            invalidateSeatMaps(touched);
+            return result;
+        }
+    }
+
+    private <T> T timed(SeatLockStrategy strategy, String operation, Function<SeatLockStrategy, T> action) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            T result = action.apply(strategy);
+            outcome = result == null || Boolean.FALSE.equals(result) ? "rejected" : "ok";
+            return result;
+        } finally {
+            sample.stop(Timer.builder("seat.lock.operation")
+                    .tag("strategy", strategy.getName())
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private void invalidateSeatMaps(Schedule... schedules) {
+        for (Schedule schedule : schedules) {
+            Long routeId = schedule.getRoute().getId();
+            LocalDateTime departureTime = schedule.getDepartureTime();
+            if (!seatMapService.evict(routeId, departureTime) && isRedis(primary)) {
+                staleSeatMaps.add(routeId + "|" + departureTime);
+            }
+        }
+    }
+
+    private void flushStaleSeatMaps() {
+        if (staleSeatMaps.isEmpty() || !isRedis(primary)) {
+            return;
+        }
+        for (String entry : List.copyOf(staleSeatMaps)) {
+            String[] parts = entry.split("\\|");
+            if (seatMapService.evict(Long.valueOf(parts[0]), LocalDateTime.parse(parts[1]))) {
+                staleSeatMaps.remove(entry);
+            }
+        }
+    }
+
+    private static boolean isRedis(SeatLockStrategy strategy) {
+        return strategy instanceof RedisSeatLockStrategy;
+    }
+}
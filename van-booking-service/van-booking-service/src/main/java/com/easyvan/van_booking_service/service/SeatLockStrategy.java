@@ -0,0 +1,44 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.dto.SeatLease;
+import com.easyvan.van_booking_service.entity.Schedule;
+
+import java.util.List;
+
+/**
+ * วิธีการล็อกที่นั่งระหว่างการจอง เลือกใช้ผ่าน config {@code seat-lock.strategy}
+ * (redis, postgres หรือ local) ทุกเมธอดต้องถูกเรียกภายใน transaction ของการจอง
+ * เพราะบาง implementation ถือ lock ไว้จนกว่า transaction จะจบ
+ */
+public interface SeatLockStrategy {
+
+    String getName();
+
+    /**
+     * ถือครองที่นั่งให้ owner คืนค่า null หากที่นั่งไม่ว่าง
+     */
+    SeatLease acquire(Schedule schedule, Integer seatNumber, String owner);
+
+    /**
+     * ถือครองหลายที่นั่งพร้อมกันแบบ all-or-nothing คืนค่า null หากมีที่นั่งใดไม่ว่าง
+     * ลำดับของ lease ตรงกับลำดับของ seatNumbers
+     */
+    List<SeatLease> acquireAll(Schedule schedule, List<Integer> seatNumbers, String owner);
+
+    /**
+     * ยืนยันที่นั่งหลังชำระเงิน คืนค่า false หากที่นั่งถูกผู้อื่นถือครองไปแล้ว
+     */
+    boolean confirm(Schedule schedule, Integer seatNumber, SeatLease lease);
+
+    /**
+     * ต่อเวลาการถือครองที่นั่งของ lease คืนค่า false หากไม่ได้ถือครองอยู่แล้ว
+     */
+    boolean extend(Schedule schedule, Integer seatNumber, SeatLease lease);
+
+    void release(Schedule schedule, Integer seatNumber, String owner);
+
+    /**
+     * ย้ายที่นั่งเดิมไปยังรอบใหม่ คืนค่า null หากที่นั่งในรอบใหม่ไม่ว่าง
+     */
+    SeatLease move(Schedule from, Schedule to, Integer seatNumber, String owner);
+}
@@ -0,0 +1,257 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.dto.SeatMapEvent;
+import com.easyvan.van_booking_service.entity.Schedule;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * กระจายการเปลี่ยนแปลงของผังที่นั่งให้ผู้ชมที่เปิด SSE ค้างไว้
+ *
+ * เหตุการณ์ถูก publish ไปที่ Redis channel {@code seatmap-events} แล้วทุกเครื่อง (รวมเครื่องที่ publish เอง)
+ * รับกลับมาส่งต่อให้ emitter ของตัวเองในหน่วยความจำ ผู้ชมที่ไม่มีอะไรเปลี่ยนจึงไม่สร้าง query ใดๆ
+ * หาก Redis ใช้งานไม่ได้จะส่งให้ผู้ชมในเครื่องเดียวกันโดยตรงแทน
+ *
+ * thread ของ Redis listener และ heartbeat แค่นำ event เข้าคิวของผู้ชมแต่ละคน (จำกัดขนาด
+ * {@code seat-map.stream.queue-capacity}) การเขียนลง socket ทำบน sender pool แยกต่างหาก
+ * ผู้ชมที่อ่านไม่ทันจนคิวเต็มจะถูกตัดการเชื่อมต่อ (EventSource เชื่อมต่อใหม่และได้ snapshot ล่าสุด)
+ * จำนวน stream รวมต่อเครื่องจำกัดด้วย {@code seat-map.stream.max-subscribers} (ไม่จำกัดต่อ IP เพราะผู้ใช้หลังพร็อกซี/NAT
+ * เดียวกันเห็นเป็น IP เดียว และ stream เป็นแบบไม่ต้อง login จึงไม่มีตัวตนให้นับแทน)
+ */
+@Service
+public class SeatMapEventBroker implements MessageListener {
+
+    static final String CHANNEL = "seatmap-events";
+
+    private final SeatMapService seatMapService;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final long emitterTimeoutMillis;
+    private final int maxSubscribers;
+    private final int queueCapacity;
+    private final ThreadPoolExecutor senders;
+    private final Counter dropped;
+
+    // seat map key -> ผู้ชมรอบนั้นบนเครื่องนี้
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    public SeatMapEventBroker(SeatMapService seatMapService,
+            StringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper,
+            RedisMessageListenerContainer listenerContainer,
+            MeterRegistry meterRegistry,
+            @Value("${seat-map.stream.timeout-ms:1800000}") long emitterTimeoutMillis,
+            @Value("${seat-map.stream.max-subscribers:10000}") int maxSubscribers,
+            @Value("${seat-map.stream.queue-capacity:32}") int queueCapacity,
+            @Value("${seat-map.stream.sender-threads:4}") int senderThreads) {
+        this.seatMapService = seatMapService;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.emitterTimeoutMillis = emitterTimeoutMillis;
+        this.maxSubscribers = maxSubscribers;
+        this.queueCapacity = queueCapacity;
+
+        // ผู้ชมแต่ละคนมีงานส่งค้างในคิวได้ไม่เกินหนึ่งงาน คิวขนาด maxSubscribers จึงไม่เต็ม
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxSubscribers)),
+                runnable -> new Thread(runnable, "seat-map-sender-" + threadNumber.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.dropped = meterRegistry.counter("seat.map.stream.dropped");
+
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        meterRegistry.gauge("seat.map.stream.subscribers", subscriberCount);
+        meterRegistry.gauge("seat.map.stream.sender.queue.depth", senders, s -> s.getQueue().size());
+    }
+
+    /**
+     * เปิด stream ของรอบรถ ส่งผังที่นั่งปัจจุบันเป็น event {@code snapshot} ก่อน แล้วตามด้วย event {@code seat}
+     * ทุกครั้งที่มีที่นั่งเปลี่ยนสถานะ คืนค่า null เมื่อจำนวนผู้ชมบนเครื่องนี้เต็มแล้ว
+     */
+    public SseEmitter subscribe(Long routeId, LocalDateTime departureTime) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return null;
+        }
+        String key = SeatMapService.key(routeId, departureTime);
+        Subscriber subscriber = new Subscriber(new SseEmitter(emitterTimeoutMillis),
+                new ArrayBlockingQueue<>(queueCapacity));
+        subscribers.compute(key, (k, current) -> {
+            Set<Subscriber> target = current != null ? current : ConcurrentHashMap.newKeySet();
+            target.add(subscriber);
+            return target;
+        });
+
+        SseEmitter emitter = subscriber.emitter();
+        Runnable remove = () -> unsubscribe(key, subscriber);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        enqueue(subscriber, SseEmitter.event().name("snapshot").data(seatMapService.read(routeId, departureTime)));
+        return emitter;
+    }
+
+    public void publish(Schedule schedule, Integer seatNumber, String state) {
+        publish(schedule.getRoute().getId(), schedule.getDepartureTime(), seatNumber, state);
+    }
+
+    /**
+     * แจ้งการเปลี่ยนสถานะที่นั่ง หากอยู่ใน transaction จะส่งหลัง commit เท่านั้น
+     * เพื่อไม่ให้ผู้ชมเห็นสถานะที่ถูก rollback ไปแล้ว
+     */
+    public void publish(Long routeId, LocalDateTime departureTime, Integer seatNumber, String state) {
+        SeatMapEvent event = new SeatMapEvent(routeId, departureTime, seatNumber, state);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    broadcast(event);
+                }
+            });
+        } else {
+            broadcast(event);
+        }
+    }
+
+    private void broadcast(SeatMapEvent event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            System.err.println("Warning: cannot serialize seat map event: " + e.getMessage());
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(CHANNEL, payload);
+        } catch (DataAccessException e) {
+            System.err.println("Warning: Redis unavailable, delivering seat map event locally: " + e.getMessage());
+            deliver(event);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            deliver(objectMapper.readValue(new String(message.getBody(), StandardCharsets.UTF_8), SeatMapEvent.class));
+        } catch (IOException e) {
+            System.err.println("Warning: ignoring malformed seat map event: " + e.getMessage());
+        }
+    }
+
+    private void deliver(SeatMapEvent event) {
+        Set<Subscriber> viewers = subscribers.get(SeatMapService.key(event.getRouteId(), event.getDepartureTime()));
+        if (viewers == null) {
+            return;
+        }
+        for (Subscriber subscriber : List.copyOf(viewers)) {
+            enqueue(subscriber, SseEmitter.event().name("seat").data(event));
+        }
+    }
+
+    // ส่ง comment เป็นระยะให้ proxy ไม่ตัดการเชื่อมต่อที่เงียบนาน และเก็บกวาด emitter ที่ผู้ชมปิดไปแล้ว
+    @Scheduled(fixedDelayString = "${seat-map.stream.heartbeat-ms:20000}")
+    public void heartbeat() {
+        for (Set<Subscriber> viewers : subscribers.values()) {
+            for (Subscriber subscriber : List.copyOf(viewers)) {
+                enqueue(subscriber, SseEmitter.event().comment("keep-alive"));
+            }
+        }
+    }
+
+    // ไม่ block: คิวเต็มแปลว่าผู้ชมอ่านไม่ทัน ให้ตัดการเชื่อมต่อแทนการรอ
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (!subscriber.pending().offer(event)) {
+            drop(subscriber);
+            return;
+        }
+        if (subscriber.draining().compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                drop(subscriber);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            SseEmitter.SseEventBuilder event;
+            while ((event = subscriber.pending().poll()) != null) {
+                try {
+                    subscriber.emitter().send(event);
+                } catch (IOException | IllegalStateException e) {
+                    subscriber.pending().clear();
+                    subscriber.emitter().completeWithError(e);
+                    return;
+                }
+            }
+            subscriber.draining().set(false);
+            // event ที่เข้าคิวหลัง poll ครั้งสุดท้ายแต่ก่อนปล่อย flag ต้องถูกส่งโดยรอบนี้
+            if (subscriber.pending().isEmpty() || !subscriber.draining().compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        if (subscriber.dropped().compareAndSet(false, true)) {
+            dropped.increment();
+            subscriber.pending().clear();
+            subscriber.emitter().complete();
+        }
+    }
+
+    private void unsubscribe(String key, Subscriber subscriber) {
+        subscribers.computeIfPresent(key, (k, viewers) -> {
+            if (viewers.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+            return viewers.isEmpty() ? null : viewers;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdown();
+    }
+
+    private record Subscriber(SseEmitter emitter, Queue<SseEmitter.SseEventBuilder> pending,
+            AtomicBoolean draining, AtomicBoolean dropped) {
+
+        Subscriber(SseEmitter emitter, Queue<SseEmitter.SseEventBuilder> pending) {
+            this(emitter, pending, new AtomicBoolean(), new AtomicBoolean());
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.dto.SeatLease;
+import com.easyvan.van_booking_service.dto.SeatMapDTO;
+import com.easyvan.van_booking_service.entity.Booking;
+import com.easyvan.van_booking_service.entity.Schedule;
+import com.easyvan.van_booking_service.repository.BookingRepository;
+import com.easyvan.van_booking_service.repository.SchedulesRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ผังที่นั่งของแต่ละรอบรถเก็บเป็น Redis hash เดียวต่อรอบ ({@code seatmap:{routeId}:{yyyyMMddHHmm}})
+ * field {@code _cap} คือความจุของรถ {@code _fence} คือตัวนับ fencing token ส่วน field อื่นคือหมายเลขที่นั่ง
+ * โดยค่าเป็น {@code H|<owner>|<fence>|<expiresAtMillis>} (กำลังถือครองรอชำระเงิน)
+ * หรือ {@code C|<owner>|<fence>} (ชำระเงินแล้ว)
+ *
+ * การเปลี่ยนสถานะทุกครั้งทำผ่าน Lua script เพื่อให้เป็น atomic และตรวจสอบเจ้าของก่อนเสมอ
+ * (compare-and-set / compare-and-delete) ทำให้เครื่องหนึ่งไม่สามารถปล่อยที่นั่งที่อีกเครื่องถือครองอยู่ได้
+ * การอ่านผังทั้งรอบใช้ HGETALL ครั้งเดียว ฐานข้อมูลจะถูกอ่านเฉพาะตอนที่ยังไม่มีผังของรอบนั้นใน Redis เท่านั้น
+ */
+@Service
+public class SeatMapService {
+
+    static final int DEFAULT_CAPACITY = 13;
+
+    private static final String CAPACITY_FIELD = "_cap";
+    private static final DateTimeFormatter KEY_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmm");
+
+    private static final long NOT_LOADED = -2;
+    private static final long TARGET_NOT_LOADED = -3;
+    private static final long OUT_OF_RANGE = -1;
+
+    private final StringRedisTemplate redisTemplate;
+    private final SchedulesRepository schedulesRepository;
+    private final BookingRepository bookingRepository;
+    private final Duration holdTtl;
+    private final Duration maxTtl;
+
+    private final RedisScript<Long> initScript = script("seat_map_init.lua");
+    private final RedisScript<Long> holdScript = script("seat_hold.lua");
+    private final RedisScript<Long> holdManyScript = script("seat_hold_many.lua");
+    private final RedisScript<Long> confirmScript = script("seat_confirm.lua");
+    private final RedisScript<Long> releaseScript = script("seat_release.lua");
+    private final RedisScript<Long> extendScript = script("seat_extend.lua");
+    private final RedisScript<Long> moveScript = script("seat_move.lua");
+
+    public SeatMapService(StringRedisTemplate redisTemplate,
+            SchedulesRepository schedulesRepository,
+            BookingRepository bookingRepository,
+            @Value("${booking.hold-ttl-minutes:10}") long holdTtlMinutes,
+            @Value("${seat-map.max-ttl-hours:48}") long maxTtlHours) {
+        this.redisTemplate = redisTemplate;
+        this.schedulesRepository = schedulesRepository;
+        this.bookingRepository = bookingRepository;
+        this.holdTtl = Duration.ofMinutes(holdTtlMinutes);
+        this.maxTtl = Duration.ofHours(maxTtlHours);
+    }
+
+    private static RedisScript<Long> script(String name) {
+        return RedisScript.of(new ClassPathResource("redis/" + name), Long.class);
+    }
+
+    public Duration getHoldTtl() {
+        return holdTtl;
+    }
+
+    /**
+     * อ่านผังที่นั่งทั้งรอบด้วย round trip เดียว หาก Redis ใช้งานไม่ได้จะอ่านจากฐานข้อมูลแทน
+     * รอบที่ยังไม่มีในฐานข้อมูลคืนผังว่างโดยไม่สร้าง key ใน Redis (routeId/เวลาใดๆ จึงสร้าง key ไม่ได้)
+     */
+    public SeatMapDTO read(Long routeId, LocalDateTime departureTime) {
+        String key = key(routeId, departureTime);
+        try {
+            Map<Object, Object> entries = redisTemplate.opsForHash().entries(key);
+            if (!entries.containsKey(CAPACITY_FIELD)) {
+                Schedule schedule = schedulesRepository.findByRouteIdAndDepartureTime(routeId, departureTime)
+                        .orElse(null);
+                if (schedule == null) {
+                    return emptySeatMap(routeId, departureTime);
+                }
+                load(key, routeId, departureTime, schedule);
+                entries = redisTemplate.opsForHash().entries(key);
+            }
+            return toSeatMap(routeId, departureTime, entries);
+        } catch (DataAccessException e) {
+            System.err.println("Warning: Redis unavailable while reading seat map: " + e.getMessage());
+            return schedulesRepository.findByRouteIdAndDepartureTime(routeId, departureTime)
+                    .map(this::readFromDatabase)
+                    .orElseGet(() -> emptySeatMap(routeId, departureTime));
+        }
+    }
+
+    private static SeatMapDTO emptySeatMap(Long routeId, LocalDateTime departureTime) {
+        return new SeatMapDTO(routeId, departureTime, DEFAULT_CAPACITY, Collections.emptyList(),
+                Collections.emptyList());
+    }
+
+    /**
+     * ถือครองที่นั่งชั่วคราวในนามของ owner คืนค่า null หากที่นั่งไม่ว่าง
+     * ข้อผิดพลาดของ Redis จะถูกส่งต่อให้ผู้เรียกตัดสินใจ fallback เอง
+     */
+    public SeatLease hold(Schedule schedule, Integer seatNumber, String owner) {
+        String key = key(schedule);
+        long now = System.currentTimeMillis();
+        Long result = runLoaded(schedule, key, holdScript,
+                seatNumber.toString(), String.valueOf(now), String.valueOf(now + holdTtl.toMillis()), owner);
+        if (result == OUT_OF_RANGE) {
+            throw new RuntimeException("หมายเลขที่นั่งไม่ถูกต้อง");
+        }
+        return result > 0 ? new SeatLease(owner, result) : null;
+    }
+
+    /**
+     * ถือครองหลายที่นั่งพร้อมกันแบบ all-or-nothing ด้วย script เดียว คืนค่า null หากมีที่นั่งใดไม่ว่าง
+     * ลำดับของ lease ตรงกับลำดับของ seatNumbers
+     */
+    public List<SeatLease> holdAll(Schedule schedule, List<Integer> seatNumbers, String owner) {
+        String key = key(schedule);
+        long now = System.currentTimeMillis();
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(now));
+        args.add(String.valueOf(now + holdTtl.toMillis()));
+        args.add(owner);
+        seatNumbers.forEach(seat -> args.add(seat.toString()));
+
+        Long first = runLoaded(schedule, key, holdManyScript, args.toArray(new String[0]));
+        if (first == OUT_OF_RANGE) {
+            throw new RuntimeException("หมายเลขที่นั่งไม่ถูกต้อง");
+        }
+        if (first <= 0) {
+            return null;
+        }
+        List<SeatLease> leases = new ArrayList<>();
+        for (int i = 0; i < seatNumbers.size(); i++) {
+            leases.add(new SeatLease(owner, first + i));
+        }
+        return leases;
+    }
+
+    /**
+     * ยืนยันที่นั่งหลังชำระเงิน คืนค่า false หากที่นั่งถูกผู้อื่นถือครองไปแล้ว (การถือครองของ owner หมดอายุ)
+     */
+    public boolean confirm(Schedule schedule, Integer seatNumber, SeatLease lease) {
+        Long result = runLoaded(schedule, key(schedule), confirmScript,
+                seatNumber.toString(), String.valueOf(System.currentTimeMillis()), lease.getOwner(), fenceOf(lease));
+        return result > 0;
+    }
+
+    /**
+     * คืนที่นั่งแบบ compare-and-delete คืนค่า false หากผู้เรียกไม่ได้เป็นเจ้าของที่นั่งแล้ว
+     */
+    public boolean release(Schedule schedule, Integer seatNumber, String owner) {
+        return release(schedule.getRoute().getId(), schedule.getDepartureTime(), seatNumber, owner);
+    }
+
+    public boolean release(Long routeId, LocalDateTime departureTime, Integer seatNumber, String owner) {
+        Long result = redisTemplate.execute(releaseScript, List.of(key(routeId, departureTime)),
+                seatNumber.toString(), owner);
+        return result != null && result == 1;
+    }
+
+    /**
+     * ต่อเวลาการถือครองที่นั่งออกไปอีกหนึ่งช่วง hold TTL คืนค่า false หากไม่ได้ถือครองอยู่แล้ว
+     * หรือ fencing token ของ lease ต่ำกว่าของที่นั่ง
+     */
+    public boolean extend(Schedule schedule, Integer seatNumber, SeatLease lease) {
+        long now = System.currentTimeMillis();
+        Long result = runLoaded(schedule, key(schedule), extendScript,
+                seatNumber.toString(), String.valueOf(now), String.valueOf(now + holdTtl.toMillis()),
+                lease.getOwner(), fenceOf(lease));
+        return result == 1;
+    }
+
+    // การจองที่ทำผ่าน strategy ที่ไม่ออก token (เช่น postgres) ถูกโหลดเข้าผังด้วย token 0
+    private static String fenceOf(SeatLease lease) {
+        return lease.getFencingToken() != null ? lease.getFencingToken().toString() : "0";
+    }
+
+    /**
+     * ย้ายที่นั่งไปยังรอบใหม่แบบ atomic พร้อมออก fencing token ใหม่
+     * คืนค่า null หากที่นั่งเดียวกันในรอบใหม่ไม่ว่าง
+     */
+    public SeatLease move(Schedule from, Schedule to, Integer seatNumber, String owner) {
+        String fromKey = key(from);
+        String toKey = key(to);
+        long now = System.currentTimeMillis();
+        String[] args = { seatNumber.toString(), String.valueOf(now), String.valueOf(now + holdTtl.toMillis()),
+                owner };
+
+        Long result = redisTemplate.execute(moveScript, List.of(fromKey, toKey), (Object[]) args);
+        if (result != null && result == NOT_LOADED) {
+            load(fromKey, from);
+            result = redisTemplate.execute(moveScript, List.of(fromKey, toKey), (Object[]) args);
+        }
+        if (result != null && result == TARGET_NOT_LOADED) {
+            load(toKey, to);
+            result = redisTemplate.execute(moveScript, List.of(fromKey, toKey), (Object[]) args);
+        }
+        if (result != null && result == OUT_OF_RANGE) {
+            throw new RuntimeException("หมายเลขที่นั่งไม่ถูกต้อง");
+        }
+        return result != null && result > 0 ? new SeatLease(owner, result) : null;
+    }
+
+    /**
+     * เจ้าของ lock ของการจอง การจองเก่าที่ยังไม่มี lockOwner จะใช้รหัสการจองแทน
+     */
+    public static String ownerOf(Booking booking) {
+        return booking.getLockOwner() != null ? booking.getLockOwner() : "booking:" + booking.getId();
+    }
+
+    public static SeatLease leaseOf(Booking booking) {
+        return new SeatLease(ownerOf(booking), booking.getFencingToken());
+    }
+
+    /**
+     * ลบผังที่นั่งของรอบออกจาก Redis (เช่น เมื่อแอดมินเปลี่ยนรถทำให้ความจุเปลี่ยน) ผังจะถูกโหลดใหม่ในการใช้งานครั้งถัดไป
+     */
+    public boolean evict(Long routeId, LocalDateTime departureTime) {
+        try {
+            redisTemplate.delete(key(routeId, departureTime));
+            return true;
+        } catch (DataAccessException e) {
+            System.err.println("Warning: Redis unavailable while evicting seat map: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private Long runLoaded(Schedule schedule, String key, RedisScript<Long> script, String... args) {
+        Long result = redisTemplate.execute(script, List.of(key), (Object[]) args);
+        if (result != null && result == NOT_LOADED) {
+            load(key, schedule);
+            result = redisTemplate.execute(script, List.of(key), (Object[]) args);
+        }
+        return result != null ? result : 0L;
+    }
+
+    private void load(String key, Schedule schedule) {
+        load(key, schedule.getRoute().getId(), schedule.getDepartureTime(), schedule);
+    }
+
+    private void load(String key, Long routeId, LocalDateTime departureTime, Schedule schedule) {
+        List<String> seats = new ArrayList<>();
+        long highestFence = 0;
+
+        if (schedule != null && schedule.getId() != null) {
+            for (Booking booking : bookingRepository.findByScheduleId(schedule.getId())) {
+                if (!isActive(booking)) {
+                    continue;
+                }
+                seats.add(booking.getSeatNumber().toString());
+                seats.add(stateOf(booking));
+                if (booking.getFencingToken() != null) {
+                    highestFence = Math.max(highestFence, booking.getFencingToken());
+                }
+            }
+        }
+
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(capacityOf(schedule)));
+        args.add(String.valueOf(expireAt(departureTime)));
+        args.add(String.valueOf(highestFence));
+        args.addAll(seats);
+        redisTemplate.execute(initScript, List.of(key), args.toArray());
+    }
+
+    private SeatMapDTO readFromDatabase(Schedule schedule) {
+        List<Integer> held = new ArrayList<>();
+        List<Integer> confirmed = new ArrayList<>();
+        for (Booking booking : bookingRepository.findByScheduleId(schedule.getId())) {
+            if (!isActive(booking)) {
+                continue;
+            }
+            if ("PENDING".equals(booking.getStatus())) {
+                held.add(booking.getSeatNumber());
+            } else {
+                confirmed.add(booking.getSeatNumber());
+            }
+        }
+        Collections.sort(held);
+        Collections.sort(confirmed);
+        return new SeatMapDTO(schedule.getRoute().getId(), schedule.getDepartureTime(), capacityOf(schedule),
+                held, confirmed);
+    }
+
+    private SeatMapDTO toSeatMap(Long routeId, LocalDateTime departureTime, Map<Object, Object> entries) {
+        long now = System.currentTimeMillis();
+        int capacity = DEFAULT_CAPACITY;
+        List<Integer> held = new ArrayList<>();
+        List<Integer> confirmed = new ArrayList<>();
+
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            String field = entry.getKey().toString();
+            String value = entry.getValue().toString();
+            if (CAPACITY_FIELD.equals(field)) {
+                capacity = Integer.parseInt(value);
+            } else if (!field.startsWith("_")) {
+                Integer seat = Integer.valueOf(field);
+                if (value.startsWith("C")) {
+                    confirmed.add(seat);
+                } else if (holdExpiresAt(value) > now) {
+                    held.add(seat);
+                }
+            }
+        }
+        Collections.sort(held);
+        Collections.sort(confirmed);
+        return new SeatMapDTO(routeId, departureTime, capacity, held, confirmed);
+    }
+
+    private String stateOf(Booking booking) {
+        String owner = ownerOf(booking) + "|" + (booking.getFencingToken() != null ? booking.getFencingToken() : 0);
+        if (!"PENDING".equals(booking.getStatus())) {
+            return "C|" + owner;
+        }
+        LocalDateTime expiresAt = booking.getHoldExpiresAt();
+        if (expiresAt == null) {
+            LocalDateTime createdAt = booking.getCreatedAt() != null ? booking.getCreatedAt() : LocalDateTime.now();
+            expiresAt = createdAt.plus(holdTtl);
+        }
+        return "H|" + owner + "|" + toEpochMillis(expiresAt);
+    }
+
+    private static long holdExpiresAt(String value) {
+        // H|<owner>|<fence>|<expiresAtMillis>
+        String[] parts = value.split("\\|");
+        return parts.length < 4 ? 0 : Long.parseLong(parts[3]);
+    }
+
+    private static boolean isActive(Booking booking) {
+        return Booking.ACTIVE_STATUSES.contains(booking.getStatus());
+    }
+
+    static int capacityOf(Schedule schedule) {
+        if (schedule != null && schedule.getVehicle() != null && schedule.getVehicle().getCapacity() != null) {
+            return schedule.getVehicle().getCapacity();
+        }
+        return DEFAULT_CAPACITY;
+    }
+
+    private long expireAt(LocalDateTime departureTime) {
+        // เก็บผังไว้ถึงหนึ่งวันหลังรถออก (อย่างน้อยหนึ่งชั่วโมงนับจากตอนนี้) แต่ไม่เกิน seat-map.max-ttl-hours
+        // รอบที่อยู่ไกลกว่านั้นจะถูกโหลดจากฐานข้อมูลใหม่เมื่อ key หมดอายุ
+        long nowSeconds = System.currentTimeMillis() / 1000;
+        long afterDeparture = toEpochMillis(departureTime.plusDays(1)) / 1000;
+        long expireAt = Math.min(afterDeparture, nowSeconds + maxTtl.toSeconds());
+        return Math.max(expireAt, nowSeconds + 3600);
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static String key(Schedule schedule) {
+        return key(schedule.getRoute().getId(), schedule.getDepartureTime());
+    }
+
+    static String key(Long routeId, LocalDateTime departureTime) {
+        return "seatmap:" + routeId + ":" + departureTime.format(KEY_TIME_FORMAT);
+    }
+}
@@ -1,47 +1,144 @@
 package com.easyvan.van_booking_service.service;
 
 import com.easyvan.van_booking_service.dto.Slip2GoResponseDTO;
-import lombok.RequiredArgsConstructor;
+import com.easyvan.van_booking_service.exception.SlipVerifierUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.HttpMessageConverterExtractor;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.web.multipart.MultipartFile;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Base64;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * เรียก Slip2Go ผ่าน HTTP client แบบ pool ({@code AppConfig}) โดยมี bulkhead จำกัดจำนวนคำขอพร้อมกัน
+ * ({@code slip2go.bulkhead.*}) และ {@link CircuitBreaker} ที่ตัดการเรียกทันทีเมื่อ Slip2Go ล้มเหลวติดกัน
+ * ({@code slip2go.breaker.*}) กรณีถูกปฏิเสธจะโยน {@link SlipVerifierUnavailableException} เหมือน timeout
+ * metric: {@code slip2go.calls{outcome}}, {@code slip2go.latency}, {@code slip2go.circuit.state},
+ * {@code slip2go.bulkhead.available}
+ */
 @Service
-@RequiredArgsConstructor
 public class Slip2GoService {
 
-    private final RestTemplate restTemplate;
-
-    @Value("${slip2go.api.secret}")
-    private String apiSecret;
-
-    @Value("${slip2go.api.url}")
-    private String apiUrl;
+    private static final byte[] BODY_PREFIX = "{\"image\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BODY_SUFFIX = "\"}".getBytes(StandardCharsets.US_ASCII);
 
-    public Slip2GoResponseDTO verifySlip(MultipartFile file) throws Exception {
-        byte[] imageBytes = file.getBytes();
-        String base64Image = Base64.getEncoder().encodeToString(imageBytes);
+    private final RestTemplate restTemplate;
+    private final String apiSecret;
+    private final String apiUrl;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore bulkhead;
+    private final long bulkheadWaitMillis;
+    private final CircuitBreaker circuitBreaker;
+    private final Timer latency;
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.set("x-api-secret", apiSecret);
+    public Slip2GoService(RestTemplate restTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${slip2go.api.secret}") String apiSecret,
+            @Value("${slip2go.api.url}") String apiUrl,
+            @Value("${slip2go.bulkhead.max-concurrent:8}") int maxConcurrent,
+            @Value("${slip2go.bulkhead.wait-ms:500}") long bulkheadWaitMillis,
+            @Value("${slip2go.breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${slip2go.breaker.open-ms:30000}") long openMillis) {
+        this.restTemplate = restTemplate;
+        this.apiSecret = apiSecret;
+        this.apiUrl = apiUrl;
+        this.meterRegistry = meterRegistry;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.bulkheadWaitMillis = bulkheadWaitMillis;
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openMillis);
+        this.latency = Timer.builder("slip2go.latency").register(meterRegistry);
 
-        Map<String, Object> body = new HashMap<>();
-        body.put("image", base64Image); // Slip2Go typically expects base64 or URL
+        meterRegistry.gauge("slip2go.circuit.state", circuitBreaker, b -> b.getState().ordinal());
+        meterRegistry.gauge("slip2go.bulkhead.available", bulkhead, Semaphore::availablePermits);
+    }
 
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(body, headers);
+    /**
+     * ส่งรูปสลิปให้ Slip2Go ตรวจสอบ ({@code slip2go.api.url} ชี้ไปที่ stub server ในเครื่องได้ตอนทดสอบ)
+     * body {@code {"image": "<base64>"}} ถูกเข้ารหัสแบบ stream จากไฟล์โดยตรง ไม่สร้าง String base64 ทั้งก้อน
+     * ข้อผิดพลาดชั่วคราวจะโยน {@link SlipVerifierUnavailableException} ให้ผู้เรียกลองใหม่
+     */
+    public Slip2GoResponseDTO verifySlip(Path image) {
+        boolean permitted = false;
+        try {
+            permitted = bulkhead.tryAcquire(bulkheadWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!permitted) {
+            countCall("bulkhead_full");
+            throw new SlipVerifierUnavailableException("Slip verification temporarily unavailable (too many calls)", null);
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            bulkhead.release();
+            countCall("short_circuited");
+            throw new SlipVerifierUnavailableException("Slip verification temporarily unavailable (circuit open)", null);
+        }
 
+        long start = System.nanoTime();
         try {
-            return restTemplate.postForObject(apiUrl, entity, Slip2GoResponseDTO.class);
+            long imageSize = Files.size(image);
+            Slip2GoResponseDTO response = restTemplate.execute(apiUrl, HttpMethod.POST,
+                    request -> writeBody(request, image, imageSize),
+                    new HttpMessageConverterExtractor<>(Slip2GoResponseDTO.class, restTemplate.getMessageConverters()));
+            circuitBreaker.onSuccess();
+            countCall("success");
+            return response;
+        } catch (ResourceAccessException | HttpServerErrorException e) {
+            circuitBreaker.onFailure();
+            countCall("failure");
+            throw new SlipVerifierUnavailableException("Slip2Go unavailable: " + e.getMessage(), e);
         } catch (Exception e) {
+            // ปลายทางตอบกลับมาแล้ว (เช่น 4xx) ถือว่ายังใช้งานได้
+            circuitBreaker.onSuccess();
+            countCall("error");
             throw new RuntimeException("Error verifying slip with Slip2Go: " + e.getMessage());
+        } finally {
+            latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            bulkhead.release();
+        }
+    }
+
+    private void countCall(String outcome) {
+        meterRegistry.counter("slip2go.calls", "outcome", outcome).increment();
+    }
+
+    private void writeBody(ClientHttpRequest request, Path image, long imageSize) throws IOException {
+        request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        request.getHeaders().set("x-api-secret", apiSecret);
+        // ขนาด base64 คำนวณได้ล่วงหน้า จึงส่งแบบ fixed-length ได้โดยไม่ต้อง buffer body
+        request.getHeaders().setContentLength(BODY_PREFIX.length + 4 * ((imageSize + 2) / 3) + BODY_SUFFIX.length);
+
+        if (request instanceof StreamingHttpOutputMessage streaming) {
+            streaming.setBody(out -> writeImageJson(out, image));
+        } else {
+            writeImageJson(request.getBody(), image);
+        }
+    }
+
+    private static void writeImageJson(OutputStream out, Path image) throws IOException {
+        out.write(BODY_PREFIX);
+        // ปิด encoder เพื่อเขียน padding สุดท้าย แต่ห้ามปิด stream ของ request
+        try (InputStream in = Files.newInputStream(image);
+                OutputStream base64 = Base64.getEncoder().wrap(StreamUtils.nonClosing(out))) {
+            in.transferTo(base64);
         }
+        out.write(BODY_SUFFIX);
+        out.flush();
     }
 }
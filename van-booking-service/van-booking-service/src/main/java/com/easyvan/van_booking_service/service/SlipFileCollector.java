@@ -0,0 +1,92 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.repository.BookingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ลบไฟล์สลิปที่ไม่มีการจองใดอ้างถึงและไม่ถูกใช้มานานกว่า {@code slip.gc.min-age-minutes}
+ * (สลิปที่ตรวจไม่ผ่าน รูปย่อที่ไม่ได้ใช้)
+ *
+ * ไฟล์เก็บตาม hash ของเนื้อหา งานตรวจสอบหลายงานจึงอาจอ่านไฟล์เดียวกันอยู่พร้อมกัน การลบทันทีเมื่องานหนึ่ง
+ * ล้มเหลวจะทำให้งานอื่นอ่านไฟล์ไม่ได้ อายุขั้นต่ำต้องนานกว่าอายุของงานตรวจสอบ
+ * ({@code slip.verification.job-ttl-minutes}) และการอัปโหลดไฟล์เดิมซ้ำจะเริ่มนับอายุใหม่
+ * การไล่อ่าน directory อาจใช้เวลานาน จึงรันบน thread ของตัวเอง ไม่ใช้ scheduler ที่งาน @Scheduled อื่นใช้ร่วมกัน
+ */
+@Component
+public class SlipFileCollector {
+
+    private final FileStorageService fileStorageService;
+    private final BookingRepository bookingRepository;
+    private final Duration minAge;
+    private final int batchSize;
+    private final Counter deletedCounter;
+    private final ScheduledExecutorService scheduler;
+
+    public SlipFileCollector(FileStorageService fileStorageService,
+            BookingRepository bookingRepository,
+            MeterRegistry meterRegistry,
+            @Value("${slip.gc.min-age-minutes:180}") long minAgeMinutes,
+            @Value("${slip.gc.batch-size:500}") int batchSize,
+            @Value("${slip.gc.interval-minutes:60}") long intervalMinutes) {
+        this.fileStorageService = fileStorageService;
+        this.bookingRepository = bookingRepository;
+        this.minAge = Duration.ofMinutes(minAgeMinutes);
+        this.batchSize = batchSize;
+        this.deletedCounter = meterRegistry.counter("slip.files.collected");
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "slip-file-collector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::collectSafely, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    // exception ที่หลุดออกไปจะทำให้ ScheduledExecutorService หยุดรันรอบถัดไป
+    private void collectSafely() {
+        try {
+            collect();
+        } catch (RuntimeException e) {
+            System.err.println("Warning: slip file collection failed: " + e.getMessage());
+        }
+    }
+
+    public void collect() {
+        Instant cutoff = Instant.now().minus(minAge);
+        fileStorageService.forEachContentKeyOlderThan(cutoff, batchSize, candidates -> collectBatch(candidates, cutoff));
+    }
+
+    // ตรวจการอ้างถึงด้วย query เดียวต่อชุด และตรวจเวลาแก้ไขอีกครั้งก่อนลบ (อาจเพิ่งถูกอัปโหลดซ้ำ)
+    private void collectBatch(List<String> candidates, Instant cutoff) {
+        Set<String> referenced;
+        try {
+            referenced = new HashSet<>(bookingRepository.findReferencedSlipImages(candidates));
+        } catch (DataAccessException e) {
+            System.err.println("Warning: slip file collection skipped: " + e.getMessage());
+            return;
+        }
+        for (String key : candidates) {
+            if (!referenced.contains(key) && fileStorageService.deleteIfOlderThan(key, cutoff)) {
+                deletedCounter.increment();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,191 @@
+package com.easyvan.van_booking_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ย่อและบีบอัดรูปสลิปก่อนส่งตรวจสอบและจัดเก็บ (รูปจากกล้องมือถือมักมีขนาดหลาย MB แต่ QR อ่านได้ที่ความละเอียดต่ำกว่ามาก)
+ * พร้อมสร้างรูปย่อสำหรับหน้าแอดมิน ทำงานบน thread pool ที่จำกัดขนาด ({@code slip.image.*}) ด้วย ImageIO ของ JDK
+ *
+ * รูปถูก decode แบบ subsampling ตั้งแต่ตอนอ่าน จึงไม่ต้องสร้าง bitmap ความละเอียดเต็มใน heap
+ * หากผลลัพธ์ไม่เล็กกว่าเดิมจะใช้ไฟล์เดิม metric: {@code slip.image.normalize}, {@code slip.image.bytes.saved},
+ * {@code slip.image.normalized{result}}
+ */
+@Service
+public class SlipImageNormalizer {
+
+    private final FileStorageService fileStorageService;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+    private final Timer processingTimer;
+    private final Counter bytesSaved;
+    private final int maxDimension;
+    private final float quality;
+    private final int thumbnailDimension;
+    private final long skipBelowBytes;
+
+    public SlipImageNormalizer(FileStorageService fileStorageService,
+            MeterRegistry meterRegistry,
+            @Value("${slip.image.threads:2}") int threads,
+            @Value("${slip.image.queue-capacity:50}") int queueCapacity,
+            @Value("${slip.image.max-dimension:1600}") int maxDimension,
+            @Value("${slip.image.jpeg-quality:0.85}") float quality,
+            @Value("${slip.image.thumbnail-dimension:240}") int thumbnailDimension,
+            @Value("${slip.image.skip-below-bytes:262144}") long skipBelowBytes) {
+        this.fileStorageService = fileStorageService;
+        this.meterRegistry = meterRegistry;
+        this.maxDimension = maxDimension;
+        this.quality = quality;
+        this.thumbnailDimension = thumbnailDimension;
+        this.skipBelowBytes = skipBelowBytes;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "slip-image-" + threadNumber.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.processingTimer = Timer.builder("slip.image.normalize").register(meterRegistry);
+        this.bytesSaved = Counter.builder("slip.image.bytes.saved").baseUnit("bytes").register(meterRegistry);
+        meterRegistry.gauge("slip.image.queue.depth", executor, e -> e.getQueue().size());
+        // buffer ของ ImageIO อยู่ในหน่วยความจำ ไม่ต้องสร้างไฟล์ cache ชั่วคราวทุกครั้งที่เขียน
+        ImageIO.setUseCache(false);
+    }
+
+    /**
+     * ย่อรูปของไฟล์ {@code fileName} คืน key ของไฟล์ที่ควรใช้ต่อ (ไฟล์ใหม่ หรือไฟล์เดิมหากไม่คุ้มที่จะย่อ
+     * หรืออ่านรูปไม่ได้) โยน {@link java.util.concurrent.RejectedExecutionException} หากคิวเต็ม
+     */
+    public CompletableFuture<String> normalize(String fileName) {
+        return CompletableFuture.supplyAsync(() -> processingTimer.record(() -> process(fileName)), executor);
+    }
+
+    private String process(String fileName) {
+        Path source = fileStorageService.resolve(fileName);
+        try {
+            long originalSize = Files.size(source);
+            BufferedImage image = read(source);
+            if (image == null) {
+                count("unreadable");
+                return fileName;
+            }
+
+            String result = fileName;
+            boolean oversized = Math.max(image.getWidth(), image.getHeight()) > maxDimension;
+            if (oversized || originalSize > skipBelowBytes) {
+                BufferedImage scaled = scale(image, maxDimension);
+                FileStorageService.StoredFile stored = fileStorageService.write(out -> writeJpeg(scaled, quality, out));
+                if (stored.size() < originalSize) {
+                    bytesSaved.increment(originalSize - stored.size());
+                    result = stored.fileName();
+                    image = scaled;
+                    count("resized");
+                } else {
+                    // ไฟล์ที่ย่อแล้วไม่ได้ใช้ปล่อยให้ SlipFileCollector ลบ (อาจเป็นไฟล์เดียวกับสลิปของงานอื่น)
+                    count("kept");
+                }
+            } else {
+                count("kept");
+            }
+
+            BufferedImage thumbnail = scale(image, thumbnailDimension);
+            fileStorageService.writeThumbnail(result, out -> writeJpeg(thumbnail, 0.7f, out));
+            return result;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Warning: slip image not normalized (" + fileName + "): " + e.getMessage());
+            count("failed");
+            return fileName;
+        }
+    }
+
+    // decode โดยข้าม pixel ตั้งแต่ตอนอ่าน ให้ได้ภาพที่ยังใหญ่กว่า maxDimension เล็กน้อย แล้วค่อยย่อให้พอดีอีกครั้ง
+    private BufferedImage read(Path source) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, longest / maxDimension);
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // ย่อให้ด้านยาวไม่เกิน bound (ไม่ขยาย) และแปลงเป็น RGB บนพื้นขาว (JPEG ไม่มี alpha)
+    private static BufferedImage scale(BufferedImage image, int bound) {
+        double ratio = Math.min(1.0, (double) bound / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private static void writeJpeg(BufferedImage image, float quality, OutputStream out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("slip.image.normalized", "result", result).increment();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
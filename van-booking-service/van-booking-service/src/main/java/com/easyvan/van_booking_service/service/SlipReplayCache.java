@@ -0,0 +1,114 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.dto.Slip2GoResponseDTO;
+import com.easyvan.van_booking_service.repository.BookingRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * กันการเรียก Slip2Go ซ้ำและการใช้สลิปซ้ำ
+ *
+ * ผลการตรวจสอบถูกเก็บใน Redis ตาม SHA-256 ของไฟล์สลิป ({@code slip:result:<sha256>}) การอัปโหลดไฟล์เดิมซ้ำ
+ * จึงตอบจาก cache ได้โดยไม่เสียค่าเรียก API ส่วน transRef ถูกจองด้วย SETNX ({@code slip:transref:<ref>} -> bookingId)
+ * ทำให้ปฏิเสธ transRef ที่ถูกใช้กับการจองอื่นได้ในคำสั่งเดียว หาก Redis ใช้งานไม่ได้จะถาม unique constraint
+ * ของ {@code bookings.transaction_id} แทน ซึ่งเป็นผู้ตัดสินสุดท้ายอยู่แล้ว
+ */
+@Service
+public class SlipReplayCache {
+
+    private static final String RESULT_KEY_PREFIX = "slip:result:";
+    private static final String TRANS_REF_KEY_PREFIX = "slip:transref:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final BookingRepository bookingRepository;
+    private final MeterRegistry meterRegistry;
+    private final RedisScript<Long> compareAndDeleteScript = RedisScript
+            .of(new ClassPathResource("redis/compare_and_delete.lua"), Long.class);
+
+    private final Duration resultTtl;
+    private final Duration rejectedResultTtl;
+    private final Duration transRefTtl;
+
+    public SlipReplayCache(StringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper,
+            BookingRepository bookingRepository,
+            MeterRegistry meterRegistry,
+            @Value("${slip.dedup.result-ttl-hours:24}") long resultTtlHours,
+            @Value("${slip.dedup.rejected-ttl-minutes:10}") long rejectedTtlMinutes,
+            @Value("${slip.dedup.transref-ttl-days:30}") long transRefTtlDays) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.bookingRepository = bookingRepository;
+        this.meterRegistry = meterRegistry;
+        this.resultTtl = Duration.ofHours(resultTtlHours);
+        this.rejectedResultTtl = Duration.ofMinutes(rejectedTtlMinutes);
+        this.transRefTtl = Duration.ofDays(transRefTtlDays);
+    }
+
+    public Optional<Slip2GoResponseDTO> findResult(String contentHash) {
+        try {
+            String json = redisTemplate.opsForValue().get(RESULT_KEY_PREFIX + contentHash);
+            meterRegistry.counter("slip.dedup.lookups", "result", json != null ? "hit" : "miss").increment();
+            return json != null ? Optional.of(objectMapper.readValue(json, Slip2GoResponseDTO.class)) : Optional.empty();
+        } catch (DataAccessException | JsonProcessingException e) {
+            System.err.println("Warning: slip result cache unavailable: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * เก็บคำตอบของ Slip2Go สลิปที่ถูกปฏิเสธเก็บไว้สั้นกว่า (ธนาคารอาจยังไม่ส่งข้อมูลรายการให้ผู้ตรวจสอบ)
+     */
+    public void putResult(String contentHash, Slip2GoResponseDTO response) {
+        boolean accepted = response.isSuccess() && response.getData() != null;
+        try {
+            redisTemplate.opsForValue().set(RESULT_KEY_PREFIX + contentHash, objectMapper.writeValueAsString(response),
+                    accepted ? resultTtl : rejectedResultTtl);
+        } catch (DataAccessException | JsonProcessingException e) {
+            System.err.println("Warning: slip result not cached: " + e.getMessage());
+        }
+    }
+
+    /**
+     * จอง transRef ให้การจองนี้ คืน false หากถูกใช้กับการจองอื่นไปแล้ว
+     * การส่งสลิปเดิมซ้ำสำหรับการจองเดิมถือว่าผ่าน
+     */
+    public boolean claimTransRef(String transRef, Long bookingId) {
+        String owner = String.valueOf(bookingId);
+        try {
+            String key = TRANS_REF_KEY_PREFIX + transRef;
+            Boolean claimed = redisTemplate.opsForValue().setIfAbsent(key, owner, transRefTtl);
+            // key ที่หมดอายุไปแล้วจะถูกจับได้โดย unique constraint ตอนบันทึกการจอง
+            if (Boolean.TRUE.equals(claimed) || owner.equals(redisTemplate.opsForValue().get(key))) {
+                return true;
+            }
+            meterRegistry.counter("slip.dedup.transref.rejected").increment();
+            return false;
+        } catch (DataAccessException e) {
+            System.err.println("Warning: Redis unavailable, checking transRef in database: " + e.getMessage());
+            return !bookingRepository.existsByTransactionIdAndIdNot(transRef, bookingId);
+        }
+    }
+
+    // คืน transRef เมื่อยืนยันการจองไม่สำเร็จ (ลบเฉพาะเมื่อยังเป็นของการจองนี้)
+    public void releaseTransRef(String transRef, Long bookingId) {
+        try {
+            redisTemplate.execute(compareAndDeleteScript, List.of(TRANS_REF_KEY_PREFIX + transRef),
+                    String.valueOf(bookingId));
+        } catch (DataAccessException e) {
+            System.err.println("Warning: transRef claim not released: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.dto.Slip2GoResponseDTO;
+import com.easyvan.van_booking_service.dto.SlipVerificationJob;
+import com.easyvan.van_booking_service.entity.Booking;
+import com.easyvan.van_booking_service.exception.SlipVerifierUnavailableException;
+import com.easyvan.van_booking_service.repository.BookingRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ตรวจสอบสลิปแบบ asynchronous: รับไฟล์แล้วคืน job id ทันที งานตรวจสอบรันบน worker pool ที่จำกัดขนาด
+ * request thread จึงไม่ต้องรอระบบตรวจสอบสลิปภายนอก
+ *
+ * ข้อผิดพลาดชั่วคราวของ Slip2Go ถูกลองใหม่สูงสุด {@code slip.verification.max-attempts} ครั้ง
+ * โดยรอเพิ่มเป็นเท่าตัว (exponential backoff) สถานะงานเก็บใน Redis ({@code slipjob:<id>})
+ * เพื่อให้ถามสถานะจากเครื่องใดก็ได้ และเก็บสำเนาไว้ในเครื่องเผื่อ Redis ใช้งานไม่ได้
+ *
+ * การส่งสลิปเดิมซ้ำ (เช่น ผู้ใช้กดซ้ำระหว่างรอ) จะได้งานเดิมกลับไป และผลการตรวจสอบถูกตอบจาก
+ * {@link SlipReplayCache} โดยไม่เรียก Slip2Go อีก transRef ที่ถูกใช้กับการจองอื่นแล้วจะถูกปฏิเสธ
+ */
+@Service
+public class SlipVerificationService {
+
+    private static final String JOB_KEY_PREFIX = "slipjob:";
+    private static final String BUSY_MESSAGE = "ระบบตรวจสอบสลิปมีงานค้างมาก กรุณาลองใหม่อีกครั้ง";
+    private static final String ACTIVE_JOB_KEY_PREFIX = "slipjob:active:"; // <bookingId>:<sha256> -> jobId
+
+    private final Slip2GoService slip2GoService;
+    private final FileStorageService fileStorageService;
+    private final BookingRepository bookingRepository;
+    private final BookingService bookingService;
+    private final SlipReplayCache slipReplayCache;
+    private final SlipImageNormalizer slipImageNormalizer;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService retryScheduler;
+    private final Cache<String, SlipVerificationJob> localJobs;
+    private final Duration jobTtl;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    public SlipVerificationService(Slip2GoService slip2GoService,
+            FileStorageService fileStorageService,
+            BookingRepository bookingRepository,
+            BookingService bookingService,
+            SlipReplayCache slipReplayCache,
+            SlipImageNormalizer slipImageNormalizer,
+            StringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${slip.verification.threads:4}") int threads,
+            @Value("${slip.verification.queue-capacity:100}") int queueCapacity,
+            @Value("${slip.verification.max-attempts:3}") int maxAttempts,
+            @Value("${slip.verification.backoff-ms:1000}") long backoffMillis,
+            @Value("${slip.verification.job-ttl-minutes:60}") long jobTtlMinutes) {
+        this.slip2GoService = slip2GoService;
+        this.fileStorageService = fileStorageService;
+        this.bookingRepository = bookingRepository;
+        this.bookingService = bookingService;
+        this.slipReplayCache = slipReplayCache;
+        this.slipImageNormalizer = slipImageNormalizer;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+        this.jobTtl = Duration.ofMinutes(jobTtlMinutes);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "slip-verify-" + threadNumber.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(
+                runnable -> new Thread(runnable, "slip-verify-retry"));
+        this.localJobs = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(jobTtl)
+                .build();
+
+        meterRegistry.gauge("slip.verification.queue.depth", workers, w -> w.getQueue().size());
+        meterRegistry.gauge("slip.verification.active", workers, ThreadPoolExecutor::getActiveCount);
+    }
+
+    /**
+     * บันทึกไฟล์สลิป ย่อรูป ({@link SlipImageNormalizer}) แล้วเข้าคิวตรวจสอบ
+     * โยน {@link RejectedExecutionException} หากคิวเต็ม
+     */
+    public SlipVerificationJob submit(Long bookingId, MultipartFile file) {
+        if (!bookingRepository.existsById(bookingId)) {
+            throw new RuntimeException("ไม่พบข้อมูลการจอง ID: " + bookingId);
+        }
+        // ปฏิเสธก่อนรับไฟล์ หากคิวตรวจสอบเต็มอยู่แล้ว
+        if (workers.getQueue().remainingCapacity() == 0) {
+            throw new RejectedExecutionException(BUSY_MESSAGE);
+        }
+        // ไฟล์ที่อัปโหลดใช้ได้เฉพาะระหว่าง request จึงต้องบันทึกก่อนส่งให้ worker (อ่าน upload รอบเดียว)
+        FileStorageService.StoredFile stored = fileStorageService.ingest(file);
+        String fileName = stored.fileName();
+
+        // ไฟล์เก็บตาม hash งานเดิมจึงใช้ไฟล์เดียวกันอยู่แล้ว
+        SlipVerificationJob existing = findActiveJob(bookingId, stored.sha256());
+        if (existing != null) {
+            return existing;
+        }
+
+        SlipVerificationJob job = new SlipVerificationJob();
+        job.setJobId(UUID.randomUUID().toString());
+        job.setBookingId(bookingId);
+        job.setContentHash(stored.sha256());
+        job.setStatus(SlipVerificationJob.QUEUED);
+        job.setMessage("กำลังรอตรวจสอบสลิป");
+        job.setCreatedAt(LocalDateTime.now());
+        save(job);
+        markActive(job);
+
+        try {
+            slipImageNormalizer.normalize(fileName).whenComplete((normalized, error) -> {
+                String key = normalized != null ? normalized : fileName;
+                try {
+                    workers.execute(() -> process(job.getJobId(), bookingId, key, 1));
+                } catch (RejectedExecutionException e) {
+                    reject(job, BUSY_MESSAGE);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // ระบบย่อรูปมีงานค้าง: ตรวจสอบด้วยไฟล์เดิมไปก่อน
+            try {
+                workers.execute(() -> process(job.getJobId(), bookingId, fileName, 1));
+            } catch (RejectedExecutionException busy) {
+                finish(job, SlipVerificationJob.FAILED, BUSY_MESSAGE, null);
+                throw busy;
+            }
+        }
+        return getJob(job.getJobId());
+    }
+
+    public SlipVerificationJob getJob(String jobId) {
+        SlipVerificationJob job = localJobs.getIfPresent(jobId);
+        if (job != null) {
+            return job;
+        }
+        try {
+            String json = redisTemplate.opsForValue().get(JOB_KEY_PREFIX + jobId);
+            return json != null ? objectMapper.readValue(json, SlipVerificationJob.class) : null;
+        } catch (DataAccessException | JsonProcessingException e) {
+            System.err.println("Warning: cannot read slip verification job " + jobId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // งานของสลิปเดียวกันสำหรับการจองเดียวกันที่ยังทำอยู่หรือสำเร็จแล้ว (งานที่ล้มเหลวส่งใหม่ได้)
+    private SlipVerificationJob findActiveJob(Long bookingId, String contentHash) {
+        try {
+            String jobId = redisTemplate.opsForValue().get(ACTIVE_JOB_KEY_PREFIX + bookingId + ":" + contentHash);
+            SlipVerificationJob job = jobId != null ? getJob(jobId) : null;
+            return job != null && !SlipVerificationJob.FAILED.equals(job.getStatus()) ? job : null;
+        } catch (DataAccessException e) {
+            return null;
+        }
+    }
+
+    private void markActive(SlipVerificationJob job) {
+        try {
+            redisTemplate.opsForValue().set(ACTIVE_JOB_KEY_PREFIX + job.getBookingId() + ":" + job.getContentHash(),
+                    job.getJobId(), jobTtl);
+        } catch (DataAccessException e) {
+            System.err.println("Warning: slip verification job not registered for dedup: " + e.getMessage());
+        }
+    }
+
+    private void process(String jobId, Long bookingId, String fileName, int attempt) {
+        SlipVerificationJob job = getJob(jobId);
+        if (job == null) {
+            return;
+        }
+        job.setAttempts(attempt);
+        job.setStatus(SlipVerificationJob.VERIFYING);
+        job.setMessage("กำลังตรวจสอบสลิป");
+        save(job);
+
+        try {
+            Booking booking = bookingRepository.findById(bookingId)
+                    .orElseThrow(() -> new RuntimeException("ไม่พบข้อมูลการจอง ID: " + bookingId));
+
+            Slip2GoResponseDTO response = slipReplayCache.findResult(job.getContentHash()).orElse(null);
+            if (response == null) {
+                response = slip2GoService.verifySlip(fileStorageService.resolve(fileName));
+                if (response != null) {
+                    slipReplayCache.putResult(job.getContentHash(), response);
+                }
+            }
+
+            if (response == null || !response.isSuccess() || response.getData() == null) {
+                reject(job, "ไม่สามารถตรวจสอบสลิปได้: "
+                        + (response != null ? response.getMessage() : "Unknown error"));
+                return;
+            }
+
+            Slip2GoResponseDTO.Data data = response.getData();
+            // ตรวจสอบยอดเงิน (เผื่อลูกค้าโอนไม่ครบ)
+            if (data.getAmount() < booking.getTotalPrice()) {
+                reject(job, "ยอดเงินในสลิป (" + data.getAmount() + ") น้อยกว่ายอดที่ต้องชำระ ("
+                        + booking.getTotalPrice() + ")");
+                return;
+            }
+
+            // ยืนยันไปแล้วด้วยสลิปเดียวกัน ไม่ต้องทำซ้ำ
+            if ("CONFIRMED".equals(booking.getStatus()) && data.getTransRef() != null
+                    && data.getTransRef().equals(booking.getTransactionId())) {
+                finish(job, SlipVerificationJob.SUCCEEDED, "ชำระเงินสำเร็จ!", data);
+                return;
+            }
+            if (data.getTransRef() != null && !slipReplayCache.claimTransRef(data.getTransRef(), bookingId)) {
+                reject(job, "สลิปนี้ถูกใช้ชำระเงินสำหรับการจองอื่นไปแล้ว");
+                return;
+            }
+
+            try {
+                bookingService.confirmPayment(bookingId, fileName, data.getTransRef());
+            } catch (RuntimeException e) {
+                if (data.getTransRef() != null) {
+                    slipReplayCache.releaseTransRef(data.getTransRef(), bookingId);
+                }
+                throw e;
+            }
+            finish(job, SlipVerificationJob.SUCCEEDED, "ชำระเงินสำเร็จ!", data);
+        } catch (SlipVerifierUnavailableException e) {
+            retryOrFail(job, bookingId, fileName, attempt, e);
+        } catch (RuntimeException e) {
+            reject(job, "เกิดข้อผิดพลาด: " + e.getMessage());
+        }
+    }
+
+    private void retryOrFail(SlipVerificationJob job, Long bookingId, String fileName, int attempt,
+            SlipVerifierUnavailableException cause) {
+        if (attempt >= maxAttempts) {
+            System.err.println("Slip verification gave up after " + attempt + " attempts: " + cause.getMessage());
+            reject(job, "ระบบตรวจสอบสลิปไม่พร้อมใช้งาน กรุณาลองใหม่ภายหลัง");
+            return;
+        }
+        long delay = backoffMillis << (attempt - 1);
+        job.setStatus(SlipVerificationJob.RETRYING);
+        job.setMessage("ระบบตรวจสอบสลิปตอบช้า กำลังลองใหม่");
+        save(job);
+        retryScheduler.schedule(() -> {
+            try {
+                workers.execute(() -> process(job.getJobId(), bookingId, fileName, attempt + 1));
+            } catch (RejectedExecutionException e) {
+                reject(job, BUSY_MESSAGE);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    // ไฟล์สลิปไม่ถูกลบที่นี่ เพราะงานอื่นที่ส่งไฟล์เดียวกันอาจยังอ่านอยู่ (ดู SlipFileCollector)
+    private void reject(SlipVerificationJob job, String message) {
+        finish(job, SlipVerificationJob.FAILED, message, null);
+    }
+
+    private void finish(SlipVerificationJob job, String status, String message, Slip2GoResponseDTO.Data data) {
+        job.setStatus(status);
+        job.setMessage(message);
+        job.setTransactionInfo(data);
+        save(job);
+        meterRegistry.counter("slip.verification.jobs", "outcome", status.toLowerCase()).increment();
+    }
+
+    private void save(SlipVerificationJob job) {
+        job.setUpdatedAt(LocalDateTime.now());
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(job);
+            // เก็บสำเนา ผู้ถามสถานะจึงไม่เห็น job ที่ worker กำลังแก้อยู่
+            localJobs.put(job.getJobId(), objectMapper.readValue(json, SlipVerificationJob.class));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        try {
+            redisTemplate.opsForValue().set(JOB_KEY_PREFIX + job.getJobId(), json, jobTtl);
+        } catch (DataAccessException e) {
+            System.err.println("Warning: slip verification job stored locally only: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdown();
+        workers.shutdown();
+    }
+}
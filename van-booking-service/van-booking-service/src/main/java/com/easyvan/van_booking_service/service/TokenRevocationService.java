@@ -0,0 +1,178 @@
+package com.easyvan.van_booking_service.service;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * เพิกถอน JWT ก่อนหมดอายุ (logout, รีเซ็ตรหัสผ่าน) โดยไม่เพิ่ม I/O ให้คำขอทั่วไป
+ *
+ * แต่ละเครื่องเก็บ jti ที่ถูกเพิกถอนไว้ในหน่วยความจำ (ลบออกเมื่อ token หมดอายุ) โดยมี Bloom filter อยู่ด้านหน้า
+ * token ส่วนใหญ่ที่ไม่ถูกเพิกถอนจึงตอบได้จาก filter ทันที การเพิกถอนทั้งหมดของผู้ใช้เก็บเป็นเวลาตัด
+ * (token ที่ออกก่อนเวลานี้ใช้ไม่ได้) การเพิกถอนถูกบันทึกใน Redis ให้เครื่องที่เริ่มใหม่โหลดได้
+ * และกระจายไปเครื่องอื่นผ่าน channel {@code jwt-revocations}
+ */
+@Service
+public class TokenRevocationService implements MessageListener {
+
+    static final String CHANNEL = "jwt-revocations";
+    private static final String REVOKED_TOKENS_KEY = "jwt:revoked-tokens"; // ZSET: jti -> เวลาหมดอายุ (ms)
+    private static final String REVOKED_USERS_KEY = "jwt:revoked-users"; // HASH: อีเมล -> เวลาตัด (ms)
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+
+    private final StringRedisTemplate redisTemplate;
+    private final long tokenLifetimeMillis;
+    private final int expectedRevocations;
+
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<String, Long> userCutoffs = new ConcurrentHashMap<>();
+    private final Object filterLock = new Object();
+    private volatile RevocationBloomFilter filter;
+
+    public TokenRevocationService(StringRedisTemplate redisTemplate,
+            RedisMessageListenerContainer listenerContainer,
+            JwtService jwtService,
+            @Value("${jwt.revocation.expected-items:100000}") int expectedRevocations) {
+        this.redisTemplate = redisTemplate;
+        this.tokenLifetimeMillis = jwtService.getExpirationMillis();
+        this.expectedRevocations = expectedRevocations;
+        this.filter = new RevocationBloomFilter(expectedRevocations, FALSE_POSITIVE_RATE);
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    public boolean isRevoked(Claims claims) {
+        String subject = claims.getSubject();
+        if (subject != null && !userCutoffs.isEmpty()) {
+            Long cutoff = userCutoffs.get(normalize(subject));
+            // iat มีความละเอียดระดับวินาที token ที่ออกในวินาทีเดียวกับการเพิกถอนจึงถูกปฏิเสธด้วย
+            if (cutoff != null && (claims.getIssuedAt() == null || claims.getIssuedAt().getTime() <= cutoff)) {
+                return true;
+            }
+        }
+        String jti = claims.getId();
+        return jti != null && filter.mightContain(jti) && revokedTokens.containsKey(jti);
+    }
+
+    // logout: เพิกถอน token นี้จนถึงเวลาที่มันหมดอายุเอง
+    public void revoke(Claims claims) {
+        String jti = claims.getId();
+        Date expiration = claims.getExpiration();
+        if (jti == null || expiration == null || expiration.getTime() <= System.currentTimeMillis()) {
+            return;
+        }
+        applyToken(jti, expiration.getTime());
+        try {
+            redisTemplate.opsForZSet().add(REVOKED_TOKENS_KEY, jti, expiration.getTime());
+            redisTemplate.convertAndSend(CHANNEL, "T|" + expiration.getTime() + "|" + jti);
+        } catch (DataAccessException e) {
+            System.err.println("Warning: Redis unavailable, token revocation is local only: " + e.getMessage());
+        }
+    }
+
+    // เพิกถอนทุก token ของผู้ใช้ที่ออกก่อนหน้านี้ (เช่น หลังรีเซ็ตรหัสผ่าน)
+    public void revokeAllForUser(String email) {
+        if (email == null) {
+            return;
+        }
+        String key = normalize(email);
+        long cutoff = System.currentTimeMillis();
+        applyUserCutoff(key, cutoff);
+        try {
+            redisTemplate.opsForHash().put(REVOKED_USERS_KEY, key, String.valueOf(cutoff));
+            redisTemplate.convertAndSend(CHANNEL, "U|" + cutoff + "|" + key);
+        } catch (DataAccessException e) {
+            System.err.println("Warning: Redis unavailable, token revocation is local only: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length != 3) {
+            return;
+        }
+        long time = Long.parseLong(parts[1]);
+        if ("T".equals(parts[0])) {
+            applyToken(parts[2], time);
+        } else if ("U".equals(parts[0])) {
+            applyUserCutoff(parts[2], time);
+        }
+    }
+
+    // โหลดการเพิกถอนที่ยังมีผลจาก Redis เมื่อเครื่องนี้เริ่มทำงาน
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFromRedis() {
+        long now = System.currentTimeMillis();
+        try {
+            Set<ZSetOperations.TypedTuple<String>> tokens = redisTemplate.opsForZSet()
+                    .rangeByScoreWithScores(REVOKED_TOKENS_KEY, now, Double.POSITIVE_INFINITY);
+            if (tokens != null) {
+                tokens.forEach(t -> applyToken(t.getValue(), t.getScore().longValue()));
+            }
+            redisTemplate.opsForHash().entries(REVOKED_USERS_KEY).forEach((email, cutoff) -> {
+                long time = Long.parseLong(cutoff.toString());
+                if (time > now - tokenLifetimeMillis) {
+                    applyUserCutoff(email.toString(), time);
+                }
+            });
+        } catch (DataAccessException e) {
+            System.err.println("Warning: Redis unavailable, revoked tokens not loaded: " + e.getMessage());
+        }
+    }
+
+    // ลบรายการที่ token หมดอายุไปแล้ว และสร้าง Bloom filter ใหม่ (ลบสมาชิกออกจาก filter เดิมไม่ได้)
+    @Scheduled(fixedDelayString = "${jwt.revocation.cleanup-ms:600000}")
+    public void cleanup() {
+        long now = System.currentTimeMillis();
+        synchronized (filterLock) {
+            revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+            userCutoffs.values().removeIf(cutoff -> cutoff <= now - tokenLifetimeMillis);
+            RevocationBloomFilter rebuilt = new RevocationBloomFilter(
+                    Math.max(expectedRevocations, revokedTokens.size() * 2), FALSE_POSITIVE_RATE);
+            revokedTokens.keySet().forEach(rebuilt::add);
+            filter = rebuilt;
+        }
+        try {
+            redisTemplate.opsForZSet().removeRangeByScore(REVOKED_TOKENS_KEY, Double.NEGATIVE_INFINITY, now);
+            redisTemplate.opsForHash().entries(REVOKED_USERS_KEY).forEach((email, cutoff) -> {
+                if (Long.parseLong(cutoff.toString()) <= now - tokenLifetimeMillis) {
+                    redisTemplate.opsForHash().delete(REVOKED_USERS_KEY, email);
+                }
+            });
+        } catch (DataAccessException e) {
+            System.err.println("Warning: Redis unavailable during revocation cleanup: " + e.getMessage());
+        }
+    }
+
+    private void applyToken(String jti, long expiresAt) {
+        synchronized (filterLock) {
+            revokedTokens.put(jti, expiresAt);
+            filter.add(jti);
+        }
+    }
+
+    private void applyUserCutoff(String email, long cutoff) {
+        userCutoffs.merge(normalize(email), cutoff, Math::max);
+    }
+
+    private static String normalize(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
@@ -3,8 +3,8 @@ package com.easyvan.van_booking_service.service;
 import com.easyvan.van_booking_service.dto.UserDTO;
 import com.easyvan.van_booking_service.entity.User;
 import com.easyvan.van_booking_service.repository.UserRepository;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
@@ -13,13 +13,18 @@ import java.util.UUID;
 public class UserService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final EmailService emailService;
+    private final UserStatusCache userStatusCache;
+    private final TokenRevocationService tokenRevocationService;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, EmailService emailService) {
+    public UserService(UserRepository userRepository, PasswordHashingService passwordHashingService, EmailService emailService,
+            UserStatusCache userStatusCache, TokenRevocationService tokenRevocationService) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
         this.emailService = emailService;
+        this.userStatusCache = userStatusCache;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     public void registerUser(UserDTO dto) {
@@ -28,7 +33,7 @@ public class UserService {
         }
         User user = new User();
         user.setUsername(dto.getUsername());
-        user.setPassword(passwordEncoder.encode(dto.getPassword()));
+        user.setPassword(passwordHashingService.encode(dto.getPassword()));
         user.setFullName(dto.getFullName());
         user.setRole(dto.getRole());
         user.setPhoneNumber(dto.getPhoneNumber());
@@ -49,17 +54,21 @@ public class UserService {
         }
 
         if (dto.getEmail() != null && !dto.getEmail().isEmpty()) {
+            // token เดิมอ้างอิงอีเมลเก่า ให้ตรวจสถานะใหม่ทันที
+            userStatusCache.evict(user.getEmail());
             user.setEmail(dto.getEmail());
         }
 
         // หากมีการเปลี่ยนรหัสผ่าน
         if (dto.getPassword() != null && !dto.getPassword().isEmpty()) {
-            user.setPassword(passwordEncoder.encode(dto.getPassword()));
+            user.setPassword(passwordHashingService.encode(dto.getPassword()));
         }
 
         return userRepository.save(user);
     }
 
+    // token และอีเมลรีเซ็ตรหัสผ่าน (outbox) ถูกบันทึกพร้อมกัน
+    @Transactional
     public void forgotPassword(String email) {
         if (email == null || email.trim().isEmpty()) {
             throw new RuntimeException("กรุณากรอกอีเมล");
@@ -84,9 +93,12 @@ public class UserService {
             throw new RuntimeException("ลิงก์รีเซ็ตรหัสผ่านหมดอายุแล้ว");
         }
 
-        user.setPassword(passwordEncoder.encode(newPassword));
+        user.setPassword(passwordHashingService.encode(newPassword));
         user.setResetPasswordToken(null);
         user.setResetPasswordTokenExpiry(null);
         userRepository.save(user);
+
+        // token ทุกตัวที่ออกก่อนรีเซ็ตรหัสผ่านใช้ไม่ได้อีก
+        tokenRevocationService.revokeAllForUser(user.getEmail());
     }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * role ปัจจุบันของผู้ใช้ตามอีเมล ใช้ตรวจว่า token ยังใช้ได้ (ผู้ใช้ถูกลบ/เปลี่ยน role) โดยไม่ query ทุกคำขอ
+ * เก็บไว้ไม่เกิน {@code jwt.user-status-cache.ttl-seconds} การเปลี่ยนแปลงจึงมีผลช้าสุดเท่านั้น
+ * ปิดการตรวจได้ด้วย {@code jwt.user-status-check.enabled=false} (เชื่อ role ใน token อย่างเดียว)
+ */
+@Service
+public class UserStatusCache {
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    private final Cache<String, Optional<String>> roles;
+
+    public UserStatusCache(UserRepository userRepository,
+            @Value("${jwt.user-status-check.enabled:true}") boolean enabled,
+            @Value("${jwt.user-status-cache.ttl-seconds:60}") long ttlSeconds,
+            @Value("${jwt.user-status-cache.max-size:50000}") long maxSize) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.roles = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // role ปัจจุบัน หรือ empty หากไม่มีผู้ใช้นี้แล้ว
+    public Optional<String> currentRole(String email) {
+        return roles.get(normalize(email), key -> userRepository.findByEmailIgnoreCase(key).map(u -> u.getRole()));
+    }
+
+    public void evict(String email) {
+        if (email != null) {
+            roles.invalidate(normalize(email));
+        }
+    }
+
+    private static String normalize(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
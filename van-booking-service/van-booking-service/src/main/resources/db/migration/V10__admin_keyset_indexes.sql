@@ -0,0 +1,3 @@
+-- index สำหรับรายการของแอดมินแบบ keyset: แต่ละหน้าอ่านต่อจากคีย์ของแถวสุดท้ายตามลำดับของ index
+CREATE INDEX IF NOT EXISTS ix_users_role_id ON users (role, id);
+CREATE INDEX IF NOT EXISTS ix_schedules_departure_id ON schedules (departure_time, id);
@@ -0,0 +1,71 @@
+-- โครงสร้างฐานข้อมูลตั้งต้น (ตรงกับ schema.sql และ entity ปัจจุบัน)
+-- ฐานข้อมูลเดิมที่มีตารางอยู่แล้วจะถูก baseline ที่เวอร์ชันนี้และข้ามไฟล์นี้ไป
+
+CREATE TABLE IF NOT EXISTS users (
+    id SERIAL PRIMARY KEY,
+    username VARCHAR(50) UNIQUE NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    full_name VARCHAR(100),
+    role VARCHAR(20) NOT NULL CHECK (role IN ('PASSENGER', 'DRIVER', 'ADMIN')),
+    phone_number VARCHAR(15),
+    email VARCHAR(255) UNIQUE,
+    reset_password_token VARCHAR(255),
+    reset_password_token_expiry TIMESTAMP,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS vehicles (
+    id SERIAL PRIMARY KEY,
+    plate_number VARCHAR(20) UNIQUE NOT NULL,
+    model VARCHAR(50),
+    capacity INTEGER DEFAULT 13,
+    owner_id INTEGER REFERENCES users(id) ON DELETE SET NULL,
+    status VARCHAR(20) DEFAULT 'ACTIVE'
+);
+
+CREATE TABLE IF NOT EXISTS stations (
+    id SERIAL PRIMARY KEY,
+    province VARCHAR(100) NOT NULL,
+    station_name VARCHAR(255) NOT NULL,
+    is_main_hub BOOLEAN DEFAULT false,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS routes (
+    id SERIAL PRIMARY KEY,
+    origin_station_id INTEGER REFERENCES stations(id) ON DELETE CASCADE,
+    destination_station_id INTEGER REFERENCES stations(id) ON DELETE CASCADE,
+    base_price DECIMAL(10, 2) NOT NULL,
+    estimated_duration INTEGER,
+    is_active BOOLEAN DEFAULT true
+);
+
+CREATE TABLE IF NOT EXISTS schedules (
+    id SERIAL PRIMARY KEY,
+    route_id INTEGER NOT NULL REFERENCES routes(id),
+    driver_id INTEGER REFERENCES users(id),
+    vehicle_id INTEGER REFERENCES vehicles(id),
+    departure_time TIMESTAMP NOT NULL,
+    status VARCHAR(20) DEFAULT 'AVAILABLE',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS bookings (
+    id SERIAL PRIMARY KEY,
+    user_id INTEGER REFERENCES users(id) ON DELETE CASCADE,
+    schedule_id INTEGER REFERENCES schedules(id) ON DELETE CASCADE,
+    seat_number INTEGER NOT NULL,
+    status VARCHAR(20) DEFAULT 'PENDING',
+    total_price DECIMAL(10, 2) NOT NULL,
+    pickup_point TEXT NOT NULL,
+    pickup_lat DECIMAL(10, 8),
+    pickup_lng DECIMAL(11, 8),
+    dropoff_point TEXT,
+    dropoff_lat DECIMAL(10, 8),
+    dropoff_lng DECIMAL(11, 8),
+    contact_phone VARCHAR(15),
+    remark TEXT,
+    slip_image_url VARCHAR(255),
+    transaction_id VARCHAR(255),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
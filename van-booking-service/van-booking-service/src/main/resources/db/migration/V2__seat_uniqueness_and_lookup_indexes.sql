@@ -0,0 +1,49 @@
+-- คอลัมน์ lock ของที่นั่ง (อาจถูกสร้างไว้แล้วโดย Hibernate)
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS lock_owner VARCHAR(64);
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS fencing_token BIGINT;
+
+-- ยกเลิกเฉพาะการจองที่ยังไม่ชำระเงิน (PENDING) ที่ซ้ำที่นั่งกับรายการอื่น
+-- เก็บรายการที่ชำระเงินแล้ว หรือ PENDING ที่เก่าที่สุดหากทั้งที่นั่งยังไม่มีใครชำระ
+UPDATE bookings b
+SET status = 'CANCELLED'
+FROM (
+    SELECT id,
+           row_number() OVER (
+               PARTITION BY schedule_id, seat_number
+               ORDER BY CASE status WHEN 'PENDING' THEN 1 ELSE 0 END, id
+           ) AS rn
+    FROM bookings
+    WHERE status IN ('PENDING', 'CONFIRMED', 'PICKED_UP')
+) d
+WHERE b.id = d.id AND d.rn > 1 AND b.status = 'PENDING';
+
+-- ที่นั่งที่มีการจองชำระเงินแล้วซ้ำกันต้องให้แอดมินตัดสิน (คืนเงิน/ย้ายที่นั่ง) ก่อน
+-- หยุด migration พร้อมรายการที่ชนกัน แทนการยกเลิกรายการที่ลูกค้าจ่ายเงินแล้วเอง
+DO $$
+DECLARE
+    conflicts TEXT;
+BEGIN
+    SELECT string_agg(format('schedule %s seat %s: bookings %s', schedule_id, seat_number, ids), E'\n')
+    INTO conflicts
+    FROM (
+        SELECT schedule_id, seat_number, string_agg(id::text, ', ' ORDER BY id) AS ids
+        FROM bookings
+        WHERE status IN ('CONFIRMED', 'PICKED_UP')
+        GROUP BY schedule_id, seat_number
+        HAVING count(*) > 1
+    ) c;
+
+    IF conflicts IS NOT NULL THEN
+        RAISE EXCEPTION 'paid bookings share a seat; resolve them before creating ux_bookings_active_seat:%', E'\n' || conflicts;
+    END IF;
+END $$;
+
+-- หนึ่งที่นั่งต่อหนึ่งการจองที่ยัง active ในแต่ละรอบ ให้ฐานข้อมูลเป็นผู้ตัดสินสุดท้าย
+CREATE UNIQUE INDEX IF NOT EXISTS ux_bookings_active_seat
+    ON bookings (schedule_id, seat_number)
+    WHERE status IN ('PENDING', 'CONFIRMED', 'PICKED_UP');
+
+CREATE INDEX IF NOT EXISTS ix_bookings_schedule_id ON bookings (schedule_id);
+CREATE INDEX IF NOT EXISTS ix_bookings_user_id ON bookings (user_id);
+CREATE INDEX IF NOT EXISTS ix_schedules_route_departure ON schedules (route_id, departure_time);
+CREATE INDEX IF NOT EXISTS ix_schedules_driver_id ON schedules (driver_id);
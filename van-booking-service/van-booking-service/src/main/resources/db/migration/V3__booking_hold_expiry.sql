@@ -0,0 +1,11 @@
+-- เวลาหมดอายุของการถือครองที่นั่ง (PENDING) ใช้โดย HoldExpirySweeper
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS hold_expires_at TIMESTAMP;
+
+UPDATE bookings
+SET hold_expires_at = created_at + INTERVAL '10 minutes'
+WHERE status = 'PENDING' AND hold_expires_at IS NULL;
+
+-- index เฉพาะรายการที่รอชำระเงิน ทำให้การหา hold ที่หมดอายุไม่ต้อง scan ทั้งตาราง
+CREATE INDEX IF NOT EXISTS ix_bookings_pending_hold_expiry
+    ON bookings (hold_expires_at)
+    WHERE status = 'PENDING';
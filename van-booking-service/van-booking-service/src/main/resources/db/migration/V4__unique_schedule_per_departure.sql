@@ -0,0 +1,71 @@
+-- รวมรอบรถที่ถูกสร้างซ้ำสำหรับเส้นทางและเวลาออกเดียวกัน ให้เหลือแถวที่เก่าที่สุด
+CREATE TEMP TABLE schedule_merge ON COMMIT DROP AS
+SELECT id AS duplicate_id, keep_id
+FROM (
+    SELECT id, min(id) OVER (PARTITION BY route_id, departure_time) AS keep_id
+    FROM schedules
+) s
+WHERE id <> keep_id;
+
+-- ที่นั่งที่ถูกจองซ้ำระหว่างรอบที่ซ้ำกัน: ยกเลิกเฉพาะรายการที่ยังไม่ชำระเงิน (PENDING)
+-- เก็บรายการที่ชำระเงินแล้ว หรือ PENDING ที่เก่าที่สุดหากทั้งที่นั่งยังไม่มีใครชำระ
+UPDATE bookings b
+SET status = 'CANCELLED'
+FROM (
+    SELECT b2.id,
+           row_number() OVER (
+               PARTITION BY coalesce(m.keep_id, b2.schedule_id), b2.seat_number
+               ORDER BY CASE b2.status WHEN 'PENDING' THEN 1 ELSE 0 END, b2.id
+           ) AS rn
+    FROM bookings b2
+    LEFT JOIN schedule_merge m ON m.duplicate_id = b2.schedule_id
+    WHERE b2.status IN ('PENDING', 'CONFIRMED', 'PICKED_UP')
+      AND coalesce(m.keep_id, b2.schedule_id) IN (SELECT keep_id FROM schedule_merge)
+) d
+WHERE b.id = d.id AND d.rn > 1 AND b.status = 'PENDING';
+
+-- การจองที่ชำระเงินแล้วของรอบที่ซ้ำกันซึ่งได้ที่นั่งเดียวกันต้องให้แอดมินตัดสินก่อนรวมรอบ
+-- หยุด migration พร้อมรายการที่ชนกัน แทนการยกเลิกรายการที่ลูกค้าจ่ายเงินแล้วเอง
+DO $$
+DECLARE
+    conflicts TEXT;
+BEGIN
+    SELECT string_agg(format('schedule %s seat %s: bookings %s', keep_id, seat_number, ids), E'\n')
+    INTO conflicts
+    FROM (
+        SELECT coalesce(m.keep_id, b.schedule_id) AS keep_id, b.seat_number,
+               string_agg(b.id::text, ', ' ORDER BY b.id) AS ids
+        FROM bookings b
+        LEFT JOIN schedule_merge m ON m.duplicate_id = b.schedule_id
+        WHERE b.status IN ('CONFIRMED', 'PICKED_UP')
+          AND coalesce(m.keep_id, b.schedule_id) IN (SELECT keep_id FROM schedule_merge)
+        GROUP BY coalesce(m.keep_id, b.schedule_id), b.seat_number
+        HAVING count(*) > 1
+    ) c;
+
+    IF conflicts IS NOT NULL THEN
+        RAISE EXCEPTION 'paid bookings on duplicate schedules share a seat; resolve them before merging:%', E'\n' || conflicts;
+    END IF;
+END $$;
+
+UPDATE bookings b
+SET schedule_id = m.keep_id
+FROM schedule_merge m
+WHERE b.schedule_id = m.duplicate_id;
+
+-- คงคนขับ/รถที่แอดมินมอบหมายไว้บนรอบที่ซ้ำ หากรอบที่เก็บไว้ยังไม่มี
+UPDATE schedules k
+SET driver_id = coalesce(k.driver_id, d.driver_id),
+    vehicle_id = coalesce(k.vehicle_id, d.vehicle_id)
+FROM schedule_merge m
+JOIN schedules d ON d.id = m.duplicate_id
+WHERE k.id = m.keep_id;
+
+DELETE FROM schedules s
+USING schedule_merge m
+WHERE s.id = m.duplicate_id;
+
+-- หนึ่งแถวต่อหนึ่งรอบ (เส้นทาง, เวลาออก) ใช้เป็นเป้าหมายของ INSERT ... ON CONFLICT
+DROP INDEX IF EXISTS ix_schedules_route_departure;
+ALTER TABLE schedules
+    ADD CONSTRAINT uq_schedules_route_departure UNIQUE (route_id, departure_time);
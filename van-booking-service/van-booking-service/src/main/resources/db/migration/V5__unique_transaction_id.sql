@@ -0,0 +1,13 @@
+-- สลิปหนึ่งใบ (transRef) ใช้ยืนยันการจองได้เพียงรายการเดียว
+-- รายการเดิมที่ใช้ transRef ซ้ำ: เก็บค่าไว้ที่รายการเก่าที่สุด รายการอื่นเติม suffix เพื่อให้ตรวจสอบย้อนหลังได้
+UPDATE bookings b
+SET transaction_id = d.transaction_id || '#dup-' || d.id
+FROM (
+    SELECT id, transaction_id,
+           row_number() OVER (PARTITION BY transaction_id ORDER BY id) AS rn
+    FROM bookings
+    WHERE transaction_id IS NOT NULL
+) d
+WHERE b.id = d.id AND d.rn > 1;
+
+ALTER TABLE bookings ADD CONSTRAINT uq_bookings_transaction_id UNIQUE (transaction_id);
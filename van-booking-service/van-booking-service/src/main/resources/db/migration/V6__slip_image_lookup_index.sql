@@ -0,0 +1,4 @@
+-- ไฟล์สลิปเก็บตาม hash ของเนื้อหา ไฟล์เดียวอาจถูกอ้างถึงจากหลายคำขอ ต้องตรวจก่อนลบ
+CREATE INDEX IF NOT EXISTS ix_bookings_slip_image_url
+    ON bookings (slip_image_url)
+    WHERE slip_image_url IS NOT NULL;
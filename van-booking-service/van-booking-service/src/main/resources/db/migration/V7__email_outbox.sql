@@ -0,0 +1,18 @@
+-- อีเมลที่รอส่ง บันทึกใน transaction เดียวกับการเปลี่ยนแปลงข้อมูล แล้ว EmailOutboxDispatcher ส่งภายหลัง
+CREATE TABLE IF NOT EXISTS email_outbox (
+    id              BIGSERIAL PRIMARY KEY,
+    recipient       VARCHAR(255) NOT NULL,
+    subject         VARCHAR(255) NOT NULL,
+    body            TEXT         NOT NULL,
+    status          VARCHAR(16)  NOT NULL DEFAULT 'PENDING', -- PENDING, SENT, DEAD
+    attempts        INT          NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP    NOT NULL DEFAULT now(),
+    last_error      TEXT,
+    created_at      TIMESTAMP    NOT NULL DEFAULT now(),
+    sent_at         TIMESTAMP
+);
+
+-- index เฉพาะรายการที่ยังไม่ส่ง การหางานถัดไปจึงไม่ต้อง scan อีเมลที่ส่งแล้ว
+CREATE INDEX IF NOT EXISTS ix_email_outbox_pending
+    ON email_outbox (next_attempt_at)
+    WHERE status = 'PENDING';
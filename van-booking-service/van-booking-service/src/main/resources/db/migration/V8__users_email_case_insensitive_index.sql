@@ -0,0 +1,4 @@
+-- ค้นหาอีเมลแบบไม่สนตัวพิมพ์ (findByEmailIgnoreCase และการตรวจอีเมลซ้ำตอนนำเข้าคนขับรถ) ใช้ upper(email)
+CREATE INDEX IF NOT EXISTS ix_users_email_upper
+    ON users (upper(email))
+    WHERE email IS NOT NULL;
@@ -0,0 +1,22 @@
+-- id ของทุก entity มาจาก sequence ที่เพิ่มทีละ 50 (Hibernate ใช้ pooled-lo: nextval หนึ่งครั้งได้ id 50 ค่า)
+-- Hibernate จึงกำหนด id ได้โดยไม่ต้อง INSERT ก่อน และรวม INSERT เป็น JDBC batch ได้
+-- ค่า default ของคอลัมน์ id ชี้ไปที่ sequence ใหม่ด้วย INSERT จาก SQL โดยตรงจึงได้ id ที่ไม่ชนกับ Hibernate
+-- (แต่ละครั้งข้ามไป 50 ค่า) ฐานข้อมูลเดิมที่สร้างโดย Hibernate อาจเป็นคอลัมน์ identity ต้องยกเลิกก่อน
+DO $$
+DECLARE
+    t   TEXT;
+    seq TEXT;
+BEGIN
+    FOREACH t IN ARRAY ARRAY['users', 'vehicles', 'stations', 'routes', 'schedules', 'bookings', 'email_outbox'] LOOP
+        seq := t || '_seq';
+        EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I INCREMENT BY 50', seq);
+        IF EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = current_schema() AND table_name = t
+                     AND column_name = 'id' AND is_identity = 'YES') THEN
+            EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY', t);
+        END IF;
+        EXECUTE format('SELECT setval(%L, (SELECT COALESCE(MAX(id), 0) + 1 FROM %I), false)', seq, t);
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id SET DEFAULT nextval(%L)', t, seq);
+        EXECUTE format('ALTER SEQUENCE %I OWNED BY %I.id', seq, t);
+    END LOOP;
+END $$;
@@ -0,0 +1,8 @@
+-- ลบ key เฉพาะเมื่อค่ายังเป็นของผู้เรียก
+-- KEYS[1] = key
+-- ARGV[1] = expected value
+-- returns 1 = deleted, 0 = value differs (or key missing)
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
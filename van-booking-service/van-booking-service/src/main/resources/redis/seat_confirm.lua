@@ -0,0 +1,28 @@
+-- เปลี่ยนสถานะที่นั่งเป็น CONFIRMED หลังชำระเงิน เฉพาะเมื่อผู้เรียกยังเป็นเจ้าของที่นั่ง
+-- หรือที่นั่งว่างอยู่ (การถือครองหมดอายุแต่ยังไม่มีผู้อื่นจองต่อ)
+-- fencing token ของผู้เรียกต้องไม่น้อยกว่าของที่นั่ง (token ที่ต่ำกว่าคือ lease เก่าที่ถูกออกใหม่ไปแล้ว)
+-- KEYS[1] = seat map key
+-- ARGV[1] = seat, ARGV[2] = now (millis), ARGV[3] = owner, ARGV[4] = fencing token
+-- returns 1 = confirmed, 2 = reclaimed a free seat, 0 = owned by someone else or stale token,
+--         -2 = seat map not loaded
+if redis.call('HEXISTS', KEYS[1], '_cap') == 0 then
+    return -2
+end
+local current = redis.call('HGET', KEYS[1], ARGV[1])
+if current then
+    local state, owner, fence, expiresAt = string.match(current, '^(%a)|([^|]*)|(%d*)|?(%d*)$')
+    if tonumber(ARGV[4]) < (tonumber(fence) or 0) then
+        return 0
+    end
+    if owner == ARGV[3] then
+        if state ~= 'C' then
+            redis.call('HSET', KEYS[1], ARGV[1], 'C|' .. owner .. '|' .. fence)
+        end
+        return 1
+    end
+    if state == 'C' or (tonumber(expiresAt) or 0) > tonumber(ARGV[2]) then
+        return 0
+    end
+end
+redis.call('HSET', KEYS[1], ARGV[1], 'C|' .. ARGV[3] .. '|' .. ARGV[4])
+return 2
@@ -0,0 +1,21 @@
+-- ต่อเวลาการถือครองที่นั่ง เฉพาะเมื่อเจ้าของตรงกัน ยังไม่หมดอายุ และ fencing token ไม่ต่ำกว่าของที่นั่ง
+-- KEYS[1] = seat map key
+-- ARGV[1] = seat, ARGV[2] = now (millis), ARGV[3] = new expires at (millis), ARGV[4] = owner,
+-- ARGV[5] = fencing token
+-- returns 1 = extended, 0 = not held by caller or stale token, -2 = seat map not loaded
+if redis.call('HEXISTS', KEYS[1], '_cap') == 0 then
+    return -2
+end
+local current = redis.call('HGET', KEYS[1], ARGV[1])
+if not current then
+    return 0
+end
+local state, owner, fence, expiresAt = string.match(current, '^(%a)|([^|]*)|(%d*)|?(%d*)$')
+if state ~= 'H' or owner ~= ARGV[4] or (tonumber(expiresAt) or 0) <= tonumber(ARGV[2]) then
+    return 0
+end
+if tonumber(ARGV[5]) < (tonumber(fence) or 0) then
+    return 0
+end
+redis.call('HSET', KEYS[1], ARGV[1], 'H|' .. owner .. '|' .. fence .. '|' .. ARGV[3])
+return 1
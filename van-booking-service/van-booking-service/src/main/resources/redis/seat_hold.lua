@@ -0,0 +1,24 @@
+-- ถือครองที่นั่งชั่วคราว (HELD) หากที่นั่งว่าง การถือครองเดิมหมดอายุ หรือเป็นของเจ้าของเดิม
+-- ค่าในแต่ละที่นั่ง: H|<owner>|<fencing token>|<expires at millis> หรือ C|<owner>|<fencing token>
+-- KEYS[1] = seat map key
+-- ARGV[1] = seat, ARGV[2] = now (millis), ARGV[3] = hold expires at (millis), ARGV[4] = owner
+-- returns fencing token (> 0) = held, 0 = taken, -1 = seat out of range, -2 = seat map not loaded
+local cap = redis.call('HGET', KEYS[1], '_cap')
+if not cap then
+    return -2
+end
+local seat = tonumber(ARGV[1])
+if seat == nil or seat < 1 or seat > tonumber(cap) then
+    return -1
+end
+local current = redis.call('HGET', KEYS[1], ARGV[1])
+if current then
+    local state, owner, _, expiresAt = string.match(current, '^(%a)|([^|]*)|(%d*)|?(%d*)$')
+    local active = state == 'C' or (tonumber(expiresAt) or 0) > tonumber(ARGV[2])
+    if active and (owner ~= ARGV[4] or state == 'C') then
+        return 0
+    end
+end
+local fence = redis.call('HINCRBY', KEYS[1], '_fence', 1)
+redis.call('HSET', KEYS[1], ARGV[1], 'H|' .. ARGV[4] .. '|' .. fence .. '|' .. ARGV[3])
+return fence
@@ -0,0 +1,31 @@
+-- ถือครองหลายที่นั่งพร้อมกันแบบ all-or-nothing (จองเป็นกลุ่ม)
+-- KEYS[1] = seat map key
+-- ARGV[1] = now (millis), ARGV[2] = hold expires at (millis), ARGV[3] = owner, ARGV[4..n] = seats
+-- returns fencing token of the first seat (seat i gets first + i - 1), 0 = some seat taken,
+--         -1 = some seat out of range, -2 = seat map not loaded
+local cap = redis.call('HGET', KEYS[1], '_cap')
+if not cap then
+    return -2
+end
+cap = tonumber(cap)
+for i = 4, #ARGV do
+    local seat = tonumber(ARGV[i])
+    if seat == nil or seat < 1 or seat > cap then
+        return -1
+    end
+    local current = redis.call('HGET', KEYS[1], ARGV[i])
+    if current then
+        local state, owner, _, expiresAt = string.match(current, '^(%a)|([^|]*)|(%d*)|?(%d*)$')
+        local active = state == 'C' or (tonumber(expiresAt) or 0) > tonumber(ARGV[1])
+        if active and (owner ~= ARGV[3] or state == 'C') then
+            return 0
+        end
+    end
+end
+local count = #ARGV - 3
+local last = redis.call('HINCRBY', KEYS[1], '_fence', count)
+local first = last - count + 1
+for i = 4, #ARGV do
+    redis.call('HSET', KEYS[1], ARGV[i], 'H|' .. ARGV[3] .. '|' .. (first + i - 4) .. '|' .. ARGV[2])
+end
+return first
@@ -0,0 +1,12 @@
+-- โหลดผังที่นั่งจากฐานข้อมูลเข้า Redis (ทำครั้งแรกที่ยังไม่มีผังของรอบนี้)
+-- KEYS[1] = seat map key
+-- ARGV[1] = capacity, ARGV[2] = expire-at (unix seconds), ARGV[3] = highest fencing token in the database
+-- ARGV[4..n] = seat/state pairs
+if redis.call('HSETNX', KEYS[1], '_cap', ARGV[1]) == 1 then
+    redis.call('HSETNX', KEYS[1], '_fence', ARGV[3])
+    for i = 4, #ARGV, 2 do
+        redis.call('HSETNX', KEYS[1], ARGV[i], ARGV[i + 1])
+    end
+end
+redis.call('EXPIREAT', KEYS[1], ARGV[2])
+return 1
@@ -0,0 +1,46 @@
+-- ย้ายที่นั่งไปยังรอบเวลาใหม่ (เลื่อนการเดินทาง) โดยคงสถานะเดิมไว้และออก fencing token ใหม่
+-- ที่นั่งเดิมจะถูกลบเฉพาะเมื่อผู้เรียกยังเป็นเจ้าของ
+-- KEYS[1] = source seat map key, KEYS[2] = target seat map key
+-- ARGV[1] = seat, ARGV[2] = now (millis), ARGV[3] = hold expires at (millis) ใช้เมื่อที่นั่งเดิมไม่ใช่ของผู้เรียกแล้ว
+-- ARGV[4] = owner
+-- returns fencing token (> 0) = moved, 0 = target seat taken, -1 = seat out of range,
+--         -2 = source not loaded, -3 = target not loaded
+if redis.call('HEXISTS', KEYS[1], '_cap') == 0 then
+    return -2
+end
+local cap = redis.call('HGET', KEYS[2], '_cap')
+if not cap then
+    return -3
+end
+local seat = tonumber(ARGV[1])
+if seat == nil or seat < 1 or seat > tonumber(cap) then
+    return -1
+end
+local target = redis.call('HGET', KEYS[2], ARGV[1])
+if target then
+    local state, owner, _, expiresAt = string.match(target, '^(%a)|([^|]*)|(%d*)|?(%d*)$')
+    local active = state == 'C' or (tonumber(expiresAt) or 0) > tonumber(ARGV[2])
+    if active and owner ~= ARGV[4] then
+        return 0
+    end
+end
+local newState = 'H'
+local expiresAt = ARGV[3]
+local source = redis.call('HGET', KEYS[1], ARGV[1])
+if source then
+    local state, owner, _, sourceExpiresAt = string.match(source, '^(%a)|([^|]*)|(%d*)|?(%d*)$')
+    if owner == ARGV[4] then
+        newState = state
+        if sourceExpiresAt ~= '' then
+            expiresAt = sourceExpiresAt
+        end
+        redis.call('HDEL', KEYS[1], ARGV[1])
+    end
+end
+local fence = redis.call('HINCRBY', KEYS[2], '_fence', 1)
+if newState == 'C' then
+    redis.call('HSET', KEYS[2], ARGV[1], 'C|' .. ARGV[4] .. '|' .. fence)
+else
+    redis.call('HSET', KEYS[2], ARGV[1], 'H|' .. ARGV[4] .. '|' .. fence .. '|' .. expiresAt)
+end
+return fence
@@ -0,0 +1,16 @@
+-- คืนที่นั่งแบบ compare-and-delete: ลบเฉพาะเมื่อเจ้าของตรงกับผู้เรียก
+-- KEYS[1] = seat map key
+-- ARGV[1] = seat, ARGV[2] = owner
+-- returns 1 = released, 0 = not owned by caller (or already free), -2 = seat map not loaded
+if redis.call('HEXISTS', KEYS[1], '_cap') == 0 then
+    return -2
+end
+local current = redis.call('HGET', KEYS[1], ARGV[1])
+if not current then
+    return 0
+end
+local owner = string.match(current, '^%a|([^|]*)|')
+if owner ~= ARGV[2] then
+    return 0
+end
+return redis.call('HDEL', KEYS[1], ARGV[1])
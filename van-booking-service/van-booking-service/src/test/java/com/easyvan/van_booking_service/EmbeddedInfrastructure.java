@@ -0,0 +1,61 @@
+package com.easyvan.van_booking_service;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+
+/**
+ * เริ่ม PostgreSQL และ Redis ในเครื่องครั้งเดียวต่อการรันทดสอบ แล้วชี้ datasource/redis ของทุก context ไปที่นั่น
+ * (ลงทะเบียนไว้ใน META-INF/spring.factories) Flyway สร้าง schema จาก migration ตามปกติ
+ */
+public class EmbeddedInfrastructure implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+    private static EmbeddedPostgres postgres;
+    private static int redisPort;
+
+    @Override
+    public void initialize(ConfigurableApplicationContext context) {
+        start();
+        TestPropertyValues.of(
+                "spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "spring.datasource.username=postgres",
+                "spring.datasource.password=postgres",
+                "spring.data.redis.host=localhost",
+                "spring.data.redis.port=" + redisPort)
+                .applyTo(context);
+    }
+
+    private static synchronized void start() {
+        if (postgres != null) {
+            return;
+        }
+        try {
+            postgres = EmbeddedPostgres.start();
+            redisPort = freePort();
+            RedisServer redis = new RedisServer(redisPort);
+            redis.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    redis.stop();
+                    postgres.close();
+                } catch (IOException e) {
+                    // process กำลังจบอยู่แล้ว
+                }
+            }));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
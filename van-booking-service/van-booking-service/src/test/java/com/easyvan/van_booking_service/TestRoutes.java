@@ -0,0 +1,35 @@
+package com.easyvan.van_booking_service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+
+/**
+ * สร้าง/ลบเส้นทางทดสอบ (สถานีเดียวเป็นทั้งต้นทางและปลายทาง) ผ่าน JDBC ตรง
+ * แต่ละ test ใช้เส้นทางของตัวเอง รอบรถและที่นั่งจึงไม่ชนกับ test อื่น
+ */
+public final class TestRoutes {
+
+    private TestRoutes() {
+    }
+
+    public static Long create(JdbcTemplate jdbcTemplate, double basePrice) {
+        Long stationId = jdbcTemplate.queryForObject(
+                "INSERT INTO stations (province, station_name) VALUES ('กรุงเทพฯ', 'หมอชิต') RETURNING id", Long.class);
+        return jdbcTemplate.queryForObject(
+                "INSERT INTO routes (origin_station_id, destination_station_id, base_price) VALUES (?, ?, ?) RETURNING id",
+                Long.class, stationId, stationId, basePrice);
+    }
+
+    // ลบเส้นทางพร้อมรอบรถ การจอง และสถานีของเส้นทางนั้น
+    public static void delete(JdbcTemplate jdbcTemplate, Long routeId) {
+        Map<String, Object> stations = jdbcTemplate.queryForMap(
+                "SELECT origin_station_id, destination_station_id FROM routes WHERE id = ?", routeId);
+        jdbcTemplate.update("DELETE FROM bookings WHERE schedule_id IN (SELECT id FROM schedules WHERE route_id = ?)",
+                routeId);
+        jdbcTemplate.update("DELETE FROM schedules WHERE route_id = ?", routeId);
+        jdbcTemplate.update("DELETE FROM routes WHERE id = ?", routeId);
+        jdbcTemplate.update("DELETE FROM stations WHERE id IN (?, ?)",
+                stations.get("origin_station_id"), stations.get("destination_station_id"));
+    }
+}
@@ -0,0 +1,133 @@
+package com.easyvan.van_booking_service.config;
+
+import com.easyvan.van_booking_service.entity.User;
+import com.easyvan.van_booking_service.repository.UserRepository;
+import com.easyvan.van_booking_service.service.CustomUserDetailsService;
+import com.easyvan.van_booking_service.service.JwtService;
+import com.easyvan.van_booking_service.service.TokenRevocationService;
+import com.easyvan.van_booking_service.service.UserStatusCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * ยืนยันตัวตนจาก claim ของ JWT: เมื่อ UserStatusCache มีผู้ใช้อยู่แล้วต้องไม่ query ฐานข้อมูลเลย
+ * และ token ที่ถูกเพิกถอนหรือของผู้ใช้ที่ไม่มีอยู่แล้วต้องไม่ได้รับการยืนยันตัวตน
+ */
+class JwtAuthenticationFilterTests {
+
+    private static final String EMAIL = "passenger@easyvan.test";
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final CustomUserDetailsService userDetailsService = mock(CustomUserDetailsService.class);
+    private final JwtService jwtService = new JwtService("test-only-secret-key-for-hs256-signatures-0123456789",
+            3_600_000);
+    private final TokenRevocationService tokenRevocationService = new TokenRevocationService(
+            mock(StringRedisTemplate.class, RETURNS_DEEP_STUBS), mock(RedisMessageListenerContainer.class),
+            jwtService, 1000);
+    private final UserStatusCache userStatusCache = new UserStatusCache(userRepository, true, 60, 1000);
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, userDetailsService,
+            userStatusCache, tokenRevocationService, new SimpleMeterRegistry());
+
+    @BeforeEach
+    @AfterEach
+    void clearSecurityContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void authenticatesFromClaimsWithoutUserLookupOnWarmCache() throws Exception {
+        when(userRepository.findByEmailIgnoreCase(EMAIL)).thenReturn(Optional.of(user("PASSENGER")));
+        String token = jwtService.issue(user("PASSENGER"));
+
+        // คำขอแรกโหลดสถานะผู้ใช้เข้า cache
+        assertThat(authenticate(token)).isNotNull();
+        verify(userRepository).findByEmailIgnoreCase(EMAIL);
+        clearInvocations(userRepository);
+
+        for (int i = 0; i < 3; i++) {
+            Authentication authentication = authenticate(token);
+            assertThat(authentication.getName()).isEqualTo(EMAIL);
+            assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                    .containsExactly("ROLE_PASSENGER");
+        }
+        verifyNoInteractions(userRepository);
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void rejectsRevokedToken() throws Exception {
+        when(userRepository.findByEmailIgnoreCase(EMAIL)).thenReturn(Optional.of(user("PASSENGER")));
+        String token = jwtService.issue(user("PASSENGER"));
+        tokenRevocationService.revoke(jwtService.parse(token));
+
+        assertThat(authenticate(token)).isNull();
+    }
+
+    @Test
+    void rejectsTokensIssuedBeforeUserWideRevocation() throws Exception {
+        when(userRepository.findByEmailIgnoreCase(EMAIL)).thenReturn(Optional.of(user("PASSENGER")));
+        String token = jwtService.issue(user("PASSENGER"));
+        tokenRevocationService.revokeAllForUser(EMAIL);
+
+        assertThat(authenticate(token)).isNull();
+    }
+
+    @Test
+    void rejectsUserThatNoLongerExists() throws Exception {
+        when(userRepository.findByEmailIgnoreCase(EMAIL)).thenReturn(Optional.empty());
+        String token = jwtService.issue(user("PASSENGER"));
+
+        assertThat(authenticate(token)).isNull();
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void usesCurrentRoleInsteadOfRoleInToken() throws Exception {
+        when(userRepository.findByEmailIgnoreCase(EMAIL)).thenReturn(Optional.of(user("PASSENGER")));
+        String adminToken = jwtService.issue(user("ADMIN"));
+
+        assertThat(authenticate(adminToken).getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_PASSENGER");
+    }
+
+    // ส่งคำขอผ่าน filter แล้วคืน authentication ที่ได้ (null = ไม่ได้ยืนยันตัวตน) filter chain ต้องทำงานต่อเสมอ
+    private Authentication authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/bookings/me");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isSameAs(request);
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private static User user(String role) {
+        User user = new User();
+        user.setEmail(EMAIL);
+        user.setUsername("passenger");
+        user.setRole(role);
+        return user;
+    }
+}
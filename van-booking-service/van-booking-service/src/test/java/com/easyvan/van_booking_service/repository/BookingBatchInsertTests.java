@@ -0,0 +1,138 @@
+package com.easyvan.van_booking_service.repository;
+
+import com.easyvan.van_booking_service.TestRoutes;
+import com.easyvan.van_booking_service.entity.Booking;
+import com.easyvan.van_booking_service.entity.Schedule;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * บันทึกการจอง 10,000 รายการแบบไม่ batch และแบบ batch ตามค่าที่ตั้งไว้ แล้วนับ round trip ของ JDBC จริง
+ * id มาจาก sequence แบบ pooled-lo (ครั้งละ 50) จึงต้องมี nextval หนึ่งครั้งและ batch หนึ่งชุดต่อ id 50 ค่า
+ * ใช้เวลานาน จึงรันเฉพาะใน profile benchmark ({@code mvn test -Pbenchmark}) เวลาที่วัดได้อยู่ในข้อความของ assertion
+ */
+@Tag("benchmark")
+@SpringBootTest
+class BookingBatchInsertTests {
+
+    private static final int BOOKINGS = 10_000;
+    private static final int IDS_PER_ROUND_TRIP = 50; // allocationSize และ hibernate.jdbc.batch-size
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Long routeId;
+    private Long scheduleId;
+
+    @AfterEach
+    void deleteFixture() {
+        if (routeId != null) {
+            TestRoutes.delete(jdbcTemplate, routeId);
+        }
+    }
+
+    @Test
+    void insertsOneBatchAndOneSequenceCallPerFiftyIds() {
+        routeId = TestRoutes.create(jdbcTemplate, 250.0);
+        scheduleId = jdbcTemplate.queryForObject(
+                "INSERT INTO schedules (route_id, departure_time) VALUES (?, ?) RETURNING id", Long.class,
+                routeId, LocalDateTime.now().plusDays(30).truncatedTo(ChronoUnit.HOURS));
+
+        RoundTrips unbatched = insertBookings(1);
+        RoundTrips batched = insertBookings(null);
+
+        assertThat(unbatched.statements).as("unbatched %s", unbatched)
+                .isEqualTo(BOOKINGS + BOOKINGS / IDS_PER_ROUND_TRIP);
+        assertThat(unbatched.batches).as("unbatched %s", unbatched).isZero();
+        // nextval หนึ่งครั้งต่อ 50 id และ INSERT หนึ่ง batch ต่อ 50 แถว
+        assertThat(batched.statements).as("batched %s", batched).isEqualTo(BOOKINGS / IDS_PER_ROUND_TRIP);
+        assertThat(batched.batches).as("batched %s", batched).isEqualTo(BOOKINGS / IDS_PER_ROUND_TRIP);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM bookings WHERE schedule_id = ?",
+                Integer.class, scheduleId)).isEqualTo(2 * BOOKINGS);
+    }
+
+    // jdbcBatchSize null = ใช้ค่าของแอป (HibernateBatchingConfig)
+    private RoundTrips insertBookings(Integer jdbcBatchSize) {
+        return transactionTemplate.execute(status -> {
+            SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+            if (jdbcBatchSize != null) {
+                session.setJdbcBatchSize(jdbcBatchSize);
+            }
+            Schedule schedule = entityManager.getReference(Schedule.class, scheduleId);
+            List<Booking> bookings = new ArrayList<>(BOOKINGS);
+            for (int i = 0; i < BOOKINGS; i++) {
+                bookings.add(newBooking(schedule, i));
+            }
+
+            RoundTrips roundTrips = new RoundTrips();
+            session.getEventListenerManager().addListener(roundTrips);
+            long start = System.nanoTime();
+            bookingRepository.saveAll(bookings);
+            entityManager.flush();
+            roundTrips.millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            entityManager.clear();
+            return roundTrips;
+        });
+    }
+
+    // รายการย้อนหลังที่ยกเลิกแล้ว ไม่ติด unique index ของที่นั่งที่ยัง active
+    private static Booking newBooking(Schedule schedule, int i) {
+        Booking booking = new Booking();
+        booking.setSchedule(schedule);
+        booking.setSeatNumber(i % 13 + 1);
+        booking.setStatus("CANCELLED");
+        booking.setTotalPrice(250.0);
+        booking.setPickupPoint("หมอชิต");
+        booking.setContactPhone("0800000000");
+        return booking;
+    }
+
+    // นับคำสั่งที่ส่งไปฐานข้อมูล: statement เดี่ยว (รวม nextval) และ batch
+    private static class RoundTrips extends BaseSessionEventListener {
+
+        private int statements;
+        private int batches;
+        private long millis;
+
+        @Override
+        public void jdbcExecuteStatementStart() {
+            statements++;
+        }
+
+        @Override
+        public void jdbcExecuteBatchStart() {
+            batches++;
+        }
+
+        @Override
+        public String toString() {
+            return "%d bookings in %d ms, %d round trips".formatted(BOOKINGS, millis, statements + batches);
+        }
+    }
+}
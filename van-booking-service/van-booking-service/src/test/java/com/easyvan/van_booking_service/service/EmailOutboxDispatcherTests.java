@@ -0,0 +1,256 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.entity.EmailOutbox;
+import com.easyvan.van_booking_service.repository.EmailOutboxRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * ส่ง outbox ไปที่ GreenMail (SMTP จำลอง) ผ่าน sender ที่นับจำนวน SMTP session และตีกลับผู้รับโดเมน bounce.test
+ * แบบเดียวกับ SMTP ที่ตอบ 550 ตอน RCPT
+ */
+@SpringBootTest(properties = {
+        "email.outbox.batch-size=50",
+        "email.outbox.max-attempts=3",
+        "email.outbox.backoff-ms=60000",
+        "email.outbox.lease-ms=1000"
+})
+class EmailOutboxDispatcherTests {
+
+    @RegisterExtension
+    static final GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private EmailOutboxDispatcher dispatcher;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RecordingMailSender mailSender;
+
+    @BeforeEach
+    void reset() {
+        jdbcTemplate.update("DELETE FROM email_outbox");
+        mailSender.sessions.set(0);
+        mailSender.crashOnConnect.set(false);
+        mailSender.rejectNext.set(0);
+    }
+
+    @Test
+    void sendsWholeBatchInOneSmtpSession() {
+        for (int i = 0; i < 5; i++) {
+            enqueue("passenger" + i + "@easyvan.test", 0, LocalDateTime.now());
+        }
+
+        dispatcher.dispatch();
+
+        assertThat(mailSender.sessions).hasValue(1);
+        assertThat(greenMail.getReceivedMessages()).hasSize(5);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM email_outbox WHERE status = 'SENT' AND sent_at IS NOT NULL", Integer.class))
+                .isEqualTo(5);
+    }
+
+    @Test
+    void retriesFailedRecipientWithExponentialBackoff() {
+        Long delivered = enqueue("passenger@easyvan.test", 0, LocalDateTime.now());
+        Long bounced = enqueue("nobody@bounce.test", 0, LocalDateTime.now());
+
+        dispatcher.dispatch();
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(status(delivered)).isEqualTo(EmailOutbox.SENT);
+        Map<String, Object> first = row(bounced);
+        assertThat(first.get("status")).isEqualTo(EmailOutbox.PENDING);
+        assertThat(first.get("attempts")).isEqualTo(1);
+        assertThat(first.get("last_error")).isNotNull();
+        assertThat(nextAttemptAt(first)).isCloseTo(LocalDateTime.now().plusSeconds(60), within(5, ChronoUnit.SECONDS));
+
+        // ครบเวลา backoff แล้ว: ครั้งที่สองล้มเหลวอีกจะรอเป็นสองเท่า
+        jdbcTemplate.update("UPDATE email_outbox SET next_attempt_at = ? WHERE id = ?",
+                LocalDateTime.now().minusSeconds(1), bounced);
+        dispatcher.dispatch();
+
+        Map<String, Object> second = row(bounced);
+        assertThat(second.get("status")).isEqualTo(EmailOutbox.PENDING);
+        assertThat(second.get("attempts")).isEqualTo(2);
+        assertThat(nextAttemptAt(second)).isCloseTo(LocalDateTime.now().plusSeconds(120), within(5, ChronoUnit.SECONDS));
+    }
+
+    @Test
+    void matchesFailuresToTheMessageThatFailedWhenTwoEmailsAreIdentical() {
+        Long first = enqueue("passenger@easyvan.test", 0, LocalDateTime.now());
+        Long second = enqueue("passenger@easyvan.test", 0, LocalDateTime.now());
+        mailSender.rejectNext.set(1);
+
+        dispatcher.dispatch();
+
+        // ฉบับแรกถูกปฏิเสธ ฉบับที่สองที่เนื้อหาเหมือนกันต้องยังนับว่าส่งสำเร็จ
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(status(first)).isEqualTo(EmailOutbox.PENDING);
+        assertThat(row(first).get("attempts")).isEqualTo(1);
+        assertThat(status(second)).isEqualTo(EmailOutbox.SENT);
+    }
+
+    @Test
+    void movesToDeadAfterMaxAttempts() {
+        Long bounced = enqueue("nobody@bounce.test", 2, LocalDateTime.now());
+
+        dispatcher.dispatch();
+
+        assertThat(status(bounced)).isEqualTo(EmailOutbox.DEAD);
+        assertThat(row(bounced).get("attempts")).isEqualTo(3);
+
+        // DEAD ไม่ถูกหยิบมาส่งอีก แม้ถึงเวลาแล้ว
+        jdbcTemplate.update("UPDATE email_outbox SET next_attempt_at = ? WHERE id = ?",
+                LocalDateTime.now().minusSeconds(1), bounced);
+        mailSender.sessions.set(0);
+        dispatcher.dispatch();
+        assertThat(mailSender.sessions).hasValue(0);
+        assertThat(status(bounced)).isEqualTo(EmailOutbox.DEAD);
+    }
+
+    @Test
+    void resendsAfterLeaseOfCrashedDispatcherExpires() throws InterruptedException {
+        Long id = enqueue("passenger@easyvan.test", 0, LocalDateTime.now());
+
+        // เครื่องที่จองแถวไปแล้วหยุดทำงานก่อนส่ง: แถวค้างอยู่จนกว่า lease จะหมด
+        mailSender.crashOnConnect.set(true);
+        assertThatThrownBy(dispatcher::dispatch).isInstanceOf(SimulatedCrash.class);
+        mailSender.crashOnConnect.set(false);
+        assertThat(status(id)).isEqualTo(EmailOutbox.PENDING);
+
+        dispatcher.dispatch();
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+
+        Thread.sleep(1_100);
+        dispatcher.dispatch();
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(status(id)).isEqualTo(EmailOutbox.SENT);
+        assertThat(row(id).get("attempts")).isEqualTo(2);
+    }
+
+    private Long enqueue(String recipient, int attempts, LocalDateTime nextAttemptAt) {
+        EmailOutbox email = new EmailOutbox();
+        email.setRecipient(recipient);
+        email.setSubject("ยืนยันการจอง - EasyVan Booking");
+        email.setBody("ทดสอบ");
+        email.setAttempts(attempts);
+        email.setNextAttemptAt(nextAttemptAt);
+        return emailOutboxRepository.save(email).getId();
+    }
+
+    private String status(Long id) {
+        return (String) row(id).get("status");
+    }
+
+    private Map<String, Object> row(Long id) {
+        return jdbcTemplate.queryForMap("SELECT status, attempts, next_attempt_at, last_error FROM email_outbox WHERE id = ?",
+                id);
+    }
+
+    private static LocalDateTime nextAttemptAt(Map<String, Object> row) {
+        return ((Timestamp) row.get("next_attempt_at")).toLocalDateTime();
+    }
+
+    @TestConfiguration
+    static class MailConfig {
+
+        @Bean
+        RecordingMailSender recordingMailSender() {
+            RecordingMailSender sender = new RecordingMailSender();
+            sender.setHost("localhost");
+            sender.setPort(ServerSetupTest.SMTP.getPort());
+            return sender;
+        }
+    }
+
+    static class SimulatedCrash extends Error {
+    }
+
+    static class RecordingMailSender extends JavaMailSenderImpl {
+
+        final AtomicInteger sessions = new AtomicInteger();
+        final AtomicBoolean crashOnConnect = new AtomicBoolean();
+        final AtomicInteger rejectNext = new AtomicInteger();
+
+        @Override
+        protected Transport connectTransport() throws MessagingException {
+            if (crashOnConnect.get()) {
+                throw new SimulatedCrash();
+            }
+            sessions.incrementAndGet();
+            return new BouncingTransport(getSession(), super.connectTransport(), rejectNext);
+        }
+    }
+
+    // ส่งต่อไปที่ GreenMail ยกเว้นผู้รับโดเมน bounce.test และ rejectNext ฉบับถัดไป ที่ถูกปฏิเสธทีละฉบับ
+    // (session ยังใช้ต่อได้)
+    static class BouncingTransport extends Transport {
+
+        private final Transport delegate;
+        private final AtomicInteger rejectNext;
+
+        BouncingTransport(Session session, Transport delegate, AtomicInteger rejectNext) {
+            super(session, null);
+            this.delegate = delegate;
+            this.rejectNext = rejectNext;
+        }
+
+        @Override
+        public void sendMessage(Message message, Address[] addresses) throws MessagingException {
+            boolean rejectAll = rejectNext.getAndUpdate(n -> Math.max(0, n - 1)) > 0;
+            Address[] rejected = Arrays.stream(addresses)
+                    .filter(a -> rejectAll || ((InternetAddress) a).getAddress().endsWith("@bounce.test"))
+                    .toArray(Address[]::new);
+            if (rejected.length > 0) {
+                throw new SendFailedException("550 5.1.1 mailbox unavailable", null, new Address[0], new Address[0],
+                        rejected);
+            }
+            delegate.sendMessage(message, addresses);
+        }
+
+        @Override
+        public boolean isConnected() {
+            return delegate.isConnected();
+        }
+
+        @Override
+        public void close() throws MessagingException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.TestRoutes;
+import com.easyvan.van_booking_service.dto.SeatLease;
+import com.easyvan.van_booking_service.entity.Schedule;
+import com.easyvan.van_booking_service.repository.SchedulesRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * lock ของที่นั่งผ่าน SeatLockService (strategy redis) บน Redis และ PostgreSQL จริง
+ * ตรวจ Lua script ของการถือครอง ยืนยัน และต่อเวลา: fencing token เก่าใช้ไม่ได้ การถือครองพร้อมกันได้เพียงรายเดียว
+ * และที่นั่งที่การถือครองหมดอายุแล้วถูกจองต่อได้
+ */
+@SpringBootTest(properties = "seat-lock.strategy=redis")
+class SeatLockServiceIntegrationTests {
+
+    private static final int CONCURRENT_HOLDERS = 8;
+
+    @Autowired
+    private SeatLockService seatLockService;
+
+    @Autowired
+    private SchedulesRepository schedulesRepository;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long routeId;
+    private Schedule schedule;
+
+    @BeforeEach
+    void createSchedule() {
+        routeId = TestRoutes.create(jdbcTemplate, 250.0);
+        Long scheduleId = jdbcTemplate.queryForObject(
+                "INSERT INTO schedules (route_id, departure_time) VALUES (?, ?) RETURNING id", Long.class,
+                routeId, LocalDateTime.now().plusDays(7).truncatedTo(ChronoUnit.HOURS));
+        schedule = schedulesRepository.findById(scheduleId).orElseThrow();
+    }
+
+    @AfterEach
+    void deleteSchedule() {
+        redisTemplate.delete(SeatMapService.key(routeId, schedule.getDepartureTime()));
+        TestRoutes.delete(jdbcTemplate, routeId);
+    }
+
+    @Test
+    void rejectsConfirmAndExtendWithStaleFencingToken() {
+        SeatLease stale = seatLockService.acquire(schedule, 1, "owner-a");
+        // เจ้าของเดิมถือครองซ้ำ (เช่น retry หลัง timeout) ได้ token ใหม่ lease เดิมจึงเก่าไปแล้ว
+        SeatLease current = seatLockService.acquire(schedule, 1, "owner-a");
+        assertThat(current.getFencingToken()).isGreaterThan(stale.getFencingToken());
+
+        assertThat(seatLockService.extend(schedule, 1, stale)).isFalse();
+        assertThat(seatLockService.confirm(schedule, 1, stale)).isFalse();
+
+        assertThat(seatLockService.extend(schedule, 1, current)).isTrue();
+        assertThat(seatLockService.confirm(schedule, 1, current)).isTrue();
+        assertThat(seatLockService.acquire(schedule, 1, "owner-b")).isNull();
+    }
+
+    @Test
+    void onlyOneOfConcurrentHoldsOnSameSeatSucceeds() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_HOLDERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<SeatLease>> holds = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_HOLDERS; i++) {
+                String owner = "owner-" + i;
+                holds.add(executor.submit(() -> {
+                    start.await();
+                    return seatLockService.acquire(schedule, 2, owner);
+                }));
+            }
+            start.countDown();
+
+            List<SeatLease> granted = new ArrayList<>();
+            for (Future<SeatLease> hold : holds) {
+                SeatLease lease = hold.get();
+                if (lease != null) {
+                    granted.add(lease);
+                }
+            }
+            assertThat(granted).hasSize(1);
+            assertThat(seatLockService.confirm(schedule, 2, granted.get(0))).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void expiredHoldCanBeTakenByAnotherOwner() {
+        SeatLease expired = seatLockService.acquire(schedule, 3, "owner-a");
+        assertThat(seatLockService.acquire(schedule, 3, "owner-b")).isNull();
+
+        expireHold(3);
+
+        SeatLease taken = seatLockService.acquire(schedule, 3, "owner-b");
+        assertThat(taken).isNotNull();
+        assertThat(taken.getFencingToken()).isGreaterThan(expired.getFencingToken());
+        // เจ้าของเดิมที่หมดเวลาไปแล้วต่อเวลาหรือยืนยันทับผู้ถือรายใหม่ไม่ได้
+        assertThat(seatLockService.extend(schedule, 3, expired)).isFalse();
+        assertThat(seatLockService.confirm(schedule, 3, expired)).isFalse();
+        assertThat(seatLockService.confirm(schedule, 3, taken)).isTrue();
+    }
+
+    // hold TTL นับเป็นนาที จึงเลื่อนเวลาหมดอายุในผังที่นั่ง (H|<owner>|<fence>|<expiresAtMillis>) ไปในอดีตแทนการรอ
+    private void expireHold(int seatNumber) {
+        String key = SeatMapService.key(routeId, schedule.getDepartureTime());
+        String field = String.valueOf(seatNumber);
+        String value = (String) redisTemplate.opsForHash().get(key, field);
+        assertThat(value).startsWith("H|");
+        redisTemplate.opsForHash().put(key, field,
+                value.substring(0, value.lastIndexOf('|') + 1) + (System.currentTimeMillis() - 1_000));
+    }
+}
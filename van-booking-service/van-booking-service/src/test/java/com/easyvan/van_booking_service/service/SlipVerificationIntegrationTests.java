@@ -0,0 +1,249 @@
+package com.easyvan.van_booking_service.service;
+
+import com.easyvan.van_booking_service.TestRoutes;
+import com.easyvan.van_booking_service.dto.BookingRequest;
+import com.easyvan.van_booking_service.dto.SlipVerificationJob;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.QueueDispatcher;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * ตรวจสลิปครบเส้นทาง (อัปโหลด -> คิว -> Slip2Go -> ยืนยันการจอง) โดยมี MockWebServer แทน Slip2Go
+ * worker มี thread เดียวและคิวยาว 1 เพื่อให้ทดสอบกรณีคิวเต็มได้
+ */
+@SpringBootTest(properties = {
+        "slip.verification.threads=1",
+        "slip.verification.queue-capacity=1",
+        "slip.verification.max-attempts=3",
+        "slip.verification.backoff-ms=200",
+        "slip2go.http.read-timeout-ms=3000",
+        "slip2go.breaker.failure-threshold=100"
+})
+@AutoConfigureMockMvc
+@WithMockUser
+class SlipVerificationIntegrationTests {
+
+    private static final MockWebServer slip2go = new MockWebServer();
+    private static final QueueDispatcher responses = new QueueDispatcher();
+    private static final List<Long> requestTimes = new CopyOnWriteArrayList<>();
+    private static final AtomicInteger departureOffset = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @DynamicPropertySource
+    static void slip2goProperties(DynamicPropertyRegistry registry) throws IOException {
+        slip2go.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                requestTimes.add(System.nanoTime());
+                return responses.dispatch(request);
+            }
+        });
+        slip2go.start();
+        registry.add("slip2go.api.url", () -> slip2go.url("/api/verify-slip").toString());
+    }
+
+    @AfterAll
+    static void stopSlip2go() throws IOException {
+        slip2go.shutdown();
+    }
+
+    @BeforeEach
+    void resetRequests() {
+        requestTimes.clear();
+    }
+
+    @Test
+    void acceptsSlipAndConfirmsBookingWhenSlip2GoVerifiesIt() throws Exception {
+        Long bookingId = createBooking(100.0);
+        String transRef = "T-" + UUID.randomUUID();
+        responses.enqueueResponse(slip2goSuccess(transRef, 100.0));
+        byte[] image = randomImage();
+
+        MvcResult accepted = mockMvc.perform(multipart("/api/payments/verify-slip/" + bookingId)
+                        .file(new MockMultipartFile("file", "slip.jpg", "image/jpeg", image)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andReturn();
+        String jobId = objectMapper.readValue(accepted.getResponse().getContentAsString(), SlipVerificationJob.class)
+                .getJobId();
+
+        SlipVerificationJob job = awaitFinished(jobId);
+        assertThat(job.getStatus()).isEqualTo(SlipVerificationJob.SUCCEEDED);
+        assertThat(job.getTransactionInfo().getTransRef()).isEqualTo(transRef);
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM bookings WHERE id = ?", String.class, bookingId))
+                .isEqualTo("CONFIRMED");
+
+        RecordedRequest request = slip2go.takeRequest(1, TimeUnit.SECONDS);
+        assertThat(request.getHeader("x-api-secret")).isEqualTo("test-secret");
+        assertThat(request.getBody().readUtf8())
+                .isEqualTo("{\"image\":\"" + Base64.getEncoder().encodeToString(image) + "\"}");
+    }
+
+    @Test
+    void retriesServerErrorsAndTimeoutsWithBackoffThenFails() throws Exception {
+        Long bookingId = createBooking(100.0);
+        responses.enqueueResponse(new MockResponse().setResponseCode(503));
+        responses.enqueueResponse(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        responses.enqueueResponse(new MockResponse().setResponseCode(500));
+
+        String jobId = submit(bookingId);
+
+        SlipVerificationJob job = awaitFinished(jobId);
+        assertThat(job.getStatus()).isEqualTo(SlipVerificationJob.FAILED);
+        assertThat(job.getAttempts()).isEqualTo(3);
+        assertThat(requestTimes).hasSize(3);
+        // รอ backoff-ms แล้วเพิ่มเป็นเท่าตัว: 200ms หลังครั้งแรก และ 400ms หลังครั้งที่สอง (ซึ่งรอจนหมด read timeout)
+        assertThat(millisBetween(0, 1)).isGreaterThanOrEqualTo(200);
+        assertThat(millisBetween(1, 2)).isGreaterThanOrEqualTo(3000 + 400);
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM bookings WHERE id = ?", String.class, bookingId))
+                .isEqualTo("PENDING");
+        drainRecordedRequests();
+    }
+
+    @Test
+    void returns503WhenVerificationQueueIsFull() throws Exception {
+        Long first = createBooking(100.0);
+        Long second = createBooking(100.0);
+        Long third = createBooking(100.0);
+
+        // ยังไม่มี response ในคิว worker เดียวจึงรอ Slip2Go อยู่ และงานที่สองรออยู่ในคิว
+        String firstJob = submit(first);
+        await(() -> requestTimes.size() == 1);
+        String secondJob = submit(second);
+        await(() -> meterRegistry.get("slip.verification.queue.depth").gauge().value() == 1);
+
+        mockMvc.perform(multipart("/api/payments/verify-slip/" + third)
+                        .file(new MockMultipartFile("file", "slip.jpg", "image/jpeg", randomImage())))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "5"));
+
+        responses.enqueueResponse(slip2goSuccess("T-" + UUID.randomUUID(), 100.0));
+        responses.enqueueResponse(slip2goSuccess("T-" + UUID.randomUUID(), 100.0));
+        assertThat(awaitFinished(firstJob).getStatus()).isEqualTo(SlipVerificationJob.SUCCEEDED);
+        assertThat(awaitFinished(secondJob).getStatus()).isEqualTo(SlipVerificationJob.SUCCEEDED);
+        assertThat(requestTimes).hasSize(2);
+        drainRecordedRequests();
+    }
+
+    private String submit(Long bookingId) throws Exception {
+        MvcResult result = mockMvc.perform(multipart("/api/payments/verify-slip/" + bookingId)
+                        .file(new MockMultipartFile("file", "slip.jpg", "image/jpeg", randomImage())))
+                .andExpect(status().isAccepted())
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), SlipVerificationJob.class).getJobId();
+    }
+
+    private SlipVerificationJob awaitFinished(String jobId) throws Exception {
+        SlipVerificationJob[] job = new SlipVerificationJob[1];
+        await(() -> {
+            try {
+                String json = mockMvc.perform(get("/api/payments/verify-slip/jobs/" + jobId))
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsString();
+                job[0] = objectMapper.readValue(json, SlipVerificationJob.class);
+                return job[0].isFinished();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        return job[0];
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 20s").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    private long millisBetween(int from, int to) {
+        return TimeUnit.NANOSECONDS.toMillis(requestTimes.get(to) - requestTimes.get(from));
+    }
+
+    private static void drainRecordedRequests() throws InterruptedException {
+        while (slip2go.takeRequest(10, TimeUnit.MILLISECONDS) != null) {
+            // requestCount/takeRequest ใช้ร่วมกันทุก test จึงล้างของ test นี้ออก
+        }
+    }
+
+    // แต่ละการจองใช้รอบรถของตัวเอง ที่นั่งจึงไม่ชนกันระหว่าง test
+    private Long createBooking(double price) {
+        Long routeId = TestRoutes.create(jdbcTemplate, price);
+
+        BookingRequest request = new BookingRequest();
+        request.setRouteId(routeId);
+        request.setDepartureTime(LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.HOURS)
+                .plusMinutes(departureOffset.incrementAndGet()));
+        request.setSeatNumber(1);
+        request.setPickupPoint("หมอชิต");
+        request.setTotalPrice(price);
+        String result = bookingService.reserveSeatWithLock(request);
+        assertThat(result).startsWith("จองสำเร็จ:");
+        return Long.valueOf(result.substring(result.indexOf(':') + 1));
+    }
+
+    private static MockResponse slip2goSuccess(String transRef, double amount) {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"success\":true,\"message\":\"Slip found\",\"data\":{\"transRef\":\"" + transRef
+                        + "\",\"amount\":" + amount + "}}");
+    }
+
+    // เนื้อหาไม่ซ้ำกัน ผลตรวจจึงไม่ถูกตอบจาก SlipReplayCache ของ test ก่อนหน้า
+    private static byte[] randomImage() {
+        byte[] image = new byte[1024];
+        ThreadLocalRandom.current().nextBytes(image);
+        return image;
+    }
+}
@@ -7,7 +7,7 @@ import { Card, Button } from '../../components/UI'
 import { Station, Route } from '../../types'
 import MapComponent from '../../components/MapComponent'
 import { useRouter } from 'next/navigation'
-import { authFetch } from '../../utils/api'
+import { authFetch, verifySlip } from '../../utils/api'
 import { useAuth } from '../../context/AuthContext'
 
 const BACKEND_URL = 'http://localhost:8080'
@@ -134,7 +134,7 @@ export default function BookingPage() {
       const fetchSchedules = async () => {
         try {
           setSchedulesLoading(true)
-          const res = await authFetch(`${BACKEND_URL}/api/schedules?routeId=${selectedRoute.id}&date=${travelDate}`)
+          const res = await authFetch(`${BACKEND_URL}/api/schedules/availability?routeId=${selectedRoute.id}&date=${travelDate}`)
           if (res.ok) {
             const data = await res.json()
             setSchedules(data)
@@ -151,30 +151,34 @@ export default function BookingPage() {
     }
   }, [selectedRoute, travelDate])
 
-  // Fetch booked seats when schedule changes
+  // Subscribe to live seat map updates when schedule changes
   useEffect(() => {
     if (selectedRoute && selectedScheduleId) {
-      const fetchBookedSeats = async () => {
-        try {
-          setLoadingBookedSeats(true)
-          const selectedSch = schedules.find(s => s.id.toString() === selectedScheduleId)
-          if (!selectedSch) return
+      const selectedSch = schedules.find(s => s.id.toString() === selectedScheduleId)
+      if (!selectedSch) return
 
-          const res = await authFetch(`${BACKEND_URL}/api/bookings/booked-seats?routeId=${selectedRoute.id}&departureTime=${encodeURIComponent(selectedSch.departureTime)}`)
-          if (res.ok) {
-            const data = await res.json()
-            setBookedSeats(data)
-          } else {
-            setBookedSeats([])
-          }
-        } catch (err) {
-          console.error('Error fetching booked seats:', err)
-          setBookedSeats([])
-        } finally {
-          setLoadingBookedSeats(false)
-        }
+      setLoadingBookedSeats(true)
+      const source = new EventSource(`${BACKEND_URL}/api/bookings/seat-map/stream?routeId=${selectedRoute.id}&departureTime=${encodeURIComponent(selectedSch.departureTime)}`)
+
+      // snapshot ถูกส่งมาใหม่ทุกครั้งที่ EventSource เชื่อมต่อใหม่ จึงไม่พลาด event ระหว่างหลุดการเชื่อมต่อ
+      source.addEventListener('snapshot', (e) => {
+        const data = JSON.parse((e as MessageEvent).data)
+        setBookedSeats([...data.heldSeats, ...data.confirmedSeats].sort((a: number, b: number) => a - b))
+        setLoadingBookedSeats(false)
+      })
+      source.addEventListener('seat', (e) => {
+        const { seatNumber, state } = JSON.parse((e as MessageEvent).data)
+        setBookedSeats(prev => {
+          const others = prev.filter(seat => seat !== seatNumber)
+          return state === 'FREE' ? others : [...others, seatNumber].sort((a, b) => a - b)
+        })
+      })
+      source.onerror = () => {
+        console.error('Seat map stream disconnected, retrying...')
+        setLoadingBookedSeats(false)
       }
-      fetchBookedSeats()
+
+      return () => source.close()
     } else {
       setBookedSeats([])
     }
@@ -245,18 +249,10 @@ export default function BookingPage() {
         // If user uploaded a slip, verify it now
         if (slipFile) {
           setIsVerifying(true)
-          const formData = new FormData()
-          formData.append('file', slipFile)
-
-          const verifyRes = await authFetch(`${BACKEND_URL}/api/payments/verify-slip/${bookingId}`, {
-            method: 'POST',
-            body: formData
-          })
-
-          const verifyData = await verifyRes.json()
+          const verifyData = await verifySlip(bookingId, slipFile)
           setIsVerifying(false)
 
-          if (verifyRes.ok) {
+          if (verifyData.ok) {
             await Swal.fire({
               icon: 'success',
               title: 'ชำระเงินและจองสำเร็จ!',
@@ -466,8 +462,9 @@ export default function BookingPage() {
                           {schedules
                             .filter(sch => new Date(sch.departureTime) > new Date()) // Filter out past schedules
                             .map(sch => (
-                              <option key={sch.id} value={sch.id.toString()}>
+                              <option key={sch.id} value={sch.id.toString()} disabled={sch.seatsRemaining === 0}>
                                 {new Date(sch.departureTime).toLocaleTimeString('th-TH', { hour: '2-digit', minute: '2-digit' })} น.
+                                {sch.seatsRemaining === 0 ? ' (เต็ม)' : ` (เหลือ ${sch.seatsRemaining} ที่นั่ง)`}
                               </option>
                             ))}
                           {!schedulesLoading && selectedRoute && travelDate && schedules.length === 0 && (
@@ -4,7 +4,7 @@ import React, { useEffect, useState } from 'react'
 import { Card, Button } from '../../components/UI'
 import { Check, Calendar, Clock, MapPin, User, ChevronLeft } from 'lucide-react'
 import Link from 'next/link'
-import { authFetch } from '../../utils/api'
+import { authFetch, verifySlip } from '../../utils/api'
 import { useAuth } from '../../context/AuthContext'
 import Swal from 'sweetalert2'
 
@@ -31,7 +31,7 @@ export default function MyBookingsPage() {
 
         // Time Filter
         if (timeFilter !== 'ALL') {
-            const bookingDate = new Date(booking.schedule.departureTime)
+            const bookingDate = new Date(booking.departureTime)
             const now = new Date()
 
             if (timeFilter === 'THIS_MONTH') {
@@ -129,7 +129,7 @@ export default function MyBookingsPage() {
 
     const startEdit = (booking: any) => {
         setEditingBooking(booking)
-        const d = new Date(booking.schedule.departureTime)
+        const d = new Date(booking.departureTime)
         setNewDate(d.toISOString().split('T')[0]) // YYYY-MM-DD
         setNewTime(d.toTimeString().slice(0, 5)) // HH:mm
     }
@@ -160,10 +160,7 @@ export default function MyBookingsPage() {
                     if (b.id === editingBooking.id) {
                         return {
                             ...b,
-                            schedule: {
-                                ...b.schedule,
-                                departureTime: dateTimeStr
-                            }
+                            departureTime: dateTimeStr
                         }
                     }
                     return b
@@ -191,18 +188,10 @@ export default function MyBookingsPage() {
 
         try {
             setIsVerifying(true)
-            const formData = new FormData()
-            formData.append('file', slipFile)
-
-            const res = await authFetch(`${BACKEND_URL}/api/payments/verify-slip/${uploadingBooking.id}`, {
-                method: 'POST',
-                body: formData
-            })
-
-            const data = await res.json()
+            const data = await verifySlip(uploadingBooking.id, slipFile)
             setIsVerifying(false)
 
-            if (res.ok) {
+            if (data.ok) {
                 Swal.fire('สำเร็จ!', 'ตรวจสอบสลิปเรียบร้อยแล้ว รายการของคุณได้รับการยืนยัน', 'success')
                 setBookings(prev => prev.map(b => b.id === uploadingBooking.id ? { ...b, status: 'CONFIRMED' } : b))
                 setUploadingBooking(null)
@@ -361,7 +350,7 @@ export default function MyBookingsPage() {
                                                 </div>
                                                 <div>
                                                     <p className="text-xs text-black">วันที่เดินทาง</p>
-                                                    <p className="font-bold text-black">{new Date(booking.schedule.departureTime).toLocaleDateString('th-TH', { dateStyle: 'long' })}</p>
+                                                    <p className="font-bold text-black">{new Date(booking.departureTime).toLocaleDateString('th-TH', { dateStyle: 'long' })}</p>
                                                 </div>
                                             </div>
                                             <div className="flex items-center gap-3">
@@ -370,7 +359,7 @@ export default function MyBookingsPage() {
                                                 </div>
                                                 <div>
                                                     <p className="text-xs text-black">เวลาเดินรถ</p>
-                                                    <p className="font-bold text-black">{new Date(booking.schedule.departureTime).toLocaleTimeString('th-TH', { hour: '2-digit', minute: '2-digit' })} น.</p>
+                                                    <p className="font-bold text-black">{new Date(booking.departureTime).toLocaleTimeString('th-TH', { hour: '2-digit', minute: '2-digit' })} น.</p>
                                                 </div>
                                             </div>
                                             <div className="flex items-center gap-3">
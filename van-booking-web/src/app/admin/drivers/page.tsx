@@ -19,7 +19,7 @@ import {
     User as UserIcon
 } from 'lucide-react'
 import AdminGuard from '../../components/AdminGuard'
-import { authFetch } from '../../utils/api'
+import { authFetch, fetchPage } from '../../utils/api'
 import Swal from 'sweetalert2'
 import { User } from '../../types'
 
@@ -27,6 +27,8 @@ export default function AdminDriversPage() {
     const [drivers, setDrivers] = useState<User[]>([])
     const [loading, setLoading] = useState(true)
     const [searchQuery, setSearchQuery] = useState('')
+    // รายชื่อแบ่งหน้าด้วย cursor และค้นหาที่ server (?q=)
+    const [nextCursor, setNextCursor] = useState<string | null>(null)
     const [isModalOpen, setIsModalOpen] = useState(false)
     const [editingDriver, setEditingDriver] = useState<User | null>(null)
     const [formData, setFormData] = useState({
@@ -38,17 +40,39 @@ export default function AdminDriversPage() {
     })
 
     useEffect(() => {
-        fetchDrivers()
-    }, [])
+        // รอให้พิมพ์เสร็จก่อนค้นหา
+        const timer = setTimeout(fetchDrivers, 300)
+        return () => clearTimeout(timer)
+    }, [searchQuery])
+
+    const driversUrl = () => {
+        const url = new URL('http://localhost:8080/api/admin/drivers')
+        if (searchQuery.trim()) {
+            url.searchParams.set('q', searchQuery.trim())
+        }
+        return url.toString()
+    }
 
     const fetchDrivers = async () => {
         setLoading(true)
         try {
-            const res = await authFetch('http://localhost:8080/api/admin/drivers')
-            if (res.ok) {
-                const data = await res.json()
-                setDrivers(data)
-            }
+            const page = await fetchPage<User>(driversUrl())
+            setDrivers(page.items)
+            setNextCursor(page.nextCursor)
+        } catch (error) {
+            console.error('Failed to fetch drivers', error)
+        } finally {
+            setLoading(false)
+        }
+    }
+
+    const loadMoreDrivers = async () => {
+        if (!nextCursor) return
+        setLoading(true)
+        try {
+            const page = await fetchPage<User>(driversUrl(), nextCursor)
+            setDrivers(prev => [...prev, ...page.items])
+            setNextCursor(page.nextCursor)
         } catch (error) {
             console.error('Failed to fetch drivers', error)
         } finally {
@@ -71,16 +95,36 @@ export default function AdminDriversPage() {
                 body: formData
             })
 
-            if (res.ok) {
-                Swal.fire({
-                    icon: 'success',
-                    title: 'นำเข้าข้อมูลสำเร็จ',
-                    timer: 2000
-                })
-                fetchDrivers()
-            } else {
-                throw new Error('Import failed')
+            let job = await res.json()
+            if (!res.ok) {
+                throw new Error(job.message || 'Import failed')
+            }
+
+            // การนำเข้าทำงานเบื้องหลัง รอจนงานเสร็จแล้วแสดงสรุป
+            while (job.status !== 'SUCCEEDED' && job.status !== 'FAILED') {
+                await new Promise(resolve => setTimeout(resolve, 1500))
+                const jobRes = await authFetch(`http://localhost:8080/api/admin/drivers/import/jobs/${job.jobId}`)
+                if (!jobRes.ok) {
+                    throw new Error('Import job not found')
+                }
+                job = await jobRes.json()
             }
+
+            // ชื่อผู้ใช้มาจากไฟล์ CSV ต้อง escape ก่อนแสดงเป็น HTML
+            const escapeHtml = (value: string) => value.replace(/[&<>"']/g, c => `&#${c.charCodeAt(0)};`)
+            const errors: { row: number, username: string, message: string }[] = job.errors || []
+            const errorList = errors.slice(0, 20)
+                .map(err => `<li>แถวที่ ${err.row}${err.username ? ` (${escapeHtml(err.username)})` : ''}: ${err.message}</li>`)
+                .join('')
+            Swal.fire({
+                icon: job.status === 'FAILED' ? 'error' : errors.length > 0 ? 'warning' : 'success',
+                title: job.status === 'FAILED' ? 'นำเข้าข้อมูลไม่สำเร็จ' : 'นำเข้าข้อมูลเสร็จสิ้น',
+                html: `<p>${job.message}</p>`
+                    + `<p>นำเข้าสำเร็จ ${job.importedRows} รายการ, ข้าม ${job.skippedRows} รายการ</p>`
+                    + (errorList ? `<ul style="text-align:left;max-height:200px;overflow:auto">${errorList}</ul>` : '')
+                    + (errors.length > 20 || job.errorsTruncated ? '<p>และแถวอื่น ๆ อีก</p>' : '')
+            })
+            fetchDrivers()
         } catch (error) {
             Swal.fire({
                 icon: 'error',
@@ -174,12 +218,6 @@ export default function AdminDriversPage() {
         }
     }
 
-    const filteredDrivers = drivers.filter(d =>
-        d.fullName.toLowerCase().includes(searchQuery.toLowerCase()) ||
-        d.email?.toLowerCase().includes(searchQuery.toLowerCase()) ||
-        d.username.toLowerCase().includes(searchQuery.toLowerCase())
-    )
-
     return (
         <AdminGuard>
             <div className="min-h-screen bg-slate-50 p-6 lg:p-10">
@@ -232,7 +270,7 @@ export default function AdminDriversPage() {
                             />
                         </div>
                         <div className="hidden sm:flex items-center gap-2 px-4 py-2 bg-blue-50 text-blue-700 rounded-xl font-bold">
-                            <span>ทั้งหมด: {drivers.length}</span>
+                            <span>แสดง: {drivers.length}{nextCursor ? '+' : ''}</span>
                         </div>
                     </Card>
 
@@ -249,21 +287,21 @@ export default function AdminDriversPage() {
                                     </tr>
                                 </thead>
                                 <tbody className="divide-y divide-slate-100">
-                                    {loading ? (
+                                    {loading && drivers.length === 0 ? (
                                         <tr>
                                             <td colSpan={4} className="px-6 py-20 text-center">
                                                 <div className="animate-spin h-8 w-8 border-4 border-blue-600 border-t-transparent rounded-full mx-auto mb-4"></div>
                                                 <p className="text-slate-500 font-medium">กำลังโหลดข้อมูล...</p>
                                             </td>
                                         </tr>
-                                    ) : filteredDrivers.length === 0 ? (
+                                    ) : drivers.length === 0 ? (
                                         <tr>
                                             <td colSpan={4} className="px-6 py-20 text-center">
                                                 <AlertCircle className="h-12 w-12 text-slate-200 mx-auto mb-4" />
                                                 <p className="text-slate-500 font-medium">ไม่พบข้อมูลรายชื่อคนขับรถ</p>
                                             </td>
                                         </tr>
-                                    ) : filteredDrivers.map((driver) => (
+                                    ) : drivers.map((driver) => (
                                         <tr key={driver.id} className="hover:bg-slate-50/50 transition-colors">
                                             <td className="px-6 py-4">
                                                 <div className="flex items-center gap-4">
@@ -308,6 +346,13 @@ export default function AdminDriversPage() {
                                 </tbody>
                             </table>
                         </div>
+                        {nextCursor && (
+                            <div className="p-4 text-center border-t border-slate-100">
+                                <Button variant="outline" onClick={loadMoreDrivers} loading={loading}>
+                                    แสดงรายชื่อเพิ่มเติม
+                                </Button>
+                            </div>
+                        )}
                     </Card>
 
                     {/* CSV Template Info */}
@@ -17,7 +17,7 @@ import {
     Clock
 } from 'lucide-react'
 import AdminGuard from '../../components/AdminGuard'
-import { authFetch } from '../../utils/api'
+import { authFetch, fetchAllPages } from '../../utils/api'
 import Swal from 'sweetalert2'
 import { Route, Station } from '../../types'
 
@@ -42,17 +42,12 @@ export default function AdminRoutesPage() {
     const fetchData = async () => {
         setLoading(true)
         try {
-            const [routesRes, stationsRes] = await Promise.all([
-                authFetch('http://localhost:8080/api/admin/routes'),
-                authFetch('http://localhost:8080/api/admin/stations')
+            const [routesData, stationsData] = await Promise.all([
+                fetchAllPages<Route>('http://localhost:8080/api/admin/routes'),
+                fetchAllPages<Station>('http://localhost:8080/api/admin/stations')
             ])
-
-            if (routesRes.ok && stationsRes.ok) {
-                const routesData = await routesRes.json()
-                const stationsData = await stationsRes.json()
-                setRoutes(routesData)
-                setStations(stationsData)
-            }
+            setRoutes(routesData)
+            setStations(stationsData)
         } catch (error) {
             console.error('Failed to fetch data', error)
         } finally {
@@ -17,17 +17,26 @@ import {
     UserCircle
 } from 'lucide-react'
 import AdminGuard from '../../components/AdminGuard'
-import { authFetch } from '../../utils/api'
+import { authFetch, fetchAllPages, fetchPage } from '../../utils/api'
 import Swal from 'sweetalert2'
-import { Schedule, Route, User as UserType, Vehicle } from '../../types'
+import { AdminSchedule, Route, User as UserType, Vehicle } from '../../types'
 
 export default function AdminSchedulesPage() {
-    const [schedules, setSchedules] = useState<Schedule[]>([])
+    const [schedules, setSchedules] = useState<AdminSchedule[]>([])
     const [routes, setRoutes] = useState<Route[]>([])
     const [drivers, setDrivers] = useState<UserType[]>([])
     const [vehicles, setVehicles] = useState<Vehicle[]>([])
     const [loading, setLoading] = useState(true)
+    // รอบรถแบ่งหน้าด้วย cursor เริ่มจากรอบที่ออกเดินทางตั้งแต่วันที่เลือก
+    const [fromDate, setFromDate] = useState(() => {
+        const today = new Date()
+        today.setMinutes(today.getMinutes() - today.getTimezoneOffset())
+        return today.toISOString().slice(0, 10)
+    })
+    const [nextCursor, setNextCursor] = useState<string | null>(null)
     const [isModalOpen, setIsModalOpen] = useState(false)
+    // รายชื่อคนขับในฟอร์มค้นหาที่ server ทีละไม่เกิน 20 คน แทนการโหลดทั้งหมด
+    const [driverQuery, setDriverQuery] = useState('')
     const [formData, setFormData] = useState({
         routeId: '',
         driverId: '',
@@ -38,24 +47,30 @@ export default function AdminSchedulesPage() {
 
     useEffect(() => {
         fetchData()
-    }, [])
+    }, [fromDate])
+
+    useEffect(() => {
+        if (!isModalOpen) return
+        const timer = setTimeout(searchDrivers, 300)
+        return () => clearTimeout(timer)
+    }, [driverQuery, isModalOpen])
+
+    const schedulesUrl = () =>
+        `http://localhost:8080/api/admin/schedules?from=${fromDate}T00:00:00`
 
     const fetchData = async () => {
         setLoading(true)
         try {
-            const [schRes, rRes, dRes, vRes] = await Promise.all([
-                authFetch('http://localhost:8080/api/admin/schedules'),
-                authFetch('http://localhost:8080/api/admin/routes'),
-                authFetch('http://localhost:8080/api/admin/drivers'),
-                authFetch('http://localhost:8080/api/admin/vehicles')
+            const [schedulePage, routesData, vehiclesData] = await Promise.all([
+                fetchPage<AdminSchedule>(schedulesUrl()),
+                fetchAllPages<Route>('http://localhost:8080/api/admin/routes?active=true'),
+                fetchAllPages<Vehicle>('http://localhost:8080/api/admin/vehicles')
             ])
 
-            if (schRes.ok && rRes.ok && dRes.ok && vRes.ok) {
-                setSchedules(await schRes.json())
-                setRoutes((await rRes.json()).filter((r: Route) => r.isActive))
-                setDrivers(await dRes.json())
-                setVehicles(await vRes.json())
-            }
+            setSchedules(schedulePage.items)
+            setNextCursor(schedulePage.nextCursor)
+            setRoutes(routesData)
+            setVehicles(vehiclesData)
         } catch (error) {
             console.error('Failed to fetch assignment data', error)
         } finally {
@@ -63,6 +78,33 @@ export default function AdminSchedulesPage() {
         }
     }
 
+    const searchDrivers = async () => {
+        const url = new URL('http://localhost:8080/api/admin/drivers')
+        if (driverQuery.trim()) {
+            url.searchParams.set('q', driverQuery.trim())
+        }
+        try {
+            const page = await fetchPage<UserType>(url.toString(), null, 20)
+            setDrivers(page.items)
+        } catch (error) {
+            console.error('Failed to fetch drivers', error)
+        }
+    }
+
+    const loadMoreSchedules = async () => {
+        if (!nextCursor) return
+        setLoading(true)
+        try {
+            const page = await fetchPage<AdminSchedule>(schedulesUrl(), nextCursor)
+            setSchedules(prev => [...prev, ...page.items])
+            setNextCursor(page.nextCursor)
+        } catch (error) {
+            console.error('Failed to fetch schedules', error)
+        } finally {
+            setLoading(false)
+        }
+    }
+
     const handleDelete = async (id: number) => {
         const result = await Swal.fire({
             title: 'ยืนยันการยกเลิกรอบรถ?',
@@ -140,13 +182,24 @@ export default function AdminSchedulesPage() {
                             </h1>
                             <p className="text-slate-500 font-medium mt-1">กำหนดคนขับและรถยนต์ให้กับเส้นทางในเวลาต่างๆ</p>
                         </div>
-                        <Button
-                            variant="primary"
-                            icon={<Plus size={18} />}
-                            onClick={() => setIsModalOpen(true)}
-                        >
-                            สร้างรอบรถใหม่
-                        </Button>
+                        <div className="flex items-center gap-3">
+                            <label className="flex items-center gap-2 text-sm font-bold text-slate-500">
+                                ตั้งแต่วันที่
+                                <input
+                                    type="date"
+                                    className="p-2 bg-white border rounded-xl font-bold text-slate-700"
+                                    value={fromDate}
+                                    onChange={e => e.target.value && setFromDate(e.target.value)}
+                                />
+                            </label>
+                            <Button
+                                variant="primary"
+                                icon={<Plus size={18} />}
+                                onClick={() => setIsModalOpen(true)}
+                            >
+                                สร้างรอบรถใหม่
+                            </Button>
+                        </div>
                     </div>
 
                     <Card className="overflow-hidden p-0 border-none shadow-xl shadow-slate-200/50">
@@ -176,16 +229,16 @@ export default function AdminSchedulesPage() {
                                                     })}
                                                 </td>
                                                 <td className="px-6 py-4 font-medium">
-                                                    {s.route.originStation.stationName} → {s.route.destinationStation.stationName}
+                                                    {s.originStationName} → {s.destinationStationName}
                                                 </td>
                                                 <td className="px-6 py-4">
                                                     <div className="flex items-center gap-2">
                                                         <UserCircle size={16} className="text-slate-400" />
-                                                        <span className="font-bold">{s.driver.fullName}</span>
+                                                        <span className="font-bold">{s.driverName || '-'}</span>
                                                     </div>
                                                 </td>
                                                 <td className="px-6 py-4">
-                                                    <span className="px-3 py-1 bg-slate-100 rounded-lg font-bold text-slate-700">{s.vehicle.plateNumber}</span>
+                                                    <span className="px-3 py-1 bg-slate-100 rounded-lg font-bold text-slate-700">{s.vehiclePlate || '-'}</span>
                                                 </td>
                                                 <td className="px-6 py-4 text-center">
                                                     <button onClick={() => handleDelete(s.id)} className="p-2 text-red-500 hover:bg-red-50 rounded-lg">
@@ -198,6 +251,13 @@ export default function AdminSchedulesPage() {
                                 </tbody>
                             </table>
                         </div>
+                        {nextCursor && (
+                            <div className="p-4 text-center border-t border-slate-100">
+                                <Button variant="outline" onClick={loadMoreSchedules} loading={loading}>
+                                    แสดงรอบรถเพิ่มเติม
+                                </Button>
+                            </div>
+                        )}
                     </Card>
                 </div>
 
@@ -219,6 +279,16 @@ export default function AdminSchedulesPage() {
                                 <div className="grid grid-cols-2 gap-4">
                                     <div>
                                         <label className="block text-sm font-bold mb-1">คนขับรถ</label>
+                                        <input
+                                            type="text"
+                                            placeholder="ค้นหาชื่อคนขับ..."
+                                            className="w-full p-3 mb-2 bg-slate-50 border rounded-xl font-medium"
+                                            value={driverQuery}
+                                            onChange={e => {
+                                                setDriverQuery(e.target.value)
+                                                setFormData({ ...formData, driverId: '' })
+                                            }}
+                                        />
                                         <select className="w-full p-3 bg-slate-50 border rounded-xl font-bold" value={formData.driverId} onChange={e => setFormData({ ...formData, driverId: e.target.value })} required>
                                             <option value="">เลือกคนขับ...</option>
                                             {drivers.map(d => <option key={d.id} value={d.id}>{d.fullName}</option>)}
@@ -15,7 +15,7 @@ import {
     Home
 } from 'lucide-react'
 import AdminGuard from '../../components/AdminGuard'
-import { authFetch } from '../../utils/api'
+import { authFetch, fetchAllPages } from '../../utils/api'
 import Swal from 'sweetalert2'
 import { Station } from '../../types'
 
@@ -38,11 +38,7 @@ export default function AdminStationsPage() {
     const fetchStations = async () => {
         setLoading(true)
         try {
-            const res = await authFetch('http://localhost:8080/api/admin/stations')
-            if (res.ok) {
-                const data = await res.json()
-                setStations(data)
-            }
+            setStations(await fetchAllPages<Station>('http://localhost:8080/api/admin/stations'))
         } catch (error) {
             console.error('Failed to fetch stations', error)
         } finally {
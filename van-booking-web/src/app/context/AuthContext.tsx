@@ -61,6 +61,13 @@ export function AuthProvider({ children }: { children: React.ReactNode }) {
     }
 
     const logout = () => {
+        // เพิกถอน token ฝั่งเซิร์ฟเวอร์ด้วย (ไม่ต้องรอผล)
+        if (user?.token) {
+            fetch(`http://localhost:8080/api/auth/logout`, {
+                method: 'POST',
+                headers: { Authorization: `Bearer ${user.token}` },
+            }).catch(() => { })
+        }
         setUser(null)
         localStorage.removeItem('user_session')
     }
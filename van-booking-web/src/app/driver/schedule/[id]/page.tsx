@@ -4,14 +4,14 @@ import { useState, useEffect } from 'react'
 import { useParams, useRouter } from 'next/navigation'
 import { useAuth } from '../../../context/AuthContext'
 import DriverGuard from '../../../components/DriverGuard'
-import { Booking } from '../../../types'
+import { ScheduleBooking } from '../../../types'
 import { MapPin, Clock, Users, Phone, CheckCircle, ChevronLeft, Search, User, Bus, AlertCircle } from 'lucide-react'
 
 export default function ScheduleDetail() {
     const { id } = useParams()
     const router = useRouter()
     const { user } = useAuth()
-    const [bookings, setBookings] = useState<Booking[]>([])
+    const [bookings, setBookings] = useState<ScheduleBooking[]>([])
     const [scheduleInfo, setScheduleInfo] = useState<any>(null)
     const [isLoading, setIsLoading] = useState(true)
     const [searchQuery, setSearchQuery] = useState('')
@@ -61,7 +61,7 @@ export default function ScheduleDetail() {
     }
 
     const filteredBookings = bookings.filter(b =>
-    (b.user?.fullName?.toLowerCase().includes(searchQuery.toLowerCase()) ||
+    (b.passengerName?.toLowerCase().includes(searchQuery.toLowerCase()) ||
         b.contactPhone?.includes(searchQuery) ||
         b.seatNumber.toString().includes(searchQuery))
     ).sort((a, b) => a.seatNumber - b.seatNumber)
@@ -185,10 +185,10 @@ export default function ScheduleDetail() {
                                                 <td className="px-8 py-6">
                                                     <div className="flex items-center gap-4">
                                                         <div className="w-10 h-10 rounded-full bg-slate-100 flex items-center justify-center text-slate-400 font-black">
-                                                            {booking.user?.fullName?.[0] || <User size={18} />}
+                                                            {booking.passengerName?.[0] || <User size={18} />}
                                                         </div>
                                                         <div>
-                                                            <p className="font-black text-slate-900 leading-none mb-1">{booking.user?.fullName || 'Anonymous'}</p>
+                                                            <p className="font-black text-slate-900 leading-none mb-1">{booking.passengerName || 'Anonymous'}</p>
                                                             <p className="text-[10px] font-black text-slate-400 uppercase tracking-tighter">ID: #{booking.id}</p>
                                                         </div>
                                                     </div>
@@ -43,6 +43,44 @@ export interface Schedule {
     status: 'AVAILABLE' | 'FULL' | 'CANCELLED';
 }
 
+// แถวของ GET /api/admin/schedules (ไม่มีข้อมูลบัญชีของคนขับ)
+export interface AdminSchedule {
+    id: number;
+    departureTime: string;
+    status: 'AVAILABLE' | 'FULL' | 'CANCELLED';
+    routeId: number;
+    originStationName: string;
+    destinationStationName: string;
+    driverId?: number;
+    driverName?: string;
+    vehicleId?: number;
+    vehiclePlate?: string;
+}
+
+// แถวของ GET /api/bookings/user/{userId}
+export interface BookingSummary {
+    id: number;
+    status: string;
+    seatNumber: number;
+    totalPrice: number;
+    pickupPoint: string;
+    dropoffPoint?: string;
+    scheduleId: number;
+    departureTime: string;
+    originStationName?: string;
+    destinationStationName?: string;
+}
+
+// แถวของ GET /api/driver/schedules/{scheduleId}/bookings
+export interface ScheduleBooking {
+    id: number;
+    seatNumber: number;
+    status: string;
+    passengerName?: string;
+    contactPhone?: string;
+    pickupPoint: string;
+}
+
 export interface Booking {
     id?: number;
     user?: User;
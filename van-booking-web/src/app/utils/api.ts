@@ -29,3 +29,66 @@ export async function authFetch(url: string, options: RequestInit = {}) {
         headers,
     });
 }
+
+export interface CursorPage<T> {
+    items: T[];
+    nextCursor: string | null;
+}
+
+/**
+ * Fetch one page of a cursor-paginated admin list. Pass the previous page's nextCursor to continue.
+ */
+export async function fetchPage<T>(url: string, cursor?: string | null, limit = 50): Promise<CursorPage<T>> {
+    const pageUrl = new URL(url);
+    pageUrl.searchParams.set('limit', String(limit));
+    if (cursor) {
+        pageUrl.searchParams.set('cursor', cursor);
+    }
+    const res = await authFetch(pageUrl.toString());
+    if (!res.ok) {
+        throw new Error(`Failed to fetch ${url}`);
+    }
+    return res.json();
+}
+
+/**
+ * Follow nextCursor until the last page. Only for small reference lists (stations, routes, vehicles).
+ */
+export async function fetchAllPages<T>(url: string): Promise<T[]> {
+    const items: T[] = [];
+    let cursor: string | null = null;
+    do {
+        const page: CursorPage<T> = await fetchPage<T>(url, cursor, 200);
+        items.push(...page.items);
+        cursor = page.nextCursor;
+    } while (cursor);
+    return items;
+}
+
+/**
+ * Upload a payment slip and wait for the asynchronous verification job to finish.
+ * Resolves with ok = true only when the slip was accepted and the booking confirmed.
+ */
+export async function verifySlip(bookingId: string | number, file: File, pollIntervalMs = 1500) {
+    const formData = new FormData();
+    formData.append('file', file);
+
+    const res = await authFetch(`${BACKEND_URL}/api/payments/verify-slip/${bookingId}`, {
+        method: 'POST',
+        body: formData,
+    });
+    let job = await res.json();
+    if (!res.ok) {
+        return { ok: false, message: job.message as string };
+    }
+
+    while (job.status !== 'SUCCEEDED' && job.status !== 'FAILED') {
+        await new Promise(resolve => setTimeout(resolve, pollIntervalMs));
+        const jobRes = await authFetch(`${BACKEND_URL}/api/payments/verify-slip/jobs/${job.jobId}`);
+        if (!jobRes.ok) {
+            return { ok: false, message: (await jobRes.json()).message as string };
+        }
+        job = await jobRes.json();
+    }
+    return { ok: job.status === 'SUCCEEDED', message: job.message as string };
+}